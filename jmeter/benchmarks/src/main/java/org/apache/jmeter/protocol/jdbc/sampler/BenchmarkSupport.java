@@ -0,0 +1,53 @@
+package org.apache.jmeter.protocol.jdbc.sampler;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.jmeter.threads.JMeterContextService;
+import org.apache.jmeter.threads.JMeterVariables;
+import org.apache.jmeter.util.JMeterUtils;
+import org.apache.jorphan.logging.LoggingManager;
+
+/**
+ * Sets up the bits of a JMeter runtime the samplers expect, without
+ * starting a test.
+ */
+final class BenchmarkSupport {
+
+    private static boolean propertiesLoaded;
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * Loads an empty set of JMeter properties, so that every setting takes
+     * its default, and gives the calling thread fresh variables. Logging is
+     * set to WARN, as the samplers' debug output would otherwise be part of
+     * what is measured.
+     */
+    static synchronized void initThread() throws IOException {
+        if (!propertiesLoaded) {
+            File empty = File.createTempFile("jmeter-bench", ".properties"); // $NON-NLS-1$ $NON-NLS-2$
+            empty.deleteOnExit();
+            JMeterUtils.loadJMeterProperties(empty.getAbsolutePath());
+            LoggingManager.setPriority("WARN", "jmeter"); // $NON-NLS-1$ $NON-NLS-2$
+            LoggingManager.setPriority("WARN", "jorphan"); // $NON-NLS-1$ $NON-NLS-2$
+            propertiesLoaded = true;
+        }
+        JMeterContextService.getContext().setVariables(new JMeterVariables());
+    }
+
+    /**
+     * @return variable names for every column: <code>c1,c2,...</code>
+     */
+    static String variableNames(int columns) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 1; i <= columns; i++) {
+            if (i > 1) {
+                sb.append(',');
+            }
+            sb.append('c').append(i);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,42 @@
+package org.apache.jmeter.protocol.jdbc.sampler;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of resolving an argument type name, as done for every argument
+ * whenever the arguments change.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JdbcTypeBenchmark {
+
+    /** Lower case, upper case, mixed case and numeric type names */
+    @Param({ "varchar", "INTEGER", "Timestamp", "12" })
+    public String typeName;
+
+    @Setup
+    public void setup() throws Exception {
+        BenchmarkSupport.initThread();
+    }
+
+    @Benchmark
+    public int getJdbcType() throws Exception {
+        return ExecutionPlan.getJdbcType(typeName);
+    }
+}
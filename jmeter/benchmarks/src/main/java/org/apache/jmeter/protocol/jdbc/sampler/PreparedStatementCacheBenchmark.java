@@ -0,0 +1,67 @@
+package org.apache.jmeter.protocol.jdbc.sampler;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jmeter.protocol.jdbc.sampler.stub.StubConnection;
+import org.apache.jmeter.protocol.jdbc.sampler.stub.StubData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of looking up a cached prepared statement. With more distinct
+ * statements than the cache holds, every lookup cycles through the LRU
+ * and is a miss followed by an eviction.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PreparedStatementCacheBenchmark {
+
+    private static final int CACHE_SIZE = 200;
+
+    @Param({ "1", "64", "256" })
+    public int statements;
+
+    private PreparedStatementCache cache;
+
+    private Connection conn;
+
+    private String[] sql;
+
+    private int next;
+
+    @Setup
+    public void setup() throws Exception {
+        BenchmarkSupport.initThread();
+        cache = new PreparedStatementCache(CACHE_SIZE);
+        conn = new StubConnection(StubData.create(0, 1,
+                StubData.TYPES_INTEGER));
+        sql = new String[statements];
+        for (int i = 0; i < statements; i++) {
+            sql[i] = "SELECT * FROM BENCH WHERE ID = ? AND N = " + i; // $NON-NLS-1$
+            cache.get(conn, sql[i], false);
+        }
+    }
+
+    @Benchmark
+    public PreparedStatement get() throws Exception {
+        if (++next == statements) {
+            next = 0;
+        }
+        return cache.get(conn, sql[next], false);
+    }
+}
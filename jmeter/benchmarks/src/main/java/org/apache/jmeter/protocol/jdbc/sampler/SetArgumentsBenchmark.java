@@ -0,0 +1,105 @@
+package org.apache.jmeter.protocol.jdbc.sampler;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jmeter.protocol.jdbc.sampler.stub.StubData;
+import org.apache.jmeter.protocol.jdbc.sampler.stub.StubStatement;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of binding the query arguments of a prepared statement, both when
+ * they are the same on every sample and when they change, e.g. because
+ * they come from variables.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SetArgumentsBenchmark {
+
+    private static final String[] MIXED = { "VARCHAR", "INTEGER", "BIGINT", // $NON-NLS-1$ $NON-NLS-2$ $NON-NLS-3$
+            "DOUBLE", "DECIMAL", "DATE", "TIMESTAMP" }; // $NON-NLS-1$ $NON-NLS-2$ $NON-NLS-3$ $NON-NLS-4$
+
+    @Param({ "1", "8" })
+    public int arguments;
+
+    @Param({ "VARCHAR", "INTEGER", "TIMESTAMP", "MIXED" })
+    public String types;
+
+    private String argumentTypes;
+
+    private String[] argumentValues;
+
+    private StubStatement pstmt;
+
+    private ExecutionPlan plan;
+
+    private int next;
+
+    @Setup
+    public void setup() throws Exception {
+        BenchmarkSupport.initThread();
+        StringBuilder typeList = new StringBuilder();
+        StringBuilder first = new StringBuilder();
+        StringBuilder second = new StringBuilder();
+        for (int i = 0; i < arguments; i++) {
+            String type = "MIXED".equals(types) ? MIXED[i % MIXED.length] // $NON-NLS-1$
+                    : types;
+            if (i > 0) {
+                typeList.append(',');
+                first.append(',');
+                second.append(',');
+            }
+            typeList.append(type);
+            first.append(value(type, i));
+            second.append(value(type, i + 1));
+        }
+        argumentTypes = typeList.toString();
+        argumentValues = new String[] { first.toString(), second.toString() };
+        pstmt = new StubStatement(StubData.create(0, 1,
+                StubData.TYPES_INTEGER));
+    }
+
+    private static String value(String type, int i) {
+        if ("VARCHAR".equals(type)) { // $NON-NLS-1$
+            return "value " + i; // $NON-NLS-1$
+        } else if ("DOUBLE".equals(type) || "DECIMAL".equals(type)) { // $NON-NLS-1$ $NON-NLS-2$
+            return i + ".25"; // $NON-NLS-1$
+        } else if ("DATE".equals(type)) { // $NON-NLS-1$
+            return "2013-01-" + (10 + i); // $NON-NLS-1$
+        } else if ("TIMESTAMP".equals(type)) { // $NON-NLS-1$
+            return "2013-01-" + (10 + i % 10) + " 12:30:00.0"; // $NON-NLS-1$ $NON-NLS-2$
+        }
+        return Integer.toString(12345 + i);
+    }
+
+    private int[] bind(String values) throws Exception {
+        plan = ExecutionPlan.update(plan, JDBCPageSampler.PREPARED_SELECT,
+                values, argumentTypes, ""); // $NON-NLS-1$
+        pstmt.clearParameters();
+        return plan.bind(pstmt);
+    }
+
+    @Benchmark
+    public int[] constantArguments() throws Exception {
+        return bind(argumentValues[0]);
+    }
+
+    @Benchmark
+    public int[] changingArguments() throws Exception {
+        next ^= 1;
+        return bind(argumentValues[next]);
+    }
+}
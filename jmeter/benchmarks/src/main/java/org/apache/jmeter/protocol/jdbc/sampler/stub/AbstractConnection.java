@@ -0,0 +1,245 @@
+package org.apache.jmeter.protocol.jdbc.sampler.stub;
+
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.CallableStatement;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.NClob;
+import java.sql.PreparedStatement;
+import java.sql.SQLClientInfoException;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Struct;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executor;
+
+/**
+ * Base class for in-memory Connection stubs.
+ * Every method throws UnsupportedOperationException unless overridden.
+ * Generated from the java.sql interface.
+ */
+@SuppressWarnings("deprecation")
+public abstract class AbstractConnection implements Connection {
+
+    public Statement createStatement() throws SQLException {
+        throw new UnsupportedOperationException("createStatement"); // $NON-NLS-1$
+    }
+
+    public PreparedStatement prepareStatement(String p0) throws SQLException {
+        throw new UnsupportedOperationException("prepareStatement"); // $NON-NLS-1$
+    }
+
+    public CallableStatement prepareCall(String p0) throws SQLException {
+        throw new UnsupportedOperationException("prepareCall"); // $NON-NLS-1$
+    }
+
+    public String nativeSQL(String p0) throws SQLException {
+        throw new UnsupportedOperationException("nativeSQL"); // $NON-NLS-1$
+    }
+
+    public void setAutoCommit(boolean p0) throws SQLException {
+        throw new UnsupportedOperationException("setAutoCommit"); // $NON-NLS-1$
+    }
+
+    public boolean getAutoCommit() throws SQLException {
+        throw new UnsupportedOperationException("getAutoCommit"); // $NON-NLS-1$
+    }
+
+    public void commit() throws SQLException {
+        throw new UnsupportedOperationException("commit"); // $NON-NLS-1$
+    }
+
+    public void rollback() throws SQLException {
+        throw new UnsupportedOperationException("rollback"); // $NON-NLS-1$
+    }
+
+    public void close() throws SQLException {
+        throw new UnsupportedOperationException("close"); // $NON-NLS-1$
+    }
+
+    public boolean isClosed() throws SQLException {
+        throw new UnsupportedOperationException("isClosed"); // $NON-NLS-1$
+    }
+
+    public DatabaseMetaData getMetaData() throws SQLException {
+        throw new UnsupportedOperationException("getMetaData"); // $NON-NLS-1$
+    }
+
+    public void setReadOnly(boolean p0) throws SQLException {
+        throw new UnsupportedOperationException("setReadOnly"); // $NON-NLS-1$
+    }
+
+    public boolean isReadOnly() throws SQLException {
+        throw new UnsupportedOperationException("isReadOnly"); // $NON-NLS-1$
+    }
+
+    public void setCatalog(String p0) throws SQLException {
+        throw new UnsupportedOperationException("setCatalog"); // $NON-NLS-1$
+    }
+
+    public String getCatalog() throws SQLException {
+        throw new UnsupportedOperationException("getCatalog"); // $NON-NLS-1$
+    }
+
+    public void setTransactionIsolation(int p0) throws SQLException {
+        throw new UnsupportedOperationException("setTransactionIsolation"); // $NON-NLS-1$
+    }
+
+    public int getTransactionIsolation() throws SQLException {
+        throw new UnsupportedOperationException("getTransactionIsolation"); // $NON-NLS-1$
+    }
+
+    public SQLWarning getWarnings() throws SQLException {
+        throw new UnsupportedOperationException("getWarnings"); // $NON-NLS-1$
+    }
+
+    public void clearWarnings() throws SQLException {
+        throw new UnsupportedOperationException("clearWarnings"); // $NON-NLS-1$
+    }
+
+    public Statement createStatement(int p0, int p1) throws SQLException {
+        throw new UnsupportedOperationException("createStatement"); // $NON-NLS-1$
+    }
+
+    public PreparedStatement prepareStatement(String p0, int p1, int p2) throws SQLException {
+        throw new UnsupportedOperationException("prepareStatement"); // $NON-NLS-1$
+    }
+
+    public CallableStatement prepareCall(String p0, int p1, int p2) throws SQLException {
+        throw new UnsupportedOperationException("prepareCall"); // $NON-NLS-1$
+    }
+
+    public Map<String, Class<?>> getTypeMap() throws SQLException {
+        throw new UnsupportedOperationException("getTypeMap"); // $NON-NLS-1$
+    }
+
+    public void setTypeMap(Map<String, Class<?>> p0) throws SQLException {
+        throw new UnsupportedOperationException("setTypeMap"); // $NON-NLS-1$
+    }
+
+    public void setHoldability(int p0) throws SQLException {
+        throw new UnsupportedOperationException("setHoldability"); // $NON-NLS-1$
+    }
+
+    public int getHoldability() throws SQLException {
+        throw new UnsupportedOperationException("getHoldability"); // $NON-NLS-1$
+    }
+
+    public Savepoint setSavepoint() throws SQLException {
+        throw new UnsupportedOperationException("setSavepoint"); // $NON-NLS-1$
+    }
+
+    public Savepoint setSavepoint(String p0) throws SQLException {
+        throw new UnsupportedOperationException("setSavepoint"); // $NON-NLS-1$
+    }
+
+    public void rollback(Savepoint p0) throws SQLException {
+        throw new UnsupportedOperationException("rollback"); // $NON-NLS-1$
+    }
+
+    public void releaseSavepoint(Savepoint p0) throws SQLException {
+        throw new UnsupportedOperationException("releaseSavepoint"); // $NON-NLS-1$
+    }
+
+    public Statement createStatement(int p0, int p1, int p2) throws SQLException {
+        throw new UnsupportedOperationException("createStatement"); // $NON-NLS-1$
+    }
+
+    public PreparedStatement prepareStatement(String p0, int p1, int p2, int p3) throws SQLException {
+        throw new UnsupportedOperationException("prepareStatement"); // $NON-NLS-1$
+    }
+
+    public CallableStatement prepareCall(String p0, int p1, int p2, int p3) throws SQLException {
+        throw new UnsupportedOperationException("prepareCall"); // $NON-NLS-1$
+    }
+
+    public PreparedStatement prepareStatement(String p0, int p1) throws SQLException {
+        throw new UnsupportedOperationException("prepareStatement"); // $NON-NLS-1$
+    }
+
+    public PreparedStatement prepareStatement(String p0, int[] p1) throws SQLException {
+        throw new UnsupportedOperationException("prepareStatement"); // $NON-NLS-1$
+    }
+
+    public PreparedStatement prepareStatement(String p0, String[] p1) throws SQLException {
+        throw new UnsupportedOperationException("prepareStatement"); // $NON-NLS-1$
+    }
+
+    public Clob createClob() throws SQLException {
+        throw new UnsupportedOperationException("createClob"); // $NON-NLS-1$
+    }
+
+    public Blob createBlob() throws SQLException {
+        throw new UnsupportedOperationException("createBlob"); // $NON-NLS-1$
+    }
+
+    public NClob createNClob() throws SQLException {
+        throw new UnsupportedOperationException("createNClob"); // $NON-NLS-1$
+    }
+
+    public SQLXML createSQLXML() throws SQLException {
+        throw new UnsupportedOperationException("createSQLXML"); // $NON-NLS-1$
+    }
+
+    public boolean isValid(int p0) throws SQLException {
+        throw new UnsupportedOperationException("isValid"); // $NON-NLS-1$
+    }
+
+    public void setClientInfo(String p0, String p1) throws SQLClientInfoException {
+        throw new UnsupportedOperationException("setClientInfo"); // $NON-NLS-1$
+    }
+
+    public void setClientInfo(Properties p0) throws SQLClientInfoException {
+        throw new UnsupportedOperationException("setClientInfo"); // $NON-NLS-1$
+    }
+
+    public String getClientInfo(String p0) throws SQLException {
+        throw new UnsupportedOperationException("getClientInfo"); // $NON-NLS-1$
+    }
+
+    public Properties getClientInfo() throws SQLException {
+        throw new UnsupportedOperationException("getClientInfo"); // $NON-NLS-1$
+    }
+
+    public Array createArrayOf(String p0, Object[] p1) throws SQLException {
+        throw new UnsupportedOperationException("createArrayOf"); // $NON-NLS-1$
+    }
+
+    public Struct createStruct(String p0, Object[] p1) throws SQLException {
+        throw new UnsupportedOperationException("createStruct"); // $NON-NLS-1$
+    }
+
+    public void setSchema(String p0) throws SQLException {
+        throw new UnsupportedOperationException("setSchema"); // $NON-NLS-1$
+    }
+
+    public String getSchema() throws SQLException {
+        throw new UnsupportedOperationException("getSchema"); // $NON-NLS-1$
+    }
+
+    public void abort(Executor p0) throws SQLException {
+        throw new UnsupportedOperationException("abort"); // $NON-NLS-1$
+    }
+
+    public void setNetworkTimeout(Executor p0, int p1) throws SQLException {
+        throw new UnsupportedOperationException("setNetworkTimeout"); // $NON-NLS-1$
+    }
+
+    public int getNetworkTimeout() throws SQLException {
+        throw new UnsupportedOperationException("getNetworkTimeout"); // $NON-NLS-1$
+    }
+
+    public <T> T unwrap(Class<T> p0) throws SQLException {
+        throw new UnsupportedOperationException("unwrap"); // $NON-NLS-1$
+    }
+
+    public boolean isWrapperFor(Class<?> p0) throws SQLException {
+        throw new UnsupportedOperationException("isWrapperFor"); // $NON-NLS-1$
+    }
+}
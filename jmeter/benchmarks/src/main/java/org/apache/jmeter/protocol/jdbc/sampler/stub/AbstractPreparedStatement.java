@@ -0,0 +1,429 @@
+package org.apache.jmeter.protocol.jdbc.sampler.stub;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.NClob;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.Ref;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.RowId;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Calendar;
+
+/**
+ * Base class for in-memory Statement and PreparedStatement stubs.
+ * Every method throws UnsupportedOperationException unless overridden.
+ * Generated from the java.sql interface.
+ */
+@SuppressWarnings("deprecation")
+public abstract class AbstractPreparedStatement implements PreparedStatement {
+
+    public ResultSet executeQuery() throws SQLException {
+        throw new UnsupportedOperationException("executeQuery"); // $NON-NLS-1$
+    }
+
+    public int executeUpdate() throws SQLException {
+        throw new UnsupportedOperationException("executeUpdate"); // $NON-NLS-1$
+    }
+
+    public void setNull(int p0, int p1) throws SQLException {
+        throw new UnsupportedOperationException("setNull"); // $NON-NLS-1$
+    }
+
+    public void setBoolean(int p0, boolean p1) throws SQLException {
+        throw new UnsupportedOperationException("setBoolean"); // $NON-NLS-1$
+    }
+
+    public void setByte(int p0, byte p1) throws SQLException {
+        throw new UnsupportedOperationException("setByte"); // $NON-NLS-1$
+    }
+
+    public void setShort(int p0, short p1) throws SQLException {
+        throw new UnsupportedOperationException("setShort"); // $NON-NLS-1$
+    }
+
+    public void setInt(int p0, int p1) throws SQLException {
+        throw new UnsupportedOperationException("setInt"); // $NON-NLS-1$
+    }
+
+    public void setLong(int p0, long p1) throws SQLException {
+        throw new UnsupportedOperationException("setLong"); // $NON-NLS-1$
+    }
+
+    public void setFloat(int p0, float p1) throws SQLException {
+        throw new UnsupportedOperationException("setFloat"); // $NON-NLS-1$
+    }
+
+    public void setDouble(int p0, double p1) throws SQLException {
+        throw new UnsupportedOperationException("setDouble"); // $NON-NLS-1$
+    }
+
+    public void setBigDecimal(int p0, BigDecimal p1) throws SQLException {
+        throw new UnsupportedOperationException("setBigDecimal"); // $NON-NLS-1$
+    }
+
+    public void setString(int p0, String p1) throws SQLException {
+        throw new UnsupportedOperationException("setString"); // $NON-NLS-1$
+    }
+
+    public void setBytes(int p0, byte[] p1) throws SQLException {
+        throw new UnsupportedOperationException("setBytes"); // $NON-NLS-1$
+    }
+
+    public void setDate(int p0, Date p1) throws SQLException {
+        throw new UnsupportedOperationException("setDate"); // $NON-NLS-1$
+    }
+
+    public void setTime(int p0, Time p1) throws SQLException {
+        throw new UnsupportedOperationException("setTime"); // $NON-NLS-1$
+    }
+
+    public void setTimestamp(int p0, Timestamp p1) throws SQLException {
+        throw new UnsupportedOperationException("setTimestamp"); // $NON-NLS-1$
+    }
+
+    public void setAsciiStream(int p0, InputStream p1, int p2) throws SQLException {
+        throw new UnsupportedOperationException("setAsciiStream"); // $NON-NLS-1$
+    }
+
+    public void setUnicodeStream(int p0, InputStream p1, int p2) throws SQLException {
+        throw new UnsupportedOperationException("setUnicodeStream"); // $NON-NLS-1$
+    }
+
+    public void setBinaryStream(int p0, InputStream p1, int p2) throws SQLException {
+        throw new UnsupportedOperationException("setBinaryStream"); // $NON-NLS-1$
+    }
+
+    public void clearParameters() throws SQLException {
+        throw new UnsupportedOperationException("clearParameters"); // $NON-NLS-1$
+    }
+
+    public void setObject(int p0, Object p1, int p2) throws SQLException {
+        throw new UnsupportedOperationException("setObject"); // $NON-NLS-1$
+    }
+
+    public void setObject(int p0, Object p1) throws SQLException {
+        throw new UnsupportedOperationException("setObject"); // $NON-NLS-1$
+    }
+
+    public boolean execute() throws SQLException {
+        throw new UnsupportedOperationException("execute"); // $NON-NLS-1$
+    }
+
+    public void addBatch() throws SQLException {
+        throw new UnsupportedOperationException("addBatch"); // $NON-NLS-1$
+    }
+
+    public void setCharacterStream(int p0, Reader p1, int p2) throws SQLException {
+        throw new UnsupportedOperationException("setCharacterStream"); // $NON-NLS-1$
+    }
+
+    public void setRef(int p0, Ref p1) throws SQLException {
+        throw new UnsupportedOperationException("setRef"); // $NON-NLS-1$
+    }
+
+    public void setBlob(int p0, Blob p1) throws SQLException {
+        throw new UnsupportedOperationException("setBlob"); // $NON-NLS-1$
+    }
+
+    public void setClob(int p0, Clob p1) throws SQLException {
+        throw new UnsupportedOperationException("setClob"); // $NON-NLS-1$
+    }
+
+    public void setArray(int p0, Array p1) throws SQLException {
+        throw new UnsupportedOperationException("setArray"); // $NON-NLS-1$
+    }
+
+    public ResultSetMetaData getMetaData() throws SQLException {
+        throw new UnsupportedOperationException("getMetaData"); // $NON-NLS-1$
+    }
+
+    public void setDate(int p0, Date p1, Calendar p2) throws SQLException {
+        throw new UnsupportedOperationException("setDate"); // $NON-NLS-1$
+    }
+
+    public void setTime(int p0, Time p1, Calendar p2) throws SQLException {
+        throw new UnsupportedOperationException("setTime"); // $NON-NLS-1$
+    }
+
+    public void setTimestamp(int p0, Timestamp p1, Calendar p2) throws SQLException {
+        throw new UnsupportedOperationException("setTimestamp"); // $NON-NLS-1$
+    }
+
+    public void setNull(int p0, int p1, String p2) throws SQLException {
+        throw new UnsupportedOperationException("setNull"); // $NON-NLS-1$
+    }
+
+    public void setURL(int p0, URL p1) throws SQLException {
+        throw new UnsupportedOperationException("setURL"); // $NON-NLS-1$
+    }
+
+    public ParameterMetaData getParameterMetaData() throws SQLException {
+        throw new UnsupportedOperationException("getParameterMetaData"); // $NON-NLS-1$
+    }
+
+    public void setRowId(int p0, RowId p1) throws SQLException {
+        throw new UnsupportedOperationException("setRowId"); // $NON-NLS-1$
+    }
+
+    public void setNString(int p0, String p1) throws SQLException {
+        throw new UnsupportedOperationException("setNString"); // $NON-NLS-1$
+    }
+
+    public void setNCharacterStream(int p0, Reader p1, long p2) throws SQLException {
+        throw new UnsupportedOperationException("setNCharacterStream"); // $NON-NLS-1$
+    }
+
+    public void setNClob(int p0, NClob p1) throws SQLException {
+        throw new UnsupportedOperationException("setNClob"); // $NON-NLS-1$
+    }
+
+    public void setClob(int p0, Reader p1, long p2) throws SQLException {
+        throw new UnsupportedOperationException("setClob"); // $NON-NLS-1$
+    }
+
+    public void setBlob(int p0, InputStream p1, long p2) throws SQLException {
+        throw new UnsupportedOperationException("setBlob"); // $NON-NLS-1$
+    }
+
+    public void setNClob(int p0, Reader p1, long p2) throws SQLException {
+        throw new UnsupportedOperationException("setNClob"); // $NON-NLS-1$
+    }
+
+    public void setSQLXML(int p0, SQLXML p1) throws SQLException {
+        throw new UnsupportedOperationException("setSQLXML"); // $NON-NLS-1$
+    }
+
+    public void setObject(int p0, Object p1, int p2, int p3) throws SQLException {
+        throw new UnsupportedOperationException("setObject"); // $NON-NLS-1$
+    }
+
+    public void setAsciiStream(int p0, InputStream p1, long p2) throws SQLException {
+        throw new UnsupportedOperationException("setAsciiStream"); // $NON-NLS-1$
+    }
+
+    public void setBinaryStream(int p0, InputStream p1, long p2) throws SQLException {
+        throw new UnsupportedOperationException("setBinaryStream"); // $NON-NLS-1$
+    }
+
+    public void setCharacterStream(int p0, Reader p1, long p2) throws SQLException {
+        throw new UnsupportedOperationException("setCharacterStream"); // $NON-NLS-1$
+    }
+
+    public void setAsciiStream(int p0, InputStream p1) throws SQLException {
+        throw new UnsupportedOperationException("setAsciiStream"); // $NON-NLS-1$
+    }
+
+    public void setBinaryStream(int p0, InputStream p1) throws SQLException {
+        throw new UnsupportedOperationException("setBinaryStream"); // $NON-NLS-1$
+    }
+
+    public void setCharacterStream(int p0, Reader p1) throws SQLException {
+        throw new UnsupportedOperationException("setCharacterStream"); // $NON-NLS-1$
+    }
+
+    public void setNCharacterStream(int p0, Reader p1) throws SQLException {
+        throw new UnsupportedOperationException("setNCharacterStream"); // $NON-NLS-1$
+    }
+
+    public void setClob(int p0, Reader p1) throws SQLException {
+        throw new UnsupportedOperationException("setClob"); // $NON-NLS-1$
+    }
+
+    public void setBlob(int p0, InputStream p1) throws SQLException {
+        throw new UnsupportedOperationException("setBlob"); // $NON-NLS-1$
+    }
+
+    public void setNClob(int p0, Reader p1) throws SQLException {
+        throw new UnsupportedOperationException("setNClob"); // $NON-NLS-1$
+    }
+
+    public ResultSet executeQuery(String p0) throws SQLException {
+        throw new UnsupportedOperationException("executeQuery"); // $NON-NLS-1$
+    }
+
+    public int executeUpdate(String p0) throws SQLException {
+        throw new UnsupportedOperationException("executeUpdate"); // $NON-NLS-1$
+    }
+
+    public void close() throws SQLException {
+        throw new UnsupportedOperationException("close"); // $NON-NLS-1$
+    }
+
+    public int getMaxFieldSize() throws SQLException {
+        throw new UnsupportedOperationException("getMaxFieldSize"); // $NON-NLS-1$
+    }
+
+    public void setMaxFieldSize(int p0) throws SQLException {
+        throw new UnsupportedOperationException("setMaxFieldSize"); // $NON-NLS-1$
+    }
+
+    public int getMaxRows() throws SQLException {
+        throw new UnsupportedOperationException("getMaxRows"); // $NON-NLS-1$
+    }
+
+    public void setMaxRows(int p0) throws SQLException {
+        throw new UnsupportedOperationException("setMaxRows"); // $NON-NLS-1$
+    }
+
+    public void setEscapeProcessing(boolean p0) throws SQLException {
+        throw new UnsupportedOperationException("setEscapeProcessing"); // $NON-NLS-1$
+    }
+
+    public int getQueryTimeout() throws SQLException {
+        throw new UnsupportedOperationException("getQueryTimeout"); // $NON-NLS-1$
+    }
+
+    public void setQueryTimeout(int p0) throws SQLException {
+        throw new UnsupportedOperationException("setQueryTimeout"); // $NON-NLS-1$
+    }
+
+    public void cancel() throws SQLException {
+        throw new UnsupportedOperationException("cancel"); // $NON-NLS-1$
+    }
+
+    public SQLWarning getWarnings() throws SQLException {
+        throw new UnsupportedOperationException("getWarnings"); // $NON-NLS-1$
+    }
+
+    public void clearWarnings() throws SQLException {
+        throw new UnsupportedOperationException("clearWarnings"); // $NON-NLS-1$
+    }
+
+    public void setCursorName(String p0) throws SQLException {
+        throw new UnsupportedOperationException("setCursorName"); // $NON-NLS-1$
+    }
+
+    public boolean execute(String p0) throws SQLException {
+        throw new UnsupportedOperationException("execute"); // $NON-NLS-1$
+    }
+
+    public ResultSet getResultSet() throws SQLException {
+        throw new UnsupportedOperationException("getResultSet"); // $NON-NLS-1$
+    }
+
+    public int getUpdateCount() throws SQLException {
+        throw new UnsupportedOperationException("getUpdateCount"); // $NON-NLS-1$
+    }
+
+    public boolean getMoreResults() throws SQLException {
+        throw new UnsupportedOperationException("getMoreResults"); // $NON-NLS-1$
+    }
+
+    public void setFetchDirection(int p0) throws SQLException {
+        throw new UnsupportedOperationException("setFetchDirection"); // $NON-NLS-1$
+    }
+
+    public int getFetchDirection() throws SQLException {
+        throw new UnsupportedOperationException("getFetchDirection"); // $NON-NLS-1$
+    }
+
+    public void setFetchSize(int p0) throws SQLException {
+        throw new UnsupportedOperationException("setFetchSize"); // $NON-NLS-1$
+    }
+
+    public int getFetchSize() throws SQLException {
+        throw new UnsupportedOperationException("getFetchSize"); // $NON-NLS-1$
+    }
+
+    public int getResultSetConcurrency() throws SQLException {
+        throw new UnsupportedOperationException("getResultSetConcurrency"); // $NON-NLS-1$
+    }
+
+    public int getResultSetType() throws SQLException {
+        throw new UnsupportedOperationException("getResultSetType"); // $NON-NLS-1$
+    }
+
+    public void addBatch(String p0) throws SQLException {
+        throw new UnsupportedOperationException("addBatch"); // $NON-NLS-1$
+    }
+
+    public void clearBatch() throws SQLException {
+        throw new UnsupportedOperationException("clearBatch"); // $NON-NLS-1$
+    }
+
+    public int[] executeBatch() throws SQLException {
+        throw new UnsupportedOperationException("executeBatch"); // $NON-NLS-1$
+    }
+
+    public Connection getConnection() throws SQLException {
+        throw new UnsupportedOperationException("getConnection"); // $NON-NLS-1$
+    }
+
+    public boolean getMoreResults(int p0) throws SQLException {
+        throw new UnsupportedOperationException("getMoreResults"); // $NON-NLS-1$
+    }
+
+    public ResultSet getGeneratedKeys() throws SQLException {
+        throw new UnsupportedOperationException("getGeneratedKeys"); // $NON-NLS-1$
+    }
+
+    public int executeUpdate(String p0, int p1) throws SQLException {
+        throw new UnsupportedOperationException("executeUpdate"); // $NON-NLS-1$
+    }
+
+    public int executeUpdate(String p0, int[] p1) throws SQLException {
+        throw new UnsupportedOperationException("executeUpdate"); // $NON-NLS-1$
+    }
+
+    public int executeUpdate(String p0, String[] p1) throws SQLException {
+        throw new UnsupportedOperationException("executeUpdate"); // $NON-NLS-1$
+    }
+
+    public boolean execute(String p0, int p1) throws SQLException {
+        throw new UnsupportedOperationException("execute"); // $NON-NLS-1$
+    }
+
+    public boolean execute(String p0, int[] p1) throws SQLException {
+        throw new UnsupportedOperationException("execute"); // $NON-NLS-1$
+    }
+
+    public boolean execute(String p0, String[] p1) throws SQLException {
+        throw new UnsupportedOperationException("execute"); // $NON-NLS-1$
+    }
+
+    public int getResultSetHoldability() throws SQLException {
+        throw new UnsupportedOperationException("getResultSetHoldability"); // $NON-NLS-1$
+    }
+
+    public boolean isClosed() throws SQLException {
+        throw new UnsupportedOperationException("isClosed"); // $NON-NLS-1$
+    }
+
+    public void setPoolable(boolean p0) throws SQLException {
+        throw new UnsupportedOperationException("setPoolable"); // $NON-NLS-1$
+    }
+
+    public boolean isPoolable() throws SQLException {
+        throw new UnsupportedOperationException("isPoolable"); // $NON-NLS-1$
+    }
+
+    public void closeOnCompletion() throws SQLException {
+        throw new UnsupportedOperationException("closeOnCompletion"); // $NON-NLS-1$
+    }
+
+    public boolean isCloseOnCompletion() throws SQLException {
+        throw new UnsupportedOperationException("isCloseOnCompletion"); // $NON-NLS-1$
+    }
+
+    public <T> T unwrap(Class<T> p0) throws SQLException {
+        throw new UnsupportedOperationException("unwrap"); // $NON-NLS-1$
+    }
+
+    public boolean isWrapperFor(Class<?> p0) throws SQLException {
+        throw new UnsupportedOperationException("isWrapperFor"); // $NON-NLS-1$
+    }
+}
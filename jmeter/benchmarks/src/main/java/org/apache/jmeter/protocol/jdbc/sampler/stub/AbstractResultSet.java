@@ -0,0 +1,796 @@
+package org.apache.jmeter.protocol.jdbc.sampler.stub;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Date;
+import java.sql.NClob;
+import java.sql.Ref;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.RowId;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Statement;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Calendar;
+import java.util.Map;
+
+/**
+ * Base class for in-memory ResultSet stubs.
+ * Every method throws UnsupportedOperationException unless overridden.
+ * Generated from the java.sql interface.
+ */
+@SuppressWarnings("deprecation")
+public abstract class AbstractResultSet implements ResultSet {
+
+    public boolean next() throws SQLException {
+        throw new UnsupportedOperationException("next"); // $NON-NLS-1$
+    }
+
+    public void close() throws SQLException {
+        throw new UnsupportedOperationException("close"); // $NON-NLS-1$
+    }
+
+    public boolean wasNull() throws SQLException {
+        throw new UnsupportedOperationException("wasNull"); // $NON-NLS-1$
+    }
+
+    public String getString(int p0) throws SQLException {
+        throw new UnsupportedOperationException("getString"); // $NON-NLS-1$
+    }
+
+    public boolean getBoolean(int p0) throws SQLException {
+        throw new UnsupportedOperationException("getBoolean"); // $NON-NLS-1$
+    }
+
+    public byte getByte(int p0) throws SQLException {
+        throw new UnsupportedOperationException("getByte"); // $NON-NLS-1$
+    }
+
+    public short getShort(int p0) throws SQLException {
+        throw new UnsupportedOperationException("getShort"); // $NON-NLS-1$
+    }
+
+    public int getInt(int p0) throws SQLException {
+        throw new UnsupportedOperationException("getInt"); // $NON-NLS-1$
+    }
+
+    public long getLong(int p0) throws SQLException {
+        throw new UnsupportedOperationException("getLong"); // $NON-NLS-1$
+    }
+
+    public float getFloat(int p0) throws SQLException {
+        throw new UnsupportedOperationException("getFloat"); // $NON-NLS-1$
+    }
+
+    public double getDouble(int p0) throws SQLException {
+        throw new UnsupportedOperationException("getDouble"); // $NON-NLS-1$
+    }
+
+    public BigDecimal getBigDecimal(int p0, int p1) throws SQLException {
+        throw new UnsupportedOperationException("getBigDecimal"); // $NON-NLS-1$
+    }
+
+    public byte[] getBytes(int p0) throws SQLException {
+        throw new UnsupportedOperationException("getBytes"); // $NON-NLS-1$
+    }
+
+    public Date getDate(int p0) throws SQLException {
+        throw new UnsupportedOperationException("getDate"); // $NON-NLS-1$
+    }
+
+    public Time getTime(int p0) throws SQLException {
+        throw new UnsupportedOperationException("getTime"); // $NON-NLS-1$
+    }
+
+    public Timestamp getTimestamp(int p0) throws SQLException {
+        throw new UnsupportedOperationException("getTimestamp"); // $NON-NLS-1$
+    }
+
+    public InputStream getAsciiStream(int p0) throws SQLException {
+        throw new UnsupportedOperationException("getAsciiStream"); // $NON-NLS-1$
+    }
+
+    public InputStream getUnicodeStream(int p0) throws SQLException {
+        throw new UnsupportedOperationException("getUnicodeStream"); // $NON-NLS-1$
+    }
+
+    public InputStream getBinaryStream(int p0) throws SQLException {
+        throw new UnsupportedOperationException("getBinaryStream"); // $NON-NLS-1$
+    }
+
+    public String getString(String p0) throws SQLException {
+        throw new UnsupportedOperationException("getString"); // $NON-NLS-1$
+    }
+
+    public boolean getBoolean(String p0) throws SQLException {
+        throw new UnsupportedOperationException("getBoolean"); // $NON-NLS-1$
+    }
+
+    public byte getByte(String p0) throws SQLException {
+        throw new UnsupportedOperationException("getByte"); // $NON-NLS-1$
+    }
+
+    public short getShort(String p0) throws SQLException {
+        throw new UnsupportedOperationException("getShort"); // $NON-NLS-1$
+    }
+
+    public int getInt(String p0) throws SQLException {
+        throw new UnsupportedOperationException("getInt"); // $NON-NLS-1$
+    }
+
+    public long getLong(String p0) throws SQLException {
+        throw new UnsupportedOperationException("getLong"); // $NON-NLS-1$
+    }
+
+    public float getFloat(String p0) throws SQLException {
+        throw new UnsupportedOperationException("getFloat"); // $NON-NLS-1$
+    }
+
+    public double getDouble(String p0) throws SQLException {
+        throw new UnsupportedOperationException("getDouble"); // $NON-NLS-1$
+    }
+
+    public BigDecimal getBigDecimal(String p0, int p1) throws SQLException {
+        throw new UnsupportedOperationException("getBigDecimal"); // $NON-NLS-1$
+    }
+
+    public byte[] getBytes(String p0) throws SQLException {
+        throw new UnsupportedOperationException("getBytes"); // $NON-NLS-1$
+    }
+
+    public Date getDate(String p0) throws SQLException {
+        throw new UnsupportedOperationException("getDate"); // $NON-NLS-1$
+    }
+
+    public Time getTime(String p0) throws SQLException {
+        throw new UnsupportedOperationException("getTime"); // $NON-NLS-1$
+    }
+
+    public Timestamp getTimestamp(String p0) throws SQLException {
+        throw new UnsupportedOperationException("getTimestamp"); // $NON-NLS-1$
+    }
+
+    public InputStream getAsciiStream(String p0) throws SQLException {
+        throw new UnsupportedOperationException("getAsciiStream"); // $NON-NLS-1$
+    }
+
+    public InputStream getUnicodeStream(String p0) throws SQLException {
+        throw new UnsupportedOperationException("getUnicodeStream"); // $NON-NLS-1$
+    }
+
+    public InputStream getBinaryStream(String p0) throws SQLException {
+        throw new UnsupportedOperationException("getBinaryStream"); // $NON-NLS-1$
+    }
+
+    public SQLWarning getWarnings() throws SQLException {
+        throw new UnsupportedOperationException("getWarnings"); // $NON-NLS-1$
+    }
+
+    public void clearWarnings() throws SQLException {
+        throw new UnsupportedOperationException("clearWarnings"); // $NON-NLS-1$
+    }
+
+    public String getCursorName() throws SQLException {
+        throw new UnsupportedOperationException("getCursorName"); // $NON-NLS-1$
+    }
+
+    public ResultSetMetaData getMetaData() throws SQLException {
+        throw new UnsupportedOperationException("getMetaData"); // $NON-NLS-1$
+    }
+
+    public Object getObject(int p0) throws SQLException {
+        throw new UnsupportedOperationException("getObject"); // $NON-NLS-1$
+    }
+
+    public Object getObject(String p0) throws SQLException {
+        throw new UnsupportedOperationException("getObject"); // $NON-NLS-1$
+    }
+
+    public int findColumn(String p0) throws SQLException {
+        throw new UnsupportedOperationException("findColumn"); // $NON-NLS-1$
+    }
+
+    public Reader getCharacterStream(int p0) throws SQLException {
+        throw new UnsupportedOperationException("getCharacterStream"); // $NON-NLS-1$
+    }
+
+    public Reader getCharacterStream(String p0) throws SQLException {
+        throw new UnsupportedOperationException("getCharacterStream"); // $NON-NLS-1$
+    }
+
+    public BigDecimal getBigDecimal(int p0) throws SQLException {
+        throw new UnsupportedOperationException("getBigDecimal"); // $NON-NLS-1$
+    }
+
+    public BigDecimal getBigDecimal(String p0) throws SQLException {
+        throw new UnsupportedOperationException("getBigDecimal"); // $NON-NLS-1$
+    }
+
+    public boolean isBeforeFirst() throws SQLException {
+        throw new UnsupportedOperationException("isBeforeFirst"); // $NON-NLS-1$
+    }
+
+    public boolean isAfterLast() throws SQLException {
+        throw new UnsupportedOperationException("isAfterLast"); // $NON-NLS-1$
+    }
+
+    public boolean isFirst() throws SQLException {
+        throw new UnsupportedOperationException("isFirst"); // $NON-NLS-1$
+    }
+
+    public boolean isLast() throws SQLException {
+        throw new UnsupportedOperationException("isLast"); // $NON-NLS-1$
+    }
+
+    public void beforeFirst() throws SQLException {
+        throw new UnsupportedOperationException("beforeFirst"); // $NON-NLS-1$
+    }
+
+    public void afterLast() throws SQLException {
+        throw new UnsupportedOperationException("afterLast"); // $NON-NLS-1$
+    }
+
+    public boolean first() throws SQLException {
+        throw new UnsupportedOperationException("first"); // $NON-NLS-1$
+    }
+
+    public boolean last() throws SQLException {
+        throw new UnsupportedOperationException("last"); // $NON-NLS-1$
+    }
+
+    public int getRow() throws SQLException {
+        throw new UnsupportedOperationException("getRow"); // $NON-NLS-1$
+    }
+
+    public boolean absolute(int p0) throws SQLException {
+        throw new UnsupportedOperationException("absolute"); // $NON-NLS-1$
+    }
+
+    public boolean relative(int p0) throws SQLException {
+        throw new UnsupportedOperationException("relative"); // $NON-NLS-1$
+    }
+
+    public boolean previous() throws SQLException {
+        throw new UnsupportedOperationException("previous"); // $NON-NLS-1$
+    }
+
+    public void setFetchDirection(int p0) throws SQLException {
+        throw new UnsupportedOperationException("setFetchDirection"); // $NON-NLS-1$
+    }
+
+    public int getFetchDirection() throws SQLException {
+        throw new UnsupportedOperationException("getFetchDirection"); // $NON-NLS-1$
+    }
+
+    public void setFetchSize(int p0) throws SQLException {
+        throw new UnsupportedOperationException("setFetchSize"); // $NON-NLS-1$
+    }
+
+    public int getFetchSize() throws SQLException {
+        throw new UnsupportedOperationException("getFetchSize"); // $NON-NLS-1$
+    }
+
+    public int getType() throws SQLException {
+        throw new UnsupportedOperationException("getType"); // $NON-NLS-1$
+    }
+
+    public int getConcurrency() throws SQLException {
+        throw new UnsupportedOperationException("getConcurrency"); // $NON-NLS-1$
+    }
+
+    public boolean rowUpdated() throws SQLException {
+        throw new UnsupportedOperationException("rowUpdated"); // $NON-NLS-1$
+    }
+
+    public boolean rowInserted() throws SQLException {
+        throw new UnsupportedOperationException("rowInserted"); // $NON-NLS-1$
+    }
+
+    public boolean rowDeleted() throws SQLException {
+        throw new UnsupportedOperationException("rowDeleted"); // $NON-NLS-1$
+    }
+
+    public void updateNull(int p0) throws SQLException {
+        throw new UnsupportedOperationException("updateNull"); // $NON-NLS-1$
+    }
+
+    public void updateBoolean(int p0, boolean p1) throws SQLException {
+        throw new UnsupportedOperationException("updateBoolean"); // $NON-NLS-1$
+    }
+
+    public void updateByte(int p0, byte p1) throws SQLException {
+        throw new UnsupportedOperationException("updateByte"); // $NON-NLS-1$
+    }
+
+    public void updateShort(int p0, short p1) throws SQLException {
+        throw new UnsupportedOperationException("updateShort"); // $NON-NLS-1$
+    }
+
+    public void updateInt(int p0, int p1) throws SQLException {
+        throw new UnsupportedOperationException("updateInt"); // $NON-NLS-1$
+    }
+
+    public void updateLong(int p0, long p1) throws SQLException {
+        throw new UnsupportedOperationException("updateLong"); // $NON-NLS-1$
+    }
+
+    public void updateFloat(int p0, float p1) throws SQLException {
+        throw new UnsupportedOperationException("updateFloat"); // $NON-NLS-1$
+    }
+
+    public void updateDouble(int p0, double p1) throws SQLException {
+        throw new UnsupportedOperationException("updateDouble"); // $NON-NLS-1$
+    }
+
+    public void updateBigDecimal(int p0, BigDecimal p1) throws SQLException {
+        throw new UnsupportedOperationException("updateBigDecimal"); // $NON-NLS-1$
+    }
+
+    public void updateString(int p0, String p1) throws SQLException {
+        throw new UnsupportedOperationException("updateString"); // $NON-NLS-1$
+    }
+
+    public void updateBytes(int p0, byte[] p1) throws SQLException {
+        throw new UnsupportedOperationException("updateBytes"); // $NON-NLS-1$
+    }
+
+    public void updateDate(int p0, Date p1) throws SQLException {
+        throw new UnsupportedOperationException("updateDate"); // $NON-NLS-1$
+    }
+
+    public void updateTime(int p0, Time p1) throws SQLException {
+        throw new UnsupportedOperationException("updateTime"); // $NON-NLS-1$
+    }
+
+    public void updateTimestamp(int p0, Timestamp p1) throws SQLException {
+        throw new UnsupportedOperationException("updateTimestamp"); // $NON-NLS-1$
+    }
+
+    public void updateAsciiStream(int p0, InputStream p1, int p2) throws SQLException {
+        throw new UnsupportedOperationException("updateAsciiStream"); // $NON-NLS-1$
+    }
+
+    public void updateBinaryStream(int p0, InputStream p1, int p2) throws SQLException {
+        throw new UnsupportedOperationException("updateBinaryStream"); // $NON-NLS-1$
+    }
+
+    public void updateCharacterStream(int p0, Reader p1, int p2) throws SQLException {
+        throw new UnsupportedOperationException("updateCharacterStream"); // $NON-NLS-1$
+    }
+
+    public void updateObject(int p0, Object p1, int p2) throws SQLException {
+        throw new UnsupportedOperationException("updateObject"); // $NON-NLS-1$
+    }
+
+    public void updateObject(int p0, Object p1) throws SQLException {
+        throw new UnsupportedOperationException("updateObject"); // $NON-NLS-1$
+    }
+
+    public void updateNull(String p0) throws SQLException {
+        throw new UnsupportedOperationException("updateNull"); // $NON-NLS-1$
+    }
+
+    public void updateBoolean(String p0, boolean p1) throws SQLException {
+        throw new UnsupportedOperationException("updateBoolean"); // $NON-NLS-1$
+    }
+
+    public void updateByte(String p0, byte p1) throws SQLException {
+        throw new UnsupportedOperationException("updateByte"); // $NON-NLS-1$
+    }
+
+    public void updateShort(String p0, short p1) throws SQLException {
+        throw new UnsupportedOperationException("updateShort"); // $NON-NLS-1$
+    }
+
+    public void updateInt(String p0, int p1) throws SQLException {
+        throw new UnsupportedOperationException("updateInt"); // $NON-NLS-1$
+    }
+
+    public void updateLong(String p0, long p1) throws SQLException {
+        throw new UnsupportedOperationException("updateLong"); // $NON-NLS-1$
+    }
+
+    public void updateFloat(String p0, float p1) throws SQLException {
+        throw new UnsupportedOperationException("updateFloat"); // $NON-NLS-1$
+    }
+
+    public void updateDouble(String p0, double p1) throws SQLException {
+        throw new UnsupportedOperationException("updateDouble"); // $NON-NLS-1$
+    }
+
+    public void updateBigDecimal(String p0, BigDecimal p1) throws SQLException {
+        throw new UnsupportedOperationException("updateBigDecimal"); // $NON-NLS-1$
+    }
+
+    public void updateString(String p0, String p1) throws SQLException {
+        throw new UnsupportedOperationException("updateString"); // $NON-NLS-1$
+    }
+
+    public void updateBytes(String p0, byte[] p1) throws SQLException {
+        throw new UnsupportedOperationException("updateBytes"); // $NON-NLS-1$
+    }
+
+    public void updateDate(String p0, Date p1) throws SQLException {
+        throw new UnsupportedOperationException("updateDate"); // $NON-NLS-1$
+    }
+
+    public void updateTime(String p0, Time p1) throws SQLException {
+        throw new UnsupportedOperationException("updateTime"); // $NON-NLS-1$
+    }
+
+    public void updateTimestamp(String p0, Timestamp p1) throws SQLException {
+        throw new UnsupportedOperationException("updateTimestamp"); // $NON-NLS-1$
+    }
+
+    public void updateAsciiStream(String p0, InputStream p1, int p2) throws SQLException {
+        throw new UnsupportedOperationException("updateAsciiStream"); // $NON-NLS-1$
+    }
+
+    public void updateBinaryStream(String p0, InputStream p1, int p2) throws SQLException {
+        throw new UnsupportedOperationException("updateBinaryStream"); // $NON-NLS-1$
+    }
+
+    public void updateCharacterStream(String p0, Reader p1, int p2) throws SQLException {
+        throw new UnsupportedOperationException("updateCharacterStream"); // $NON-NLS-1$
+    }
+
+    public void updateObject(String p0, Object p1, int p2) throws SQLException {
+        throw new UnsupportedOperationException("updateObject"); // $NON-NLS-1$
+    }
+
+    public void updateObject(String p0, Object p1) throws SQLException {
+        throw new UnsupportedOperationException("updateObject"); // $NON-NLS-1$
+    }
+
+    public void insertRow() throws SQLException {
+        throw new UnsupportedOperationException("insertRow"); // $NON-NLS-1$
+    }
+
+    public void updateRow() throws SQLException {
+        throw new UnsupportedOperationException("updateRow"); // $NON-NLS-1$
+    }
+
+    public void deleteRow() throws SQLException {
+        throw new UnsupportedOperationException("deleteRow"); // $NON-NLS-1$
+    }
+
+    public void refreshRow() throws SQLException {
+        throw new UnsupportedOperationException("refreshRow"); // $NON-NLS-1$
+    }
+
+    public void cancelRowUpdates() throws SQLException {
+        throw new UnsupportedOperationException("cancelRowUpdates"); // $NON-NLS-1$
+    }
+
+    public void moveToInsertRow() throws SQLException {
+        throw new UnsupportedOperationException("moveToInsertRow"); // $NON-NLS-1$
+    }
+
+    public void moveToCurrentRow() throws SQLException {
+        throw new UnsupportedOperationException("moveToCurrentRow"); // $NON-NLS-1$
+    }
+
+    public Statement getStatement() throws SQLException {
+        throw new UnsupportedOperationException("getStatement"); // $NON-NLS-1$
+    }
+
+    public Object getObject(int p0, Map<String, Class<?>> p1) throws SQLException {
+        throw new UnsupportedOperationException("getObject"); // $NON-NLS-1$
+    }
+
+    public Ref getRef(int p0) throws SQLException {
+        throw new UnsupportedOperationException("getRef"); // $NON-NLS-1$
+    }
+
+    public Blob getBlob(int p0) throws SQLException {
+        throw new UnsupportedOperationException("getBlob"); // $NON-NLS-1$
+    }
+
+    public Clob getClob(int p0) throws SQLException {
+        throw new UnsupportedOperationException("getClob"); // $NON-NLS-1$
+    }
+
+    public Array getArray(int p0) throws SQLException {
+        throw new UnsupportedOperationException("getArray"); // $NON-NLS-1$
+    }
+
+    public Object getObject(String p0, Map<String, Class<?>> p1) throws SQLException {
+        throw new UnsupportedOperationException("getObject"); // $NON-NLS-1$
+    }
+
+    public Ref getRef(String p0) throws SQLException {
+        throw new UnsupportedOperationException("getRef"); // $NON-NLS-1$
+    }
+
+    public Blob getBlob(String p0) throws SQLException {
+        throw new UnsupportedOperationException("getBlob"); // $NON-NLS-1$
+    }
+
+    public Clob getClob(String p0) throws SQLException {
+        throw new UnsupportedOperationException("getClob"); // $NON-NLS-1$
+    }
+
+    public Array getArray(String p0) throws SQLException {
+        throw new UnsupportedOperationException("getArray"); // $NON-NLS-1$
+    }
+
+    public Date getDate(int p0, Calendar p1) throws SQLException {
+        throw new UnsupportedOperationException("getDate"); // $NON-NLS-1$
+    }
+
+    public Date getDate(String p0, Calendar p1) throws SQLException {
+        throw new UnsupportedOperationException("getDate"); // $NON-NLS-1$
+    }
+
+    public Time getTime(int p0, Calendar p1) throws SQLException {
+        throw new UnsupportedOperationException("getTime"); // $NON-NLS-1$
+    }
+
+    public Time getTime(String p0, Calendar p1) throws SQLException {
+        throw new UnsupportedOperationException("getTime"); // $NON-NLS-1$
+    }
+
+    public Timestamp getTimestamp(int p0, Calendar p1) throws SQLException {
+        throw new UnsupportedOperationException("getTimestamp"); // $NON-NLS-1$
+    }
+
+    public Timestamp getTimestamp(String p0, Calendar p1) throws SQLException {
+        throw new UnsupportedOperationException("getTimestamp"); // $NON-NLS-1$
+    }
+
+    public URL getURL(int p0) throws SQLException {
+        throw new UnsupportedOperationException("getURL"); // $NON-NLS-1$
+    }
+
+    public URL getURL(String p0) throws SQLException {
+        throw new UnsupportedOperationException("getURL"); // $NON-NLS-1$
+    }
+
+    public void updateRef(int p0, Ref p1) throws SQLException {
+        throw new UnsupportedOperationException("updateRef"); // $NON-NLS-1$
+    }
+
+    public void updateRef(String p0, Ref p1) throws SQLException {
+        throw new UnsupportedOperationException("updateRef"); // $NON-NLS-1$
+    }
+
+    public void updateBlob(int p0, Blob p1) throws SQLException {
+        throw new UnsupportedOperationException("updateBlob"); // $NON-NLS-1$
+    }
+
+    public void updateBlob(String p0, Blob p1) throws SQLException {
+        throw new UnsupportedOperationException("updateBlob"); // $NON-NLS-1$
+    }
+
+    public void updateClob(int p0, Clob p1) throws SQLException {
+        throw new UnsupportedOperationException("updateClob"); // $NON-NLS-1$
+    }
+
+    public void updateClob(String p0, Clob p1) throws SQLException {
+        throw new UnsupportedOperationException("updateClob"); // $NON-NLS-1$
+    }
+
+    public void updateArray(int p0, Array p1) throws SQLException {
+        throw new UnsupportedOperationException("updateArray"); // $NON-NLS-1$
+    }
+
+    public void updateArray(String p0, Array p1) throws SQLException {
+        throw new UnsupportedOperationException("updateArray"); // $NON-NLS-1$
+    }
+
+    public RowId getRowId(int p0) throws SQLException {
+        throw new UnsupportedOperationException("getRowId"); // $NON-NLS-1$
+    }
+
+    public RowId getRowId(String p0) throws SQLException {
+        throw new UnsupportedOperationException("getRowId"); // $NON-NLS-1$
+    }
+
+    public void updateRowId(int p0, RowId p1) throws SQLException {
+        throw new UnsupportedOperationException("updateRowId"); // $NON-NLS-1$
+    }
+
+    public void updateRowId(String p0, RowId p1) throws SQLException {
+        throw new UnsupportedOperationException("updateRowId"); // $NON-NLS-1$
+    }
+
+    public int getHoldability() throws SQLException {
+        throw new UnsupportedOperationException("getHoldability"); // $NON-NLS-1$
+    }
+
+    public boolean isClosed() throws SQLException {
+        throw new UnsupportedOperationException("isClosed"); // $NON-NLS-1$
+    }
+
+    public void updateNString(int p0, String p1) throws SQLException {
+        throw new UnsupportedOperationException("updateNString"); // $NON-NLS-1$
+    }
+
+    public void updateNString(String p0, String p1) throws SQLException {
+        throw new UnsupportedOperationException("updateNString"); // $NON-NLS-1$
+    }
+
+    public void updateNClob(int p0, NClob p1) throws SQLException {
+        throw new UnsupportedOperationException("updateNClob"); // $NON-NLS-1$
+    }
+
+    public void updateNClob(String p0, NClob p1) throws SQLException {
+        throw new UnsupportedOperationException("updateNClob"); // $NON-NLS-1$
+    }
+
+    public NClob getNClob(int p0) throws SQLException {
+        throw new UnsupportedOperationException("getNClob"); // $NON-NLS-1$
+    }
+
+    public NClob getNClob(String p0) throws SQLException {
+        throw new UnsupportedOperationException("getNClob"); // $NON-NLS-1$
+    }
+
+    public SQLXML getSQLXML(int p0) throws SQLException {
+        throw new UnsupportedOperationException("getSQLXML"); // $NON-NLS-1$
+    }
+
+    public SQLXML getSQLXML(String p0) throws SQLException {
+        throw new UnsupportedOperationException("getSQLXML"); // $NON-NLS-1$
+    }
+
+    public void updateSQLXML(int p0, SQLXML p1) throws SQLException {
+        throw new UnsupportedOperationException("updateSQLXML"); // $NON-NLS-1$
+    }
+
+    public void updateSQLXML(String p0, SQLXML p1) throws SQLException {
+        throw new UnsupportedOperationException("updateSQLXML"); // $NON-NLS-1$
+    }
+
+    public String getNString(int p0) throws SQLException {
+        throw new UnsupportedOperationException("getNString"); // $NON-NLS-1$
+    }
+
+    public String getNString(String p0) throws SQLException {
+        throw new UnsupportedOperationException("getNString"); // $NON-NLS-1$
+    }
+
+    public Reader getNCharacterStream(int p0) throws SQLException {
+        throw new UnsupportedOperationException("getNCharacterStream"); // $NON-NLS-1$
+    }
+
+    public Reader getNCharacterStream(String p0) throws SQLException {
+        throw new UnsupportedOperationException("getNCharacterStream"); // $NON-NLS-1$
+    }
+
+    public void updateNCharacterStream(int p0, Reader p1, long p2) throws SQLException {
+        throw new UnsupportedOperationException("updateNCharacterStream"); // $NON-NLS-1$
+    }
+
+    public void updateNCharacterStream(String p0, Reader p1, long p2) throws SQLException {
+        throw new UnsupportedOperationException("updateNCharacterStream"); // $NON-NLS-1$
+    }
+
+    public void updateAsciiStream(int p0, InputStream p1, long p2) throws SQLException {
+        throw new UnsupportedOperationException("updateAsciiStream"); // $NON-NLS-1$
+    }
+
+    public void updateBinaryStream(int p0, InputStream p1, long p2) throws SQLException {
+        throw new UnsupportedOperationException("updateBinaryStream"); // $NON-NLS-1$
+    }
+
+    public void updateCharacterStream(int p0, Reader p1, long p2) throws SQLException {
+        throw new UnsupportedOperationException("updateCharacterStream"); // $NON-NLS-1$
+    }
+
+    public void updateAsciiStream(String p0, InputStream p1, long p2) throws SQLException {
+        throw new UnsupportedOperationException("updateAsciiStream"); // $NON-NLS-1$
+    }
+
+    public void updateBinaryStream(String p0, InputStream p1, long p2) throws SQLException {
+        throw new UnsupportedOperationException("updateBinaryStream"); // $NON-NLS-1$
+    }
+
+    public void updateCharacterStream(String p0, Reader p1, long p2) throws SQLException {
+        throw new UnsupportedOperationException("updateCharacterStream"); // $NON-NLS-1$
+    }
+
+    public void updateBlob(int p0, InputStream p1, long p2) throws SQLException {
+        throw new UnsupportedOperationException("updateBlob"); // $NON-NLS-1$
+    }
+
+    public void updateBlob(String p0, InputStream p1, long p2) throws SQLException {
+        throw new UnsupportedOperationException("updateBlob"); // $NON-NLS-1$
+    }
+
+    public void updateClob(int p0, Reader p1, long p2) throws SQLException {
+        throw new UnsupportedOperationException("updateClob"); // $NON-NLS-1$
+    }
+
+    public void updateClob(String p0, Reader p1, long p2) throws SQLException {
+        throw new UnsupportedOperationException("updateClob"); // $NON-NLS-1$
+    }
+
+    public void updateNClob(int p0, Reader p1, long p2) throws SQLException {
+        throw new UnsupportedOperationException("updateNClob"); // $NON-NLS-1$
+    }
+
+    public void updateNClob(String p0, Reader p1, long p2) throws SQLException {
+        throw new UnsupportedOperationException("updateNClob"); // $NON-NLS-1$
+    }
+
+    public void updateNCharacterStream(int p0, Reader p1) throws SQLException {
+        throw new UnsupportedOperationException("updateNCharacterStream"); // $NON-NLS-1$
+    }
+
+    public void updateNCharacterStream(String p0, Reader p1) throws SQLException {
+        throw new UnsupportedOperationException("updateNCharacterStream"); // $NON-NLS-1$
+    }
+
+    public void updateAsciiStream(int p0, InputStream p1) throws SQLException {
+        throw new UnsupportedOperationException("updateAsciiStream"); // $NON-NLS-1$
+    }
+
+    public void updateBinaryStream(int p0, InputStream p1) throws SQLException {
+        throw new UnsupportedOperationException("updateBinaryStream"); // $NON-NLS-1$
+    }
+
+    public void updateCharacterStream(int p0, Reader p1) throws SQLException {
+        throw new UnsupportedOperationException("updateCharacterStream"); // $NON-NLS-1$
+    }
+
+    public void updateAsciiStream(String p0, InputStream p1) throws SQLException {
+        throw new UnsupportedOperationException("updateAsciiStream"); // $NON-NLS-1$
+    }
+
+    public void updateBinaryStream(String p0, InputStream p1) throws SQLException {
+        throw new UnsupportedOperationException("updateBinaryStream"); // $NON-NLS-1$
+    }
+
+    public void updateCharacterStream(String p0, Reader p1) throws SQLException {
+        throw new UnsupportedOperationException("updateCharacterStream"); // $NON-NLS-1$
+    }
+
+    public void updateBlob(int p0, InputStream p1) throws SQLException {
+        throw new UnsupportedOperationException("updateBlob"); // $NON-NLS-1$
+    }
+
+    public void updateBlob(String p0, InputStream p1) throws SQLException {
+        throw new UnsupportedOperationException("updateBlob"); // $NON-NLS-1$
+    }
+
+    public void updateClob(int p0, Reader p1) throws SQLException {
+        throw new UnsupportedOperationException("updateClob"); // $NON-NLS-1$
+    }
+
+    public void updateClob(String p0, Reader p1) throws SQLException {
+        throw new UnsupportedOperationException("updateClob"); // $NON-NLS-1$
+    }
+
+    public void updateNClob(int p0, Reader p1) throws SQLException {
+        throw new UnsupportedOperationException("updateNClob"); // $NON-NLS-1$
+    }
+
+    public void updateNClob(String p0, Reader p1) throws SQLException {
+        throw new UnsupportedOperationException("updateNClob"); // $NON-NLS-1$
+    }
+
+    public <T> T getObject(int p0, Class<T> p1) throws SQLException {
+        throw new UnsupportedOperationException("getObject"); // $NON-NLS-1$
+    }
+
+    public <T> T getObject(String p0, Class<T> p1) throws SQLException {
+        throw new UnsupportedOperationException("getObject"); // $NON-NLS-1$
+    }
+
+    public <T> T unwrap(Class<T> p0) throws SQLException {
+        throw new UnsupportedOperationException("unwrap"); // $NON-NLS-1$
+    }
+
+    public boolean isWrapperFor(Class<?> p0) throws SQLException {
+        throw new UnsupportedOperationException("isWrapperFor"); // $NON-NLS-1$
+    }
+}
@@ -0,0 +1,105 @@
+package org.apache.jmeter.protocol.jdbc.sampler.stub;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * Base class for in-memory ResultSetMetaData stubs.
+ * Every method throws UnsupportedOperationException unless overridden.
+ * Generated from the java.sql interface.
+ */
+@SuppressWarnings("deprecation")
+public abstract class AbstractResultSetMetaData implements ResultSetMetaData {
+
+    public int getColumnCount() throws SQLException {
+        throw new UnsupportedOperationException("getColumnCount"); // $NON-NLS-1$
+    }
+
+    public boolean isAutoIncrement(int p0) throws SQLException {
+        throw new UnsupportedOperationException("isAutoIncrement"); // $NON-NLS-1$
+    }
+
+    public boolean isCaseSensitive(int p0) throws SQLException {
+        throw new UnsupportedOperationException("isCaseSensitive"); // $NON-NLS-1$
+    }
+
+    public boolean isSearchable(int p0) throws SQLException {
+        throw new UnsupportedOperationException("isSearchable"); // $NON-NLS-1$
+    }
+
+    public boolean isCurrency(int p0) throws SQLException {
+        throw new UnsupportedOperationException("isCurrency"); // $NON-NLS-1$
+    }
+
+    public int isNullable(int p0) throws SQLException {
+        throw new UnsupportedOperationException("isNullable"); // $NON-NLS-1$
+    }
+
+    public boolean isSigned(int p0) throws SQLException {
+        throw new UnsupportedOperationException("isSigned"); // $NON-NLS-1$
+    }
+
+    public int getColumnDisplaySize(int p0) throws SQLException {
+        throw new UnsupportedOperationException("getColumnDisplaySize"); // $NON-NLS-1$
+    }
+
+    public String getColumnLabel(int p0) throws SQLException {
+        throw new UnsupportedOperationException("getColumnLabel"); // $NON-NLS-1$
+    }
+
+    public String getColumnName(int p0) throws SQLException {
+        throw new UnsupportedOperationException("getColumnName"); // $NON-NLS-1$
+    }
+
+    public String getSchemaName(int p0) throws SQLException {
+        throw new UnsupportedOperationException("getSchemaName"); // $NON-NLS-1$
+    }
+
+    public int getPrecision(int p0) throws SQLException {
+        throw new UnsupportedOperationException("getPrecision"); // $NON-NLS-1$
+    }
+
+    public int getScale(int p0) throws SQLException {
+        throw new UnsupportedOperationException("getScale"); // $NON-NLS-1$
+    }
+
+    public String getTableName(int p0) throws SQLException {
+        throw new UnsupportedOperationException("getTableName"); // $NON-NLS-1$
+    }
+
+    public String getCatalogName(int p0) throws SQLException {
+        throw new UnsupportedOperationException("getCatalogName"); // $NON-NLS-1$
+    }
+
+    public int getColumnType(int p0) throws SQLException {
+        throw new UnsupportedOperationException("getColumnType"); // $NON-NLS-1$
+    }
+
+    public String getColumnTypeName(int p0) throws SQLException {
+        throw new UnsupportedOperationException("getColumnTypeName"); // $NON-NLS-1$
+    }
+
+    public boolean isReadOnly(int p0) throws SQLException {
+        throw new UnsupportedOperationException("isReadOnly"); // $NON-NLS-1$
+    }
+
+    public boolean isWritable(int p0) throws SQLException {
+        throw new UnsupportedOperationException("isWritable"); // $NON-NLS-1$
+    }
+
+    public boolean isDefinitelyWritable(int p0) throws SQLException {
+        throw new UnsupportedOperationException("isDefinitelyWritable"); // $NON-NLS-1$
+    }
+
+    public String getColumnClassName(int p0) throws SQLException {
+        throw new UnsupportedOperationException("getColumnClassName"); // $NON-NLS-1$
+    }
+
+    public <T> T unwrap(Class<T> p0) throws SQLException {
+        throw new UnsupportedOperationException("unwrap"); // $NON-NLS-1$
+    }
+
+    public boolean isWrapperFor(Class<?> p0) throws SQLException {
+        throw new UnsupportedOperationException("isWrapperFor"); // $NON-NLS-1$
+    }
+}
@@ -0,0 +1,52 @@
+package org.apache.jmeter.protocol.jdbc.sampler.stub;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Connection whose statements all return the same {@link StubData}. Each
+ * call to prepareStatement returns a new statement, as a driver would.
+ */
+public class StubConnection extends AbstractConnection {
+
+    private final StubData data;
+
+    private boolean closed;
+
+    public StubConnection(StubData data) {
+        this.data = data;
+    }
+
+    @Override
+    public Statement createStatement() throws SQLException {
+        return new StubStatement(data);
+    }
+
+    @Override
+    public Statement createStatement(int resultSetType,
+            int resultSetConcurrency) throws SQLException {
+        return new StubStatement(data);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql) throws SQLException {
+        return new StubStatement(data);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int resultSetType,
+            int resultSetConcurrency) throws SQLException {
+        return new StubStatement(data);
+    }
+
+    @Override
+    public boolean isClosed() throws SQLException {
+        return closed;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        closed = true;
+    }
+}
@@ -0,0 +1,168 @@
+package org.apache.jmeter.protocol.jdbc.sampler.stub;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Random;
+
+/**
+ * Rows and column definitions served by the in-memory result sets.
+ * <p>
+ * Values are generated once from a fixed seed, so every iteration of a
+ * benchmark reads exactly the same data and no allocation happens in the
+ * stubs themselves.
+ */
+public final class StubData {
+
+    /** Every column is an INTEGER */
+    public static final String TYPES_INTEGER = "INTEGER"; // $NON-NLS-1$
+
+    /** Every column is a VARCHAR */
+    public static final String TYPES_VARCHAR = "VARCHAR"; // $NON-NLS-1$
+
+    /** Columns cycle through the common types, including nulls */
+    public static final String TYPES_MIXED = "MIXED"; // $NON-NLS-1$
+
+    private static final int[] MIXED = { Types.INTEGER, Types.VARCHAR,
+            Types.DOUBLE, Types.TIMESTAMP, Types.BIGINT, Types.DECIMAL,
+            Types.VARBINARY, Types.VARCHAR };
+
+    private final String[] names;
+
+    private final int[] types;
+
+    private final Object[][] rows;
+
+    private StubData(String[] names, int[] types, Object[][] rows) {
+        this.names = names;
+        this.types = types;
+        this.rows = rows;
+    }
+
+    /**
+     * @param rows
+     *            number of rows
+     * @param columns
+     *            number of columns
+     * @param typeMix
+     *            one of the TYPES_ constants
+     * @return the generated data
+     */
+    public static StubData create(int rows, int columns, String typeMix) {
+        String[] names = new String[columns];
+        int[] types = new int[columns];
+        for (int c = 0; c < columns; c++) {
+            names[c] = "COL_" + (c + 1); // $NON-NLS-1$
+            if (TYPES_INTEGER.equals(typeMix)) {
+                types[c] = Types.INTEGER;
+            } else if (TYPES_VARCHAR.equals(typeMix)) {
+                types[c] = Types.VARCHAR;
+            } else if (TYPES_MIXED.equals(typeMix)) {
+                types[c] = MIXED[c % MIXED.length];
+            } else {
+                throw new IllegalArgumentException("Unknown type mix: " // $NON-NLS-1$
+                        + typeMix);
+            }
+        }
+        Random random = new Random(42);
+        Object[][] values = new Object[rows][columns];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                values[r][c] = value(random, types[c], r, c);
+            }
+        }
+        return new StubData(names, types, values);
+    }
+
+    private static Object value(Random random, int type, int row, int column) {
+        // A few nulls in the mixed columns, as real tables have
+        if (type != Types.INTEGER && (row + column) % 17 == 0) {
+            return null;
+        }
+        switch (type) {
+        case Types.INTEGER:
+            return Integer.valueOf(random.nextInt(1000000));
+        case Types.BIGINT:
+            return Long.valueOf(random.nextLong());
+        case Types.DOUBLE:
+            return Double.valueOf(random.nextDouble() * 10000);
+        case Types.DECIMAL:
+            return BigDecimal.valueOf(random.nextInt(10000000), 2);
+        case Types.TIMESTAMP:
+            return new Timestamp(1400000000000L + random.nextInt() * 1000L);
+        case Types.VARBINARY: {
+            byte[] bytes = new byte[16];
+            random.nextBytes(bytes);
+            return bytes;
+        }
+        default: {
+            // Mostly ASCII with the odd accented character
+            StringBuilder sb = new StringBuilder(24);
+            int length = 8 + random.nextInt(16);
+            for (int i = 0; i < length; i++) {
+                sb.append(i == 5 && row % 10 == 0 ? '\u00e9'
+                        : (char) ('a' + random.nextInt(26)));
+            }
+            return sb.toString();
+        }
+        }
+    }
+
+    public int getRowCount() {
+        return rows.length;
+    }
+
+    public int getColumnCount() {
+        return names.length;
+    }
+
+    /**
+     * @param column
+     *            column number, starting at 1
+     */
+    public String getColumnName(int column) {
+        return names[column - 1];
+    }
+
+    /**
+     * @param column
+     *            column number, starting at 1
+     */
+    public int getColumnType(int column) {
+        return types[column - 1];
+    }
+
+    /**
+     * @param column
+     *            column number, starting at 1
+     * @return the class of the values of this column
+     */
+    public String getColumnClassName(int column) {
+        switch (types[column - 1]) {
+        case Types.INTEGER:
+            return Integer.class.getName();
+        case Types.BIGINT:
+            return Long.class.getName();
+        case Types.DOUBLE:
+            return Double.class.getName();
+        case Types.DECIMAL:
+            return BigDecimal.class.getName();
+        case Types.TIMESTAMP:
+            return Timestamp.class.getName();
+        case Types.VARBINARY:
+            return byte[].class.getName();
+        default:
+            return String.class.getName();
+        }
+    }
+
+    /**
+     * @param row
+     *            row index, starting at 0
+     * @param column
+     *            column number, starting at 1
+     */
+    public Object getValue(int row, int column) {
+        return rows[row][column - 1];
+    }
+}
@@ -0,0 +1,109 @@
+package org.apache.jmeter.protocol.jdbc.sampler.stub;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * Forward only result set over a {@link StubData}. The getters convert the
+ * stored values the way a typical driver would.
+ */
+public class StubResultSet extends AbstractResultSet {
+
+    private final StubData data;
+
+    private final StubResultSetMetaData meta;
+
+    private int row = -1;
+
+    private boolean wasNull;
+
+    public StubResultSet(StubData data) {
+        this.data = data;
+        this.meta = new StubResultSetMetaData(data);
+    }
+
+    /**
+     * Moves back before the first row, so the instance can be handed out
+     * again.
+     *
+     * @return this result set
+     */
+    public StubResultSet rewind() {
+        row = -1;
+        return this;
+    }
+
+    @Override
+    public boolean next() throws SQLException {
+        if (row + 1 < data.getRowCount()) {
+            row++;
+            return true;
+        }
+        row = data.getRowCount();
+        return false;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        // Reused
+    }
+
+    @Override
+    public ResultSetMetaData getMetaData() throws SQLException {
+        return meta;
+    }
+
+    @Override
+    public boolean wasNull() throws SQLException {
+        return wasNull;
+    }
+
+    @Override
+    public Object getObject(int column) throws SQLException {
+        if (row < 0 || row >= data.getRowCount()) {
+            throw new SQLException("Not on a row"); // $NON-NLS-1$
+        }
+        Object value = data.getValue(row, column);
+        wasNull = value == null;
+        return value;
+    }
+
+    @Override
+    public String getString(int column) throws SQLException {
+        Object value = getObject(column);
+        return value == null ? null : value.toString();
+    }
+
+    @Override
+    public long getLong(int column) throws SQLException {
+        Object value = getObject(column);
+        return value == null ? 0 : ((Number) value).longValue();
+    }
+
+    @Override
+    public int getInt(int column) throws SQLException {
+        return (int) getLong(column);
+    }
+
+    @Override
+    public double getDouble(int column) throws SQLException {
+        Object value = getObject(column);
+        return value == null ? 0 : ((Number) value).doubleValue();
+    }
+
+    @Override
+    public float getFloat(int column) throws SQLException {
+        return (float) getDouble(column);
+    }
+
+    @Override
+    public boolean getBoolean(int column) throws SQLException {
+        Object value = getObject(column);
+        return value != null && ((Boolean) value).booleanValue();
+    }
+
+    @Override
+    public byte[] getBytes(int column) throws SQLException {
+        return (byte[]) getObject(column);
+    }
+}
@@ -0,0 +1,45 @@
+package org.apache.jmeter.protocol.jdbc.sampler.stub;
+
+import java.sql.SQLException;
+
+/**
+ * Metadata describing the columns of a {@link StubData}.
+ */
+public class StubResultSetMetaData extends AbstractResultSetMetaData {
+
+    private final StubData data;
+
+    public StubResultSetMetaData(StubData data) {
+        this.data = data;
+    }
+
+    @Override
+    public int getColumnCount() throws SQLException {
+        return data.getColumnCount();
+    }
+
+    @Override
+    public String getColumnName(int column) throws SQLException {
+        return data.getColumnName(column);
+    }
+
+    @Override
+    public String getColumnLabel(int column) throws SQLException {
+        return data.getColumnName(column);
+    }
+
+    @Override
+    public int getColumnType(int column) throws SQLException {
+        return data.getColumnType(column);
+    }
+
+    @Override
+    public String getColumnClassName(int column) throws SQLException {
+        return data.getColumnClassName(column);
+    }
+
+    @Override
+    public boolean isSigned(int column) throws SQLException {
+        return true;
+    }
+}
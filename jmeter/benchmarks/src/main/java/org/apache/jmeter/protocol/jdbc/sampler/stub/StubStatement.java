@@ -0,0 +1,145 @@
+package org.apache.jmeter.protocol.jdbc.sampler.stub;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+
+/**
+ * Statement and PreparedStatement returning the same in-memory result set
+ * for every query. Bound parameters are folded into a checksum rather than
+ * stored, so binding allocates nothing in the stub.
+ */
+public class StubStatement extends AbstractPreparedStatement {
+
+    private final StubResultSet resultSet;
+
+    private long checksum;
+
+    private int maxRows;
+
+    private int fetchSize;
+
+    public StubStatement(StubData data) {
+        this.resultSet = new StubResultSet(data);
+    }
+
+    /**
+     * @return a value derived from every parameter bound so far, for the
+     *         benchmarks to consume
+     */
+    public long getChecksum() {
+        return checksum;
+    }
+
+    @Override
+    public ResultSet executeQuery() throws SQLException {
+        return resultSet.rewind();
+    }
+
+    @Override
+    public ResultSet executeQuery(String sql) throws SQLException {
+        return resultSet.rewind();
+    }
+
+    @Override
+    public void close() throws SQLException {
+        // Nothing to release
+    }
+
+    @Override
+    public void setMaxRows(int max) throws SQLException {
+        maxRows = max;
+    }
+
+    @Override
+    public int getMaxRows() throws SQLException {
+        return maxRows;
+    }
+
+    @Override
+    public void setFetchSize(int rows) throws SQLException {
+        fetchSize = rows;
+    }
+
+    @Override
+    public int getFetchSize() throws SQLException {
+        return fetchSize;
+    }
+
+    @Override
+    public void clearParameters() throws SQLException {
+        checksum = 0;
+    }
+
+    private void bound(int index, long value) {
+        checksum = checksum * 31 + index + value;
+    }
+
+    private void bound(int index, Object value) {
+        bound(index, value == null ? 0 : value.hashCode());
+    }
+
+    @Override
+    public void setNull(int index, int sqlType) throws SQLException {
+        bound(index, sqlType);
+    }
+
+    @Override
+    public void setString(int index, String x) throws SQLException {
+        bound(index, x);
+    }
+
+    @Override
+    public void setInt(int index, int x) throws SQLException {
+        bound(index, x);
+    }
+
+    @Override
+    public void setLong(int index, long x) throws SQLException {
+        bound(index, x);
+    }
+
+    @Override
+    public void setDouble(int index, double x) throws SQLException {
+        bound(index, Double.doubleToLongBits(x));
+    }
+
+    @Override
+    public void setFloat(int index, float x) throws SQLException {
+        bound(index, Float.floatToIntBits(x));
+    }
+
+    @Override
+    public void setBigDecimal(int index, BigDecimal x) throws SQLException {
+        bound(index, x);
+    }
+
+    @Override
+    public void setDate(int index, Date x) throws SQLException {
+        bound(index, x);
+    }
+
+    @Override
+    public void setTime(int index, Time x) throws SQLException {
+        bound(index, x);
+    }
+
+    @Override
+    public void setTimestamp(int index, Timestamp x) throws SQLException {
+        bound(index, x);
+    }
+
+    @Override
+    public void setObject(int index, Object x, int targetSqlType)
+            throws SQLException {
+        bound(index, x);
+    }
+
+    @Override
+    public void setObject(int index, Object x) throws SQLException {
+        bound(index, x);
+    }
+}
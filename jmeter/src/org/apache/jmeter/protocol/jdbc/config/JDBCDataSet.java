@@ -0,0 +1,288 @@
+package org.apache.jmeter.protocol.jdbc.config;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.apache.jmeter.config.ConfigTestElement;
+import org.apache.jmeter.engine.event.LoopIterationEvent;
+import org.apache.jmeter.engine.event.LoopIterationListener;
+import org.apache.jmeter.protocol.jdbc.AbstractJDBCTestElement;
+import org.apache.jmeter.testbeans.TestBean;
+import org.apache.jmeter.testelement.TestStateListener;
+import org.apache.jmeter.threads.JMeterContext;
+import org.apache.jmeter.threads.JMeterVariables;
+import org.apache.jorphan.logging.LoggingManager;
+import org.apache.jorphan.util.JMeterStopThreadException;
+import org.apache.log.Logger;
+
+/**
+ * Feeds test data read from the database to the threads, the way CSV Data
+ * Set does for files.
+ * <p>
+ * The query runs once, on the first iteration of the first thread that
+ * needs it, and its rows go to a memory-mapped {@link RowStore} shared by
+ * every thread and every data set with the same pool and query. Threads
+ * then take rows without locking: in sequence (one cursor for all
+ * threads), at random, or each from its own partition of the rows. The
+ * store is deleted at test end.
+ */
+public class JDBCDataSet extends ConfigTestElement implements TestBean,
+		LoopIterationListener, TestStateListener {
+	private static final long serialVersionUID = 1L;
+
+	private static final Logger log = LoggingManager.getLoggerForClass();
+
+	private static final String EOFVALUE = // value to return at EOF
+	"<EOF>"; // $NON-NLS-1$
+
+	// Row selection (used to communicate with GUI)
+	// N.B. These must not be changed, as they are used in the JMX files
+	public static final String SELECT_SEQUENTIAL = "Sequential"; // $NON-NLS-1$
+	public static final String SELECT_RANDOM = "Random"; // $NON-NLS-1$
+	public static final String SELECT_PARTITIONED = "Per-thread partition"; // $NON-NLS-1$
+
+	/** Loaded or loading stores, by pool and query */
+	private static final ConcurrentMap<String, FutureTask<RowStore>> stores = new ConcurrentHashMap<String, FutureTask<RowStore>>();
+
+	private String dataSource = ""; // $NON-NLS-1$
+
+	private String query = ""; // $NON-NLS-1$
+
+	private String variableNames = ""; // $NON-NLS-1$
+
+	private String selection = SELECT_SEQUENTIAL;
+
+	private boolean recycle = true;
+
+	private boolean stopThread;
+
+	// State of this thread's copy
+	private transient RowStore store;
+	private transient ByteBuffer view;
+	private transient String[] vars;
+	private transient boolean unavailable;
+	private transient Random random;
+	private transient int partition;
+	private transient int partitions;
+	private transient int partitionRow;
+
+	public void iterationStart(LoopIterationEvent iterEvent) {
+		if (store == null && !unavailable) {
+			open();
+		}
+		JMeterVariables threadVars = getThreadContext().getVariables();
+		int row = store == null ? -1 : nextRow();
+		if (row < 0) {
+			if (getStopThread()) {
+				throw new JMeterStopThreadException("End of data set detected"); // $NON-NLS-1$
+			}
+			for (String var : vars) {
+				if (var.length() > 0) {
+					threadVars.put(var, EOFVALUE);
+				}
+			}
+			return;
+		}
+		for (int i = 0; i < vars.length; i++) {
+			if (vars[i].length() > 0) {
+				threadVars.put(vars[i], store.getValue(view, row, i));
+			}
+		}
+	}
+
+	/**
+	 * Gets the shared store, loading it if this thread is the first to
+	 * need it.
+	 */
+	private void open() {
+		final String pool = getDataSource();
+		final String sql = getQuery();
+		String key = pool + '\n' + sql;
+		FutureTask<RowStore> task = stores.get(key);
+		if (task == null) {
+			FutureTask<RowStore> loader = new FutureTask<RowStore>(
+					new Callable<RowStore>() {
+						public RowStore call() throws Exception {
+							return load(pool, sql);
+						}
+					});
+			task = stores.putIfAbsent(key, loader);
+			if (task == null) {
+				task = loader;
+				loader.run();
+			}
+		}
+		try {
+			store = task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			log.error("Could not load test data from " + pool + ": " // $NON-NLS-1$
+					+ e.getCause());
+		}
+		if (store == null) {
+			unavailable = true;
+			vars = splitNames(getVariableNames(), new String[0]);
+			return;
+		}
+		String[] columns = store.getColumnNames();
+		vars = splitNames(getVariableNames(), columns);
+		if (vars.length > columns.length) {
+			// Extra names would read the cells of the next row
+			String message = "JDBC Data Set '" + getName() + "' names " // $NON-NLS-1$ $NON-NLS-2$
+					+ vars.length + " variables but its query returns only " // $NON-NLS-1$
+					+ columns.length + " columns"; // $NON-NLS-1$
+			log.error(message);
+			store = null;
+			unavailable = true;
+			vars = new String[0];
+			throw new JMeterStopThreadException(message);
+		}
+		view = store.view();
+		JMeterContext context = getThreadContext();
+		if (SELECT_RANDOM.equals(selection)) {
+			random = new Random();
+		} else if (SELECT_PARTITIONED.equals(selection)) {
+			partitions = Math.max(1, context.getThreadGroup().getNumThreads());
+			partition = context.getThreadNum() % partitions;
+			partitionRow = partition;
+		}
+	}
+
+	private static RowStore load(String pool, String sql) throws Exception {
+		long start = System.currentTimeMillis();
+		Connection conn = DataSourceElement.getConnection(pool);
+		try {
+			RowStore loaded = RowStore.load(conn, sql);
+			log.info("Loaded " + loaded.getRowCount() + " rows of test data from " // $NON-NLS-1$
+					+ pool + " in " + (System.currentTimeMillis() - start) + " ms"); // $NON-NLS-1$ $NON-NLS-2$
+			return loaded;
+		} finally {
+			AbstractJDBCTestElement.close(conn);
+		}
+	}
+
+	/**
+	 * @return the next row for this thread, or -1 at the end of the data
+	 */
+	private int nextRow() {
+		int rows = store.getRowCount();
+		if (rows == 0) {
+			return -1;
+		}
+		if (random != null) {
+			return random.nextInt(rows);
+		}
+		if (partitions > 0) {
+			if (partitionRow >= rows) {
+				if (!getRecycle() || partition >= rows) {
+					return -1;
+				}
+				partitionRow = partition;
+			}
+			int row = partitionRow;
+			partitionRow += partitions;
+			return row;
+		}
+		long n = store.nextSequence();
+		if (n >= rows && !getRecycle()) {
+			return -1;
+		}
+		return (int) (n % rows);
+	}
+
+	private static String[] splitNames(String names, String[] columnNames) {
+		if (names.trim().length() == 0) {
+			return columnNames;
+		}
+		String[] split = names.split(","); // $NON-NLS-1$
+		for (int i = 0; i < split.length; i++) {
+			split[i] = split[i].trim();
+		}
+		return split;
+	}
+
+	public void testStarted() {
+	}
+
+	public void testStarted(String host) {
+		testStarted();
+	}
+
+	/**
+	 * Deletes the stores of the test; every data set ends, only the first
+	 * one finds any.
+	 */
+	public void testEnded() {
+		for (String key : stores.keySet()) {
+			FutureTask<RowStore> task = stores.remove(key);
+			if (task != null && task.isDone()) {
+				try {
+					task.get().close();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} catch (ExecutionException e) {
+					// Load failed, nothing to delete
+				}
+			}
+		}
+	}
+
+	public void testEnded(String host) {
+		testEnded();
+	}
+
+	public String getDataSource() {
+		return dataSource;
+	}
+
+	public void setDataSource(String dataSource) {
+		this.dataSource = dataSource;
+	}
+
+	public String getQuery() {
+		return query;
+	}
+
+	public void setQuery(String query) {
+		this.query = query;
+	}
+
+	public String getVariableNames() {
+		return variableNames;
+	}
+
+	public void setVariableNames(String variableNames) {
+		this.variableNames = variableNames;
+	}
+
+	public String getSelection() {
+		return selection;
+	}
+
+	public void setSelection(String selection) {
+		this.selection = selection;
+	}
+
+	public boolean getRecycle() {
+		return recycle;
+	}
+
+	public void setRecycle(boolean recycle) {
+		this.recycle = recycle;
+	}
+
+	public boolean getStopThread() {
+		return stopThread;
+	}
+
+	public void setStopThread(boolean stopThread) {
+		this.stopThread = stopThread;
+	}
+}
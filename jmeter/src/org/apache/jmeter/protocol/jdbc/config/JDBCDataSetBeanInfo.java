@@ -0,0 +1,49 @@
+package org.apache.jmeter.protocol.jdbc.config;
+
+import java.beans.PropertyDescriptor;
+
+import org.apache.jmeter.testbeans.BeanInfoSupport;
+import org.apache.jmeter.testbeans.gui.TextAreaEditor;
+
+public class JDBCDataSetBeanInfo extends BeanInfoSupport {
+
+	public JDBCDataSetBeanInfo() {
+		super(JDBCDataSet.class);
+
+		createPropertyGroup("source", // $NON-NLS-1$
+				new String[] { "dataSource", "query" }); // $NON-NLS-1$ $NON-NLS-2$
+
+		PropertyDescriptor p = property("dataSource"); // $NON-NLS-1$
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, ""); // $NON-NLS-1$
+
+		p = property("query"); // $NON-NLS-1$
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, ""); // $NON-NLS-1$
+		p.setPropertyEditorClass(TextAreaEditor.class);
+
+		createPropertyGroup("variables", new String[] { "variableNames" }); // $NON-NLS-1$ $NON-NLS-2$
+
+		p = property("variableNames"); // $NON-NLS-1$
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, ""); // $NON-NLS-1$
+
+		createPropertyGroup("selection", // $NON-NLS-1$
+				new String[] { "selection", "recycle", "stopThread" }); // $NON-NLS-1$ $NON-NLS-2$ $NON-NLS-3$
+
+		p = property("selection"); // $NON-NLS-1$
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, JDBCDataSet.SELECT_SEQUENTIAL);
+		p.setValue(NOT_OTHER, Boolean.TRUE);
+		p.setValue(TAGS, new String[] { JDBCDataSet.SELECT_SEQUENTIAL,
+				JDBCDataSet.SELECT_RANDOM, JDBCDataSet.SELECT_PARTITIONED });
+
+		p = property("recycle"); // $NON-NLS-1$
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, Boolean.TRUE);
+
+		p = property("stopThread"); // $NON-NLS-1$
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, Boolean.FALSE);
+	}
+}
@@ -0,0 +1,207 @@
+package org.apache.jmeter.protocol.jdbc.config;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.jmeter.protocol.jdbc.AbstractJDBCTestElement;
+import org.apache.jorphan.util.JOrphanUtils;
+
+/**
+ * Read-only rows of a query result, held in a memory-mapped temporary file
+ * and shared by all threads.
+ * <p>
+ * The file holds the UTF-8 bytes of every value, row by row, followed by
+ * the start offset of each value and the end offset of the last one. Reads
+ * go through a per-thread {@link #view()} of the mapping, so the rows are
+ * never copied to the heap; only the values a thread asks for are decoded.
+ */
+final class RowStore {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8"); // $NON-NLS-1$
+
+    private static final int FETCH_SIZE = 1000;
+
+    private final File file;
+
+    private final String[] columnNames;
+
+    private final int rows;
+
+    private final MappedByteBuffer data;
+
+    /** Position of the offset index in the file */
+    private final int indexStart;
+
+    /** Next row of the sequential selection, shared by all threads */
+    private final AtomicLong sequence = new AtomicLong();
+
+    private RowStore(File file, String[] columnNames, int rows,
+            MappedByteBuffer data, int indexStart) {
+        this.file = file;
+        this.columnNames = columnNames;
+        this.rows = rows;
+        this.data = data;
+        this.indexStart = indexStart;
+    }
+
+    /**
+     * Runs the query and stores its rows.
+     *
+     * @param conn
+     *            connection to run the query on
+     * @param query
+     *            the select to run
+     * @return the loaded store
+     * @throws SQLException
+     *             if the query fails
+     * @throws IOException
+     *             if the temporary file cannot be written, or would exceed
+     *             2GB
+     */
+    static RowStore load(Connection conn, String query) throws SQLException,
+            IOException {
+        File file = File.createTempFile("jmeter-jdbc-data", ".bin"); // $NON-NLS-1$ $NON-NLS-2$
+        file.deleteOnExit();
+        Statement stmt = null;
+        ResultSet rs = null;
+        DataOutputStream out = null;
+        boolean loaded = false;
+        try {
+            stmt = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY);
+            stmt.setFetchSize(FETCH_SIZE);
+            rs = stmt.executeQuery(query);
+            ResultSetMetaData meta = rs.getMetaData();
+            int columns = meta.getColumnCount();
+            String[] names = new String[columns];
+            for (int i = 0; i < columns; i++) {
+                names[i] = meta.getColumnLabel(i + 1);
+            }
+
+            out = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(file), 65536));
+            int[] offsets = new int[1024];
+            int cells = 0;
+            long size = 0;
+            int rows = 0;
+            while (rs.next()) {
+                rows++;
+                for (int i = 1; i <= columns; i++) {
+                    if (cells == offsets.length) {
+                        offsets = Arrays.copyOf(offsets, cells << 1);
+                    }
+                    offsets[cells++] = (int) size;
+                    String value = rs.getString(i);
+                    if (value != null) {
+                        byte[] bytes = value.getBytes(UTF8);
+                        size += bytes.length;
+                        // the index must still fit behind the values
+                        if (size + 4L * (cells + 1) > Integer.MAX_VALUE) {
+                            throw new IOException("Test data exceeds 2GB after " // $NON-NLS-1$
+                                    + rows + " rows"); // $NON-NLS-1$
+                        }
+                        out.write(bytes);
+                    }
+                }
+            }
+            for (int i = 0; i < cells; i++) {
+                out.writeInt(offsets[i]);
+            }
+            out.writeInt((int) size);
+            out.close();
+            out = null;
+
+            MappedByteBuffer data = map(file);
+            loaded = true;
+            return new RowStore(file, names, rows, data, (int) size);
+        } finally {
+            JOrphanUtils.closeQuietly(out);
+            AbstractJDBCTestElement.close(rs);
+            AbstractJDBCTestElement.close(stmt);
+            if (!loaded) {
+                file.delete();
+            }
+        }
+    }
+
+    private static MappedByteBuffer map(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r"); // $NON-NLS-1$
+        try {
+            FileChannel channel = raf.getChannel();
+            // The mapping stays valid once the channel is closed
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    channel.size());
+        } finally {
+            raf.close();
+        }
+    }
+
+    int getRowCount() {
+        return rows;
+    }
+
+    String[] getColumnNames() {
+        return columnNames.clone();
+    }
+
+    /**
+     * @return a view of the rows for the calling thread; views share the
+     *         mapped data but not their position
+     */
+    ByteBuffer view() {
+        return data.duplicate();
+    }
+
+    /**
+     * @return the next row number of the sequential selection, unbounded
+     */
+    long nextSequence() {
+        return sequence.getAndIncrement();
+    }
+
+    /**
+     * Decodes one value.
+     *
+     * @param view
+     *            the calling thread's view
+     * @param row
+     *            row number, starting at 0
+     * @param column
+     *            column number, starting at 0
+     * @return the value, an empty string for SQL NULL
+     */
+    String getValue(ByteBuffer view, int row, int column) {
+        int cell = indexStart + 4 * (row * columnNames.length + column);
+        int start = view.getInt(cell);
+        int end = view.getInt(cell + 4);
+        byte[] bytes = new byte[end - start];
+        view.position(start);
+        view.get(bytes);
+        return new String(bytes, UTF8);
+    }
+
+    /**
+     * Deletes the file; the mapping itself is released when no longer
+     * referenced, as Java offers no way to unmap it.
+     */
+    void close() {
+        if (!file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+}
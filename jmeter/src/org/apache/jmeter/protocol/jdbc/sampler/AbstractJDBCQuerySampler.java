@@ -0,0 +1,1118 @@
+package org.apache.jmeter.protocol.jdbc.sampler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.apache.jmeter.protocol.jdbc.config.DataSourceElement;
+import org.apache.jmeter.samplers.Entry;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.testelement.ThreadListener;
+import org.apache.jmeter.threads.JMeterContext;
+import org.apache.jmeter.threads.JMeterVariables;
+import org.apache.jmeter.util.JMeterUtils;
+import org.apache.jorphan.logging.LoggingManager;
+import org.apache.log.Logger;
+
+/**
+ * Execution core shared by the JDBC samplers of this package.
+ * <p>
+ * Select statements are run here and their rows handed, in a single pass,
+ * to the {@link ResultSetConsumer} the sampler builds for each sample; the
+ * samplers only differ in the consumers they use.
+ * <p>
+ * Prepared updates can be sent in batches when the sampler has a batch
+ * size: samples only queue their parameter sets, and are not reported,
+ * until the batch is full or its time bound has passed. The sample that
+ * sends the batch reports it; a batch that times out with no sample to send
+ * it is sent by a timer. Each data source samples are routed to has a batch
+ * of its own. All other query types are handled by JDBCSampler.
+ * <p>
+ * A select response larger than the sampler's spill threshold is streamed
+ * to a {@link SpillFile} as it is encoded, so that only its head stays on
+ * the heap.
+ * <p>
+ * With a number of warm-up connections, the first thread to sample with a
+ * given pool and query borrows that many connections at once, prepares
+ * the statement on each into the statement cache and optionally runs the
+ * select a few times, unrecorded, before its first sample. Threads
+ * sampling meanwhile wait for it, so the first samples do not pay for
+ * preparing and class loading.
+ * <p>
+ * Prepared statements can take their parameters from a
+ * {@link ParameterFile} instead of the query arguments; each thread then
+ * binds every n-th row of the file, n being the number of threads of its
+ * group.
+ * <p>
+ * The pool variable may list several data sources, separated by commas.
+ * Each sample is then sent to one of them, chosen by a
+ * {@link DataSourceRouter} in turn, by fewest samples in flight, or by a
+ * hash of one of its parameters so that a value always goes to the same
+ * node.
+ * <p>
+ * Every sample is also counted in the {@link JDBCSamplerMetrics} of the
+ * sampler class, published over JMX, and if routed in those of its data
+ * source.
+ */
+public abstract class AbstractJDBCQuerySampler extends JDBCSampler implements
+		ThreadListener {
+	private static final long serialVersionUID = 1L;
+
+	private static final Logger log = LoggingManager.getLoggerForClass();
+
+	// Variable read by older test plans to limit the number of rows
+	private static final String ROW_LIMIT_VARIABLE = "row_limit"; // $NON-NLS-1$
+
+	// Query types (used to communicate with GUI)
+	// N.B. These must not be changed, as they are used in the JMX files
+	public static final String SELECT = "Select Statement"; // $NON-NLS-1$
+	public static final String UPDATE = "Update Statement"; // $NON-NLS-1$
+	public static final String CALLABLE = "Callable Statement"; // $NON-NLS-1$
+	public static final String PREPARED_SELECT = "Prepared Select Statement"; // $NON-NLS-1$
+	public static final String PREPARED_UPDATE = "Prepared Update Statement"; // $NON-NLS-1$
+	public static final String COMMIT = "Commit"; // $NON-NLS-1$
+	public static final String ROLLBACK = "Rollback"; // $NON-NLS-1$
+	public static final String AUTOCOMMIT_FALSE = "AutoCommit(false)"; // $NON-NLS-1$
+	public static final String AUTOCOMMIT_TRUE = "AutoCommit(true)"; // $NON-NLS-1$
+
+	// Digest modes (used to communicate with GUI)
+	// N.B. These must not be changed, as they are used in the JMX files
+	public static final String DIGEST_NONE = "None (keep the rows)"; // $NON-NLS-1$
+	public static final String DIGEST_ORDERED = "Ordered"; // $NON-NLS-1$
+	public static final String DIGEST_UNORDERED = "Unordered"; // $NON-NLS-1$
+
+	// LOB modes (used to communicate with GUI)
+	// N.B. These must not be changed, as they are used in the JMX files
+	public static final String LOB_FULL = "Full"; // $NON-NLS-1$
+	public static final String LOB_LENGTH = "Length only"; // $NON-NLS-1$
+	public static final String LOB_HASH = "Hash only"; // $NON-NLS-1$
+	public static final String LOB_HEX_PREFIX = "Hex prefix"; // $NON-NLS-1$
+
+	// Routing modes (used to communicate with GUI)
+	// N.B. These must not be changed, as they are used in the JMX files
+	public static final String ROUTE_ROUND_ROBIN = "Round-robin"; // $NON-NLS-1$
+	public static final String ROUTE_LEAST_IN_FLIGHT = "Least in-flight"; // $NON-NLS-1$
+	public static final String ROUTE_HASH = "Hash of parameter"; // $NON-NLS-1$
+
+	// Maximum number of PreparedStatements kept open per connection
+	private static final int MAX_CACHED_STATEMENTS = JMeterUtils.getPropDefault(
+			"jdbcsampler.cachesize", 200); // $NON-NLS-1$
+
+	/**
+	 * Bounded cache of PreparedStatements stored in a per-connection basis,
+	 * shared by all samplers of this package.
+	 */
+	static final PreparedStatementCache perConnCache = new PreparedStatementCache(
+			MAX_CACHED_STATEMENTS);
+
+	/** Warm-ups of the test, done or running, by pool, query type and query */
+	private static final ConcurrentMap<String, FutureTask<Void>> warmUps = new ConcurrentHashMap<String, FutureTask<Void>>();
+
+	/**
+	 * Compiled form of the query settings of this (per-thread) element
+	 */
+	private transient ExecutionPlan plan;
+
+	/** Whether this thread has run or waited for the warm-up */
+	private transient boolean warmUpChecked;
+
+	/**
+	 * Exporter of the column variables, kept apart from the plan so that its
+	 * cached keys survive changes to the query arguments
+	 */
+	private transient ColumnVariables columnVariables;
+
+	/** Phase timings of the current sample */
+	private transient FetchTimings timings = new FetchTimings();
+
+	/**
+	 * Prepared updates waiting to be sent as a batch, by the data source
+	 * they were routed to
+	 */
+	private transient Map<String, UpdateBatch> batches = new HashMap<String, UpdateBatch>();
+
+	/** Batch of the data source of the current sample */
+	private transient UpdateBatch batch;
+
+	/** Columns of the last select, reused while the signature is unchanged */
+	private transient ColumnLayout layout;
+
+	/** Digest of the current sample, null unless digest mode is on */
+	private transient ResultSetConsumers.Digest digest;
+
+	/** Reused by the digest to encode each row */
+	private transient ResultSetEncoder digestRowBuffer;
+
+	/**
+	 * Encoded size of the select response of the current sample, including
+	 * bytes that were not retained; -1 if the sample ran no select
+	 */
+	private transient long bodySize;
+
+	/** File receiving the select response of the current sample, if spilled */
+	private transient SpillFile spill;
+
+	/** Latency recorder of this thread for recorderLabel, null if disabled */
+	private transient LatencyRecorder recorder;
+
+	private transient String recorderLabel;
+
+	/** Latency recorders of this thread by label, null values if disabled */
+	private transient Map<String, LatencyRecorder> recorders = new HashMap<String, LatencyRecorder>();
+
+	/** This thread's position in the parameter file, if one is used */
+	private transient ParameterFile.Cursor parameters;
+
+	/** Live counters of this sampler class */
+	private transient JDBCSamplerMetrics metrics;
+
+	/** Start of the current sample until a connection is in hand, else 0 */
+	private transient long acquireStart;
+
+	/** SQLState of the error of the current sample, if it was a SQLException */
+	private transient String errorState;
+
+	/** Router of the current sample, null unless the pool variable is a list */
+	private transient DataSourceRouter router;
+
+	/** Data source of the current sample in the router, -1 if not routed */
+	private transient int node = -1;
+
+	/** Why the current sample could not be routed by its parameter */
+	private transient SQLException routingError;
+
+	/** Why the parameters of a batched sample could not be queued, if so */
+	private transient SQLException queueError;
+
+	@Override
+	public void testEnded() {
+		// Every sampler of the test ends; only the first one has something to say
+		if (perConnCache.getConnectionCount() > 0) {
+			log.info("PreparedStatement cache: " + perConnCache);
+			perConnCache.clear();
+		}
+		LatencyLog.testEnded();
+		warmUps.clear();
+		ParameterFile.clear();
+		DataSourceRouter.clear();
+		super.testEnded();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @return the result, or null if the sample was a prepared update queued
+	 *         for a later batch
+	 */
+	@Override
+	public SampleResult sample(Entry e) {
+		if (!warmUpChecked) {
+			warmUpChecked = true;
+			awaitWarmUp();
+		}
+		errorState = null;
+		long start = System.nanoTime();
+		JDBCSamplerMetrics nodeMetrics = route();
+		acquireStart = start;
+		SampleResult res;
+		try {
+			res = runSample(e);
+		} finally {
+			acquireStart = 0;
+			if (nodeMetrics != null) {
+				nodeMetrics.queryEnded();
+			}
+		}
+		if (res != null) {
+			long nanos = System.nanoTime() - start;
+			recordLatency(res.getSampleLabel(), nanos);
+			count(metrics(), res, nanos);
+			if (nodeMetrics != null) {
+				count(nodeMetrics, res, nanos);
+				res.setResponseHeaders(res.getResponseHeaders()
+						+ "Data-Source: " + getDataSource() + "\n"); // $NON-NLS-1$ $NON-NLS-2$
+			}
+		}
+		node = -1;
+		return res;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * During a sample routed over several data sources, the one chosen for
+	 * it.
+	 */
+	@Override
+	public String getDataSource() {
+		return node >= 0 ? router.getNode(node) : super.getDataSource();
+	}
+
+	/**
+	 * Chooses the data source of the sample if the pool variable lists
+	 * several, and counts the sample as in flight there.
+	 *
+	 * @return the metrics of the chosen data source, null if not routed
+	 */
+	private JDBCSamplerMetrics route() {
+		node = -1;
+		routingError = null;
+		router = DataSourceRouter.get(super.getDataSource());
+		if (router == null) {
+			return null;
+		}
+		int chosen;
+		String mode = getRoutingMode();
+		if (ROUTE_HASH.equals(mode)) {
+			try {
+				chosen = router.hash(getRoutingKey());
+			} catch (SQLException e) {
+				routingError = e;
+				chosen = router.roundRobin();
+			} catch (IOException e) {
+				routingError = new SQLException(
+						"Could not read the routing parameter: " + e); // $NON-NLS-1$
+				chosen = router.roundRobin();
+			}
+		} else if (ROUTE_LEAST_IN_FLIGHT.equals(mode)) {
+			chosen = router.leastInFlight();
+		} else {
+			chosen = router.roundRobin();
+		}
+		node = chosen;
+		JDBCSamplerMetrics nodeMetrics = router.getMetrics(chosen);
+		nodeMetrics.queryStarted();
+		return nodeMetrics;
+	}
+
+	/**
+	 * @return the text of the routing parameter of this sample, from the
+	 *         parameter file if one is used
+	 */
+	private String getRoutingKey() throws SQLException, IOException {
+		int index = getRoutingParameter();
+		String fileName = getParameterFile().trim();
+		if (fileName.length() > 0) {
+			return parameterCursor(fileName).peekText(index);
+		}
+		return getPlan().getArgument(index);
+	}
+
+	private void count(JDBCSamplerMetrics m, SampleResult res, long nanos) {
+		if (timings.getRowCount() > 0) {
+			m.rowsRead(timings.getRowCount());
+		}
+		m.sampled(res.isSuccessful(), errorState, res.getBytes(), nanos);
+	}
+
+	private SampleResult runSample(Entry e) {
+		timings.reset();
+		digest = null;
+		bodySize = -1;
+		int batchSize = getBatchSize();
+		if (batchSize > 1
+				&& getPlan().getQueryType() == ExecutionPlan.QueryType.PREPARED_UPDATE) {
+			batch = batchFor(getDataSource());
+			queueError = null;
+			try {
+				// A sample that could not be routed reports it straight away
+				if (routingError == null
+						&& !batch.queue(batchParameters(), getQuery(),
+								batchSize, getBatchTimeout())) {
+					return null; // reported with the sample that sends the batch
+				}
+			} catch (SQLException ex) {
+				// Invalid arguments, the sample reports them
+				queueError = ex;
+			} catch (IOException ex) {
+				queueError = new SQLException(
+						"Could not queue the parameters: " + ex, ex); // $NON-NLS-1$
+			}
+			SampleResult res = super.sample(e);
+			batch.report(res);
+			return res;
+		}
+		SampleResult res = super.sample(e);
+		if (spill != null) {
+			finishSpill(res);
+		}
+		if (digest != null) {
+			checkDigest(res);
+		}
+		if (bodySize >= 0) {
+			applyRetention(res);
+		}
+		return res;
+	}
+
+	/**
+	 * @return the batch of prepared updates routed to a data source,
+	 *         created on first use
+	 */
+	private UpdateBatch batchFor(String dataSource) {
+		UpdateBatch b = batches.get(dataSource);
+		if (b == null) {
+			b = new UpdateBatch(dataSource);
+			batches.put(dataSource, b);
+		}
+		return b;
+	}
+
+	/**
+	 * Records the full size of a select response, which may have been
+	 * truncated, drops it if only failed samples keep theirs, and exports
+	 * the row count.
+	 */
+	private void applyRetention(SampleResult res) {
+		int size = (int) Math.min(bodySize, Integer.MAX_VALUE);
+		if (isRetainOnErrorOnly() && res.isSuccessful()) {
+			res.setResponseData(new byte[0]);
+		}
+		res.setBodySize(size);
+		res.setBytes(size);
+		String variable = getRowCountVariable().trim();
+		if (variable.length() > 0 && timings.getRowCount() >= 0) {
+			getThreadContext().getVariables().put(variable,
+					Integer.toString(timings.getRowCount()));
+		}
+	}
+
+	/**
+	 * Records where the spilled response went, and deletes the file unless
+	 * it is to be kept.
+	 */
+	private void finishSpill(SampleResult res) {
+		spill.close();
+		File file = spill.getFile();
+		res.setResponseHeaders(res.getResponseHeaders()
+				+ "Spill-File: " + file.getAbsolutePath() + "\n" // $NON-NLS-1$ $NON-NLS-2$
+				+ "Spill-Size: " + spill.size() + "\n" // $NON-NLS-1$ $NON-NLS-2$
+				+ "Spill-Rows: " + timings.getRowCount() + "\n"); // $NON-NLS-1$ $NON-NLS-2$
+		if (isDeleteSpillFile()) {
+			spill.delete();
+		} else {
+			res.setResultFileName(file.getAbsolutePath());
+		}
+		spill = null;
+	}
+
+	private JDBCSamplerMetrics metrics() {
+		if (metrics == null) {
+			metrics = JDBCSamplerMetrics.get(getClass());
+		}
+		return metrics;
+	}
+
+	/**
+	 * Records the sample in the latency log, if enabled.
+	 */
+	private void recordLatency(String label, long totalNanos) {
+		if (!label.equals(recorderLabel)) {
+			// Labels may alternate, each keeps its recorder
+			recorder = recorders.get(label);
+			if (recorder == null && !recorders.containsKey(label)) {
+				recorder = LatencyLog.createRecorder(label);
+				recorders.put(label, recorder);
+			}
+			recorderLabel = label;
+		}
+		if (recorder == null) {
+			return;
+		}
+		recorder.record(LatencyRecorder.TOTAL, totalNanos);
+		if (timings.getExecuteNanos() >= 0) {
+			recorder.record(LatencyRecorder.EXECUTE, timings.getExecuteNanos());
+		}
+		if (timings.getFirstRowNanos() >= 0) {
+			recorder.record(LatencyRecorder.FIRST_ROW,
+					timings.getFirstRowNanos());
+		}
+	}
+
+	/**
+	 * Exports the digest of the sample and fails the sample if it is not
+	 * the expected one.
+	 */
+	private void checkDigest(SampleResult res) {
+		String value = digest.getValue();
+		if (value == null) {
+			return; // the query failed before all rows were read
+		}
+		String variable = getDigestVariable().trim();
+		if (variable.length() > 0) {
+			JMeterVariables vars = getThreadContext().getVariables();
+			vars.put(variable, value);
+			vars.put(variable + "_rows", Integer.toString(timings.getRowCount())); // $NON-NLS-1$
+		}
+		String expected = getExpectedDigest().trim();
+		if (expected.length() > 0 && !expected.equalsIgnoreCase(value)) {
+			res.setSuccessful(false);
+			res.setResponseMessage("Digest mismatch: expected " + expected // $NON-NLS-1$
+					+ ", got " + value); // $NON-NLS-1$
+		}
+	}
+
+	@Override
+	protected byte[] execute(Connection conn) throws SQLException,
+			UnsupportedEncodingException, IOException,
+			UnsupportedOperationException {
+		log.debug("executing jdbc");
+		if (acquireStart != 0) {
+			// The connection was obtained on the way here
+			long acquireNanos = System.nanoTime() - acquireStart;
+			metrics().connectionAcquired(acquireNanos);
+			if (node >= 0) {
+				router.getMetrics(node).connectionAcquired(acquireNanos);
+			}
+			acquireStart = 0;
+		}
+		if (routingError != null) {
+			errorState = JDBCSamplerMetrics.sqlState(routingError);
+			throw routingError;
+		}
+		metrics().queryStarted();
+		Statement stmt = null;
+
+		try {
+			// Based on query return value, get results
+			ExecutionPlan plan = getPlan();
+			switch (plan.getQueryType()) {
+			case SELECT: {
+				int limit = getEffectiveRowLimit();
+				String sql = getSelectQuery(limit);
+				stmt = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY,
+						ResultSet.CONCUR_READ_ONLY);
+				configureStatement(stmt, limit);
+				ResultSet rs = null;
+				try {
+					timings.start();
+					rs = stmt.executeQuery(sql);
+					timings.executed();
+					return consume(rs, sql, plan, limit);
+				} finally {
+					close(rs);
+				}
+			}
+			case PREPARED_SELECT: {
+				int limit = getEffectiveRowLimit();
+				String sql = getSelectQuery(limit);
+				PreparedStatement pstmt = perConnCache.get(conn, sql, false);
+				configureStatement(pstmt, limit);
+				bind(pstmt, plan);
+				ResultSet rs = null;
+				try {
+					timings.start();
+					rs = pstmt.executeQuery();
+					timings.executed();
+					return consume(rs, sql, plan, limit);
+				} finally {
+					close(rs);
+				}
+			}
+			case PREPARED_UPDATE:
+				if (getBatchSize() > 1) {
+					if (queueError != null) {
+						throw queueError;
+					}
+					return batch.flush(perConnCache.get(conn, getQuery(), false));
+				}
+				if (getParameterFile().trim().length() > 0) {
+					PreparedStatement pstmt = perConnCache.get(conn,
+							getQuery(), false);
+					bind(pstmt, plan);
+					int updates = pstmt.executeUpdate();
+					return (updates + " updates.\n").getBytes(ENCODING); // $NON-NLS-1$
+				}
+				return super.execute(conn);
+			default: // Updates, callables, transaction control and incorrect
+						// query types are handled by JDBCSampler
+				return super.execute(conn);
+			}
+		} catch (SQLException e) {
+			errorState = JDBCSamplerMetrics.sqlState(e);
+			throw e;
+		} finally {
+			metrics.queryEnded();
+			close(stmt);
+		}
+	}
+
+	/**
+	 * Passes the rows of the result set to the sampler's consumer, reading
+	 * each row once.
+	 *
+	 * @param rs
+	 *            ResultSet passed in from a database query
+	 * @param sql
+	 *            the query that produced it
+	 * @param plan
+	 *            compiled query settings
+	 * @param rowLimit
+	 *            maximum number of rows to read, 0 for all
+	 * @return the response body written by the consumers, or its head if it
+	 *         was spilled
+	 * @throws java.sql.SQLException
+	 * @throws IOException
+	 *             if the spill file cannot be written
+	 */
+	private byte[] consume(ResultSet rs, String sql, ExecutionPlan plan,
+			int rowLimit) throws SQLException, IOException {
+		ResultSetEncoder body = ResultSetEncoder.get();
+		int lobMode = encoderLobMode(getLobMode());
+		body.setLobMode(lobMode);
+		ResultSetConsumer consumer;
+		String digestMode = getDigestMode();
+		if (DIGEST_ORDERED.equals(digestMode)
+				|| DIGEST_UNORDERED.equals(digestMode)) {
+			if (digestRowBuffer == null) {
+				digestRowBuffer = new ResultSetEncoder();
+			}
+			digestRowBuffer.setLobMode(lobMode);
+			digest = new ResultSetConsumers.Digest(body, digestRowBuffer,
+					DIGEST_ORDERED.equals(digestMode));
+			consumer = digest;
+		} else {
+			consumer = createConsumer(plan, body);
+		}
+
+		// Bytes beyond the retained maximum are counted, not kept
+		final int maxBytes = getMaxRetainedBytes();
+		long dropped = 0;
+
+		// Past the spill threshold the body goes to a file, keeping its head
+		final int spillThreshold = getSpillThreshold();
+		int head = 0;
+
+		layout = ColumnLayout.update(layout, sql, rs.getMetaData());
+		consumer.start(layout);
+		int rows = 0;
+		if (consumer.needsRows()) {
+			int numColumns = layout.getColumnCount();
+			boolean[] objectColumns = new boolean[numColumns + 1];
+			for (int i = 1; i <= numColumns; i++) {
+				objectColumns[i] = consumer.needsObject(i);
+			}
+			ResultSetRow row = new ResultSetRow(rs, objectColumns);
+
+			// The driver should already stop at the limit; this guards
+			// against drivers that ignore setMaxRows
+			final int limit = rowLimit > 0 ? rowLimit : Integer.MAX_VALUE;
+			boolean hasRow = rs.next();
+			timings.firstRow();
+			while (hasRow) {
+				rows++;
+				row.load(rows);
+				consumer.row(row);
+				if (spillThreshold > 0) {
+					// Once spilling, wait for a threshold's worth past the
+					// head, so the file is written in large chunks
+					if (body.size() > head + spillThreshold) {
+						head = spill(body, spillThreshold, head);
+					}
+				} else if (maxBytes > 0 && body.size() > maxBytes) {
+					dropped += body.truncate(maxBytes);
+				}
+				if (rows >= limit || !consumer.needsRows()) {
+					break;
+				}
+				hasRow = rs.next();
+			}
+			// Also when the limit or the consumer ended the fetch early
+			timings.lastRow();
+			timings.setRowCount(rows);
+		}
+		consumer.end(rows);
+		if (spill != null
+				|| (spillThreshold > 0 && body.size() > spillThreshold)) {
+			spill(body, spillThreshold, head);
+		}
+		if (maxBytes > 0) {
+			dropped += body.truncate(maxBytes);
+		}
+		bodySize = spill != null ? spill.size() : body.size() + dropped;
+		return body.toByteArray();
+	}
+
+	/**
+	 * Moves the body past its head to the spill file, which is created on
+	 * first use and receives the whole body.
+	 *
+	 * @param body
+	 *            buffer holding the response body
+	 * @param threshold
+	 *            maximum size of the head
+	 * @param head
+	 *            size of the head, if the file exists
+	 * @return size of the head kept in the body
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	private int spill(ResultSetEncoder body, int threshold, int head)
+			throws IOException {
+		if (spill == null) {
+			spill = new SpillFile();
+			spill.write(body.buffer(), 0, body.size());
+			body.truncate(threshold);
+			return body.size();
+		}
+		// The bytes after the head start a row, so the cut is exact
+		spill.write(body.buffer(), head, body.size() - head);
+		body.truncate(head);
+		return head;
+	}
+
+	/**
+	 * Nothing to do: the bean fields the warm-up needs are only set before
+	 * each sample, so it is run by the thread's first sample instead.
+	 */
+	public void threadStarted() {
+	}
+
+	/**
+	 * Warms up the pool for this sampler's statement, if configured and not
+	 * already done by another thread, before the first sample of the thread
+	 * starts its clock.
+	 */
+	private void awaitWarmUp() {
+		if (getWarmUpConnections() <= 0) {
+			return;
+		}
+		String key = getDataSource() + '\n' + getQueryType() + '\n' + getQuery();
+		FutureTask<Void> task = warmUps.get(key);
+		if (task == null) {
+			FutureTask<Void> warmUp = new FutureTask<Void>(
+					new Callable<Void>() {
+						public Void call() {
+							warmUp();
+							return null;
+						}
+					});
+			task = warmUps.putIfAbsent(key, warmUp);
+			if (task == null) {
+				task = warmUp;
+				warmUp.run();
+			}
+		}
+		try {
+			task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			log.warn("Warm-up failed: " + e.getCause());
+		}
+	}
+
+	/**
+	 * Warms up each data source of the pool variable.
+	 */
+	private void warmUp() {
+		for (String dataSource : DataSourceRouter.split(getDataSource())) {
+			warmUp(dataSource);
+		}
+	}
+
+	/**
+	 * Borrows the warm-up connections all at once, so that the pool hands
+	 * out different ones, and warms each up.
+	 */
+	private void warmUp(String dataSource) {
+		long start = System.currentTimeMillis();
+		int wanted = getWarmUpConnections();
+		ExecutionPlan plan = getPlan();
+		List<Connection> conns = new ArrayList<Connection>(wanted);
+		int executions = 0;
+		try {
+			for (int i = 0; i < wanted; i++) {
+				try {
+					conns.add(DataSourceElement.getConnection(dataSource));
+				} catch (SQLException e) {
+					log.warn("Warm-up got " + conns.size() + " of " + wanted
+							+ " connections from " + dataSource + ": " + e);
+					break;
+				}
+			}
+			for (Connection conn : conns) {
+				try {
+					executions += warmUp(conn, plan);
+				} catch (SQLException e) {
+					log.warn("Warm-up failed on a connection of "
+							+ dataSource + ": " + e);
+				} catch (IOException e) {
+					log.warn("Warm-up failed on a connection of "
+							+ dataSource + ": " + e);
+				}
+			}
+		} finally {
+			for (Connection conn : conns) {
+				close(conn);
+			}
+		}
+		log.info("Warmed up " + conns.size() + " connections of " // $NON-NLS-1$
+				+ dataSource + " for " + getName() + " with " // $NON-NLS-1$ $NON-NLS-2$
+				+ executions + " executions in " // $NON-NLS-1$
+				+ (System.currentTimeMillis() - start) + " ms"); // $NON-NLS-1$
+	}
+
+	/**
+	 * Prepares the statement of a prepared query type into the cache and
+	 * runs a select the configured number of times, discarding its rows.
+	 * Updates are never run.
+	 *
+	 * @return number of executions run
+	 */
+	private int warmUp(Connection conn, ExecutionPlan plan)
+			throws SQLException, IOException {
+		int limit = getEffectiveRowLimit();
+		int executions = getWarmUpExecutions();
+		switch (plan.getQueryType()) {
+		case SELECT:
+			for (int i = 0; i < executions; i++) {
+				Statement stmt = conn.createStatement(
+						ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+				try {
+					configureStatement(stmt, limit);
+					drain(stmt.executeQuery(getSelectQuery(limit)));
+				} finally {
+					close(stmt);
+				}
+			}
+			return Math.max(0, executions);
+		case PREPARED_SELECT: {
+			PreparedStatement pstmt = perConnCache.get(conn,
+					getSelectQuery(limit), false);
+			for (int i = 0; i < executions; i++) {
+				configureStatement(pstmt, limit);
+				bind(pstmt, plan);
+				drain(pstmt.executeQuery());
+			}
+			return Math.max(0, executions);
+		}
+		case PREPARED_UPDATE:
+			perConnCache.get(conn, getQuery(), false);
+			return 0;
+		default:
+			return 0;
+		}
+	}
+
+	/**
+	 * Binds the next row of the parameter file for this thread, or the
+	 * arguments of the plan if no file is set.
+	 */
+	private void bind(PreparedStatement pstmt, ExecutionPlan plan)
+			throws SQLException, IOException {
+		String fileName = getParameterFile().trim();
+		if (fileName.length() == 0) {
+			plan.bind(pstmt);
+			return;
+		}
+		parameterCursor(fileName).bindNext(pstmt);
+	}
+
+	/**
+	 * @return the parameter sets a batched prepared update queues: the next
+	 *         row of the parameter file for this thread if a file is set,
+	 *         otherwise the lines of the plan's arguments
+	 */
+	private UpdateBatch.ParameterSets batchParameters() throws SQLException,
+			IOException {
+		String fileName = getParameterFile().trim();
+		if (fileName.length() == 0) {
+			return plan;
+		}
+		return parameterCursor(fileName).takeNext();
+	}
+
+	/**
+	 * @return this thread's cursor in the parameter file, opened on first
+	 *         use
+	 */
+	private ParameterFile.Cursor parameterCursor(String fileName)
+			throws IOException {
+		if (parameters == null
+				|| !parameters.getFile().getPath().equals(fileName)) {
+			JMeterContext context = getThreadContext();
+			int threads = Math.max(1, context.getThreadGroup().getNumThreads());
+			parameters = ParameterFile.open(fileName).cursor(
+					context.getThreadNum() % threads, threads);
+		}
+		return parameters;
+	}
+
+	private static void drain(ResultSet rs) throws SQLException {
+		try {
+			while (rs.next()) {
+				// only the fetching is warmed up
+			}
+		} finally {
+			close(rs);
+		}
+	}
+
+	/**
+	 * Sends any prepared updates still queued, each batch to the data
+	 * source its sets were routed to; as there is no sample to report them,
+	 * the outcome is logged.
+	 */
+	public void threadFinished() {
+		for (UpdateBatch b : batches.values()) {
+			if (b.isPending()) {
+				flushAtThreadEnd(b);
+			}
+			// Nothing may be left for the timer once the thread is gone
+			b.discard();
+		}
+	}
+
+	private void flushAtThreadEnd(UpdateBatch b) {
+		Connection conn = null;
+		try {
+			conn = DataSourceElement.getConnection(b.getDataSource());
+			b.flush(perConnCache.get(conn, getQuery(), false));
+			log.info("Sent queued updates to " + b.getDataSource()
+					+ " at thread end: " + b.getSummary());
+		} catch (SQLException e) {
+			log.warn("Could not send queued updates to " + b.getDataSource()
+					+ " at thread end: " + e);
+		} catch (IOException e) {
+			log.warn("Could not send queued updates to " + b.getDataSource()
+					+ " at thread end: " + e);
+		} finally {
+			close(conn);
+		}
+	}
+
+	/**
+	 * Builds the consumer of the rows of one sample.
+	 *
+	 * @param plan
+	 *            compiled query settings
+	 * @param body
+	 *            buffer holding the response body
+	 * @return the consumer, possibly a chain of several
+	 */
+	abstract ResultSetConsumer createConsumer(ExecutionPlan plan,
+			ResultSetEncoder body);
+
+	/**
+	 * @return maximum number of rows to read, 0 for all
+	 */
+	int getEffectiveRowLimit() {
+		return 0;
+	}
+
+	/**
+	 * @return number of queued parameter sets that sends a prepared update
+	 *         batch; 0 or 1 runs each prepared update on its own
+	 */
+	int getBatchSize() {
+		return 0;
+	}
+
+	/**
+	 * @return milliseconds after which a non-empty batch is sent even if not
+	 *         full, 0 for no time bound
+	 */
+	long getBatchTimeout() {
+		return 0;
+	}
+
+	/**
+	 * @return one of the DIGEST_ constants; in digest mode selects only
+	 *         report the row count and a digest of the rows, and set no
+	 *         column variables
+	 */
+	String getDigestMode() {
+		return DIGEST_NONE;
+	}
+
+	/**
+	 * @return the digest a select must produce to succeed, empty for no check
+	 */
+	String getExpectedDigest() {
+		return ""; // $NON-NLS-1$
+	}
+
+	/**
+	 * @return variable receiving the digest, and its <code>_rows</code>
+	 *         variable the row count; empty for none
+	 */
+	String getDigestVariable() {
+		return ""; // $NON-NLS-1$
+	}
+
+	/**
+	 * @return maximum number of bytes of a select response kept in the
+	 *         result, 0 for all
+	 */
+	int getMaxRetainedBytes() {
+		return 0;
+	}
+
+	/**
+	 * @return true if successful select samples keep no response data
+	 */
+	boolean isRetainOnErrorOnly() {
+		return false;
+	}
+
+	/**
+	 * @return binary parameter file prepared statements bind from instead of
+	 *         the query arguments, empty for none
+	 */
+	String getParameterFile() {
+		return ""; // $NON-NLS-1$
+	}
+
+	/**
+	 * @return how samples are spread over the data sources of a pool
+	 *         variable listing several, one of the <code>ROUTE_</code>
+	 *         constants
+	 */
+	String getRoutingMode() {
+		return ROUTE_ROUND_ROBIN;
+	}
+
+	/**
+	 * @return number of the query argument, or parameter file column,
+	 *         hashed to choose the data source, starting at 1
+	 */
+	int getRoutingParameter() {
+		return 1;
+	}
+
+	/**
+	 * @return how binary and large text columns are written, one of the
+	 *         <code>LOB_</code> constants
+	 */
+	String getLobMode() {
+		return LOB_FULL;
+	}
+
+	private static int encoderLobMode(String lobMode) {
+		if (LOB_LENGTH.equals(lobMode)) {
+			return ResultSetEncoder.LOB_LENGTH;
+		} else if (LOB_HASH.equals(lobMode)) {
+			return ResultSetEncoder.LOB_HASH;
+		} else if (LOB_HEX_PREFIX.equals(lobMode)) {
+			return ResultSetEncoder.LOB_HEX_PREFIX;
+		}
+		return ResultSetEncoder.LOB_FULL;
+	}
+
+	/**
+	 * @return number of pool connections to warm up before the first
+	 *         sample, 0 for no warm-up
+	 */
+	int getWarmUpConnections() {
+		return 0;
+	}
+
+	/**
+	 * @return number of unrecorded executions of a select per warmed up
+	 *         connection
+	 */
+	int getWarmUpExecutions() {
+		return 0;
+	}
+
+	/**
+	 * @return size of a select response past which it is written to a spill
+	 *         file and only its head kept, 0 for never
+	 */
+	int getSpillThreshold() {
+		return 0;
+	}
+
+	/**
+	 * @return true if the spill file is deleted once the sample is recorded
+	 */
+	boolean isDeleteSpillFile() {
+		return true;
+	}
+
+	/**
+	 * @return variable receiving the row count of a select, empty for none
+	 */
+	String getRowCountVariable() {
+		return ""; // $NON-NLS-1$
+	}
+
+	/**
+	 * @param limit
+	 *            maximum number of rows to read, 0 for all
+	 * @return the SQL to run for a select
+	 */
+	String getSelectQuery(int limit) {
+		return getQuery();
+	}
+
+	/**
+	 * Applies per-sample settings to the statement before it is run. Cached
+	 * statements are shared by all samplers using the same SQL on a
+	 * connection, so anything set here must be set on every use; by default
+	 * the row limit and fetch size another sampler may have left are reset
+	 * to the driver defaults.
+	 */
+	void configureStatement(Statement stmt, int limit) throws SQLException {
+		stmt.setMaxRows(0);
+		stmt.setFetchSize(0);
+	}
+
+	/**
+	 * @return the legacy <code>row_limit</code> variable, 0 if unset or
+	 *         invalid
+	 */
+	int getRowLimitVariable() {
+		String legacy = getThreadContext().getVariables().get(ROW_LIMIT_VARIABLE);
+		if (legacy != null) {
+			try {
+				return Math.max(0, Integer.parseInt(legacy.trim()));
+			} catch (NumberFormatException e) {
+				log.warn("Ignoring invalid " + ROW_LIMIT_VARIABLE + " variable: " + legacy);
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * @return the phase timings of the current sample
+	 */
+	FetchTimings getTimings() {
+		return timings;
+	}
+
+	/**
+	 * Refreshes the compiled query settings, recompiling them only if the
+	 * properties changed since the previous sample.
+	 */
+	ExecutionPlan getPlan() {
+		plan = ExecutionPlan.update(plan, getQueryType(), getQueryArguments(),
+				getQueryArgumentsTypes(), getResultVariable());
+		return plan;
+	}
+
+	/**
+	 * Refreshes the column variables exporter, rebuilding it only if the
+	 * variable names changed since the previous sample.
+	 */
+	ColumnVariables getColumnVariables() {
+		columnVariables = ColumnVariables.update(columnVariables,
+				getVariableNames());
+		return columnVariables;
+	}
+}
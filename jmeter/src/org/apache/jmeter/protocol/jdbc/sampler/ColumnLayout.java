@@ -0,0 +1,110 @@
+package org.apache.jmeter.protocol.jdbc.sampler;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * The parts of the result set metadata the samplers use: the name, the
+ * class returned by <code>getObject</code> and the typed read strategy of
+ * each column.
+ * <p>
+ * Some drivers answer every metadata call with a fresh lookup, so each
+ * sampler keeps the layout of its last query and only compares the column
+ * signature of a new result, its column count, JDBC types and the classes
+ * returned by <code>getObject</code>, with it. The class catches a column a
+ * driver widened without changing its JDBC type, such as one that became
+ * unsigned. The names and read strategies are only read again when the
+ * query or the signature changes. Layouts are immutable.
+ */
+final class ColumnLayout {
+
+    private final String sql;
+
+    // Indexed by column number, starting at 1
+
+    private final int[] types;
+
+    private final String[] names;
+
+    private final String[] classNames;
+
+    private final int[] kinds;
+
+    private ColumnLayout(String sql, ResultSetMetaData meta, int numColumns)
+            throws SQLException {
+        this.sql = sql;
+        types = new int[numColumns + 1];
+        names = new String[numColumns + 1];
+        classNames = new String[numColumns + 1];
+        for (int i = 1; i <= numColumns; i++) {
+            types[i] = meta.getColumnType(i);
+            names[i] = meta.getColumnName(i);
+            classNames[i] = meta.getColumnClassName(i);
+        }
+        kinds = ResultSetEncoder.columnKinds(meta);
+    }
+
+    /**
+     * Returns the layout of a result, reusing <code>layout</code> if it was
+     * read for the same query and the columns have the same types and
+     * classes.
+     *
+     * @param layout
+     *            the layout of the previous result, may be null
+     * @param sql
+     *            the query that produced the result
+     * @param meta
+     *            metadata of the result
+     * @return an up to date layout
+     * @throws SQLException
+     */
+    static ColumnLayout update(ColumnLayout layout, String sql,
+            ResultSetMetaData meta) throws SQLException {
+        int numColumns = meta.getColumnCount();
+        if (layout != null && layout.sql.equals(sql)
+                && layout.types.length == numColumns + 1) {
+            int i = 1;
+            while (i <= numColumns && layout.types[i] == meta.getColumnType(i)
+                    && equal(layout.classNames[i], meta.getColumnClassName(i))) {
+                i++;
+            }
+            if (i > numColumns) {
+                return layout;
+            }
+        }
+        return new ColumnLayout(sql, meta, numColumns);
+    }
+
+    private static boolean equal(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    int getColumnCount() {
+        return types.length - 1;
+    }
+
+    /**
+     * @param column
+     *            column number, starting at 1
+     */
+    String getColumnName(int column) {
+        return names[column];
+    }
+
+    /**
+     * @param column
+     *            column number, starting at 1
+     */
+    String getColumnClassName(int column) {
+        return classNames[column];
+    }
+
+    /**
+     * @return the read strategy of each column, indexed from 1; one of the
+     *         <code>ResultSetEncoder.KIND_</code> constants. Must not be
+     *         modified.
+     */
+    int[] getKinds() {
+        return kinds;
+    }
+}
@@ -0,0 +1,153 @@
+package org.apache.jmeter.protocol.jdbc.sampler;
+
+import java.util.Arrays;
+
+import org.apache.jmeter.threads.JMeterVariables;
+import org.apache.jmeter.util.JMeterUtils;
+
+/**
+ * Exports column values to the <code>name_n</code> and <code>name_#</code>
+ * variables configured in the variable names property.
+ * <p>
+ * The <code>name_n</code> keys are built once and reused by later samples,
+ * so exporting a cell no longer concatenates a key. Each cell is still
+ * inserted into the thread's variables, and the values left over from a
+ * longer previous sample are still removed: <code>${name_n}</code> is read
+ * straight from the variables map, which offers no hook to resolve values
+ * on demand. Keys are cached for the first
+ * <code>jdbcsampler.max_cached_variable_rows</code> rows of each column;
+ * rows beyond that build their key on the fly.
+ */
+final class ColumnVariables {
+
+    private static final String COMMA = ","; // $NON-NLS-1$
+
+    private static final String UNDERSCORE = "_"; // $NON-NLS-1$
+
+    private static final int MAX_CACHED_ROWS = JMeterUtils.getPropDefault(
+            "jdbcsampler.max_cached_variable_rows", 10000); // $NON-NLS-1$
+
+    private static final String[] NO_KEYS = new String[0];
+
+    /** The variable names property these were built from */
+    private final String source;
+
+    /** Trimmed variable name per column, empty if the column is not exported */
+    private final String[] names;
+
+    /** name_# per column, null if the column is not exported */
+    private final String[] countKeys;
+
+    /** Cached name_n keys per column, index n - 1 */
+    private final String[][] keys;
+
+    /**
+     * @param variableNames
+     *            the comma separated variable names property
+     */
+    ColumnVariables(String variableNames) {
+        this.source = variableNames;
+        this.names = variableNames.split(COMMA);
+        this.countKeys = new String[names.length];
+        this.keys = new String[names.length][];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = names[i].trim();
+            keys[i] = NO_KEYS;
+            if (names[i].length() > 0) {
+                countKeys[i] = names[i] + "_#"; // $NON-NLS-1$
+            }
+        }
+    }
+
+    /**
+     * Returns the exporter for the given variable names, reusing
+     * <code>current</code> and its cached keys if it was built from the same
+     * value.
+     *
+     * @param current
+     *            the current exporter, may be null
+     * @param variableNames
+     *            the comma separated variable names property
+     * @return an up to date exporter
+     */
+    static ColumnVariables update(ColumnVariables current, String variableNames) {
+        if (current != null && current.source.equals(variableNames)) {
+            return current;
+        }
+        return new ColumnVariables(variableNames);
+    }
+
+    /**
+     * @param column
+     *            column number, starting at 1
+     * @return true if the column has a variable name
+     */
+    boolean isExported(int column) {
+        return column <= names.length && names[column - 1].length() > 0;
+    }
+
+    /**
+     * Sets <code>name_row</code> for an exported column.
+     *
+     * @param vars
+     *            the thread's variables
+     * @param column
+     *            column number, starting at 1
+     * @param row
+     *            row number, starting at 1
+     * @param value
+     *            the value to store
+     */
+    void put(JMeterVariables vars, int column, int row, String value) {
+        vars.put(key(column - 1, row), value);
+    }
+
+    private String key(int i, int row) {
+        String[] columnKeys = keys[i];
+        if (row <= columnKeys.length) {
+            return columnKeys[row - 1];
+        }
+        if (row > MAX_CACHED_ROWS) {
+            return names[i] + UNDERSCORE + row;
+        }
+        int capacity = Math.min(MAX_CACHED_ROWS,
+                Math.max(row, columnKeys.length * 2));
+        String[] grown = Arrays.copyOf(columnKeys, capacity);
+        for (int n = columnKeys.length; n < capacity; n++) {
+            grown[n] = names[i] + UNDERSCORE + (n + 1);
+        }
+        keys[i] = grown;
+        return grown[row - 1];
+    }
+
+    /**
+     * Removes the <code>name_n</code> values left over from a previous
+     * sample that returned more rows, and stores the row count in
+     * <code>name_#</code>.
+     *
+     * @param vars
+     *            the thread's variables
+     * @param rows
+     *            number of rows of this sample
+     */
+    void finish(JMeterVariables vars, int rows) {
+        String count = null;
+        for (int i = 0; i < names.length; i++) {
+            if (countKeys[i] == null) {
+                continue;
+            }
+            // Get the previous count
+            String prevCount = vars.get(countKeys[i]);
+            if (prevCount != null) {
+                int prev = Integer.parseInt(prevCount);
+                for (int n = rows + 1; n <= prev; n++) {
+                    vars.remove(key(i, n));
+                }
+            }
+            if (count == null) {
+                count = Integer.toString(rows);
+            }
+            vars.put(countKeys[i], count); // save the current count
+        }
+    }
+}
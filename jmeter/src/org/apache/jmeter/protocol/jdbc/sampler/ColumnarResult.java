@@ -0,0 +1,428 @@
+package org.apache.jmeter.protocol.jdbc.sampler;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * Column oriented store for the rows put in the result variable.
+ * <p>
+ * Numeric columns are kept in primitive arrays, string columns as codes into
+ * a dictionary shared by all columns of the result, and the column names in
+ * one index shared by all rows. Scripts still see the
+ * <code>List&lt;Map&lt;String, Object&gt;&gt;</code> they always got: each
+ * row is a lazy read-only map view that boxes values back to the class the
+ * driver returned from <code>getObject</code>.
+ */
+final class ColumnarResult extends AbstractList<Map<String, Object>>
+        implements RandomAccess {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * String columns with mostly distinct values gain nothing from the
+     * dictionary; they are checked once they reach this many rows
+     */
+    private static final int DICTIONARY_CHECK_ROWS = 1024;
+
+    /** Column names in result set order; duplicates are kept */
+    private final String[] names;
+
+    /** Column name to column position, the last column wins as with HashMap */
+    private final Map<String, Integer> index;
+
+    private final Column[] columns;
+
+    /** Shared by all string columns */
+    private final Map<String, Integer> dictionary = new HashMap<String, Integer>();
+
+    private final List<String> dictionaryValues = new ArrayList<String>();
+
+    private int rows;
+
+    /**
+     * Creates an empty result shaped after the given columns.
+     *
+     * @param layout
+     *            columns of the result set that will be added
+     */
+    ColumnarResult(ColumnLayout layout) {
+        int numColumns = layout.getColumnCount();
+        names = new String[numColumns];
+        index = new HashMap<String, Integer>(numColumns * 2);
+        columns = new Column[numColumns];
+        for (int i = 0; i < numColumns; i++) {
+            names[i] = layout.getColumnName(i + 1);
+            index.put(names[i], Integer.valueOf(i));
+            columns[i] = newColumn(layout.getColumnClassName(i + 1));
+        }
+    }
+
+    private Column newColumn(String className) {
+        if (Integer.class.getName().equals(className)
+                || Long.class.getName().equals(className)
+                || Short.class.getName().equals(className)
+                || Byte.class.getName().equals(className)) {
+            return new LongColumn();
+        }
+        if (Double.class.getName().equals(className)
+                || Float.class.getName().equals(className)) {
+            return new DoubleColumn();
+        }
+        if (String.class.getName().equals(className)) {
+            return new StringColumn();
+        }
+        return new ObjectColumn(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Stores one value of the row being added. Values must be set for
+     * columns 1 to n in order, starting a new row at column 1.
+     *
+     * @param column
+     *            column number, starting at 1
+     * @param value
+     *            the value returned by <code>getObject</code>
+     */
+    void addValue(int column, Object value) {
+        int i = column - 1;
+        if (i == 0) {
+            rows++;
+        }
+        if (!columns[i].add(value)) {
+            // Driver returned something other than the declared class
+            Column fallback = new ObjectColumn(Math.max(rows,
+                    INITIAL_CAPACITY));
+            for (int row = 0; row < rows - 1; row++) {
+                fallback.add(columns[i].get(row));
+            }
+            fallback.add(value);
+            Column dropped = columns[i];
+            columns[i] = fallback;
+            if (dropped instanceof StringColumn) {
+                rebuildDictionary();
+            }
+        }
+    }
+
+    /**
+     * Recodes the remaining string columns into a new dictionary, so that
+     * the entries only a dropped column used are not kept for the rest of
+     * the result.
+     */
+    private void rebuildDictionary() {
+        List<String> previous = new ArrayList<String>(dictionaryValues);
+        dictionary.clear();
+        dictionaryValues.clear();
+        for (Column column : columns) {
+            if (column instanceof StringColumn) {
+                ((StringColumn) column).recode(previous);
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return rows;
+    }
+
+    @Override
+    public Map<String, Object> get(int row) {
+        if (row < 0 || row >= rows) {
+            throw new IndexOutOfBoundsException("Row: " + row + ", size: " // $NON-NLS-1$
+                    + rows); // $NON-NLS-1$
+        }
+        return new RowView(row);
+    }
+
+    private int encode(String value) {
+        Integer code = dictionary.get(value);
+        if (code == null) {
+            code = Integer.valueOf(dictionaryValues.size());
+            dictionary.put(value, code);
+            dictionaryValues.add(value);
+        }
+        return code.intValue();
+    }
+
+    /**
+     * Storage for the values of one column.
+     */
+    private abstract static class Column {
+        /**
+         * @return false if the value does not fit this kind of column
+         */
+        abstract boolean add(Object value);
+
+        abstract Object get(int row);
+    }
+
+    private static final class LongColumn extends Column {
+        private long[] values = new long[INITIAL_CAPACITY];
+
+        private final BitSet nulls = new BitSet();
+
+        /** Class returned by the driver, values are boxed back to it */
+        private Class<?> type;
+
+        private int size;
+
+        @Override
+        boolean add(Object value) {
+            if (value != null) {
+                Class<?> c = value.getClass();
+                if (type == null) {
+                    type = c;
+                } else if (type != c) {
+                    return false;
+                }
+                if (!(value instanceof Integer || value instanceof Long
+                        || value instanceof Short || value instanceof Byte)) {
+                    return false;
+                }
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size << 1);
+            }
+            if (value == null) {
+                nulls.set(size);
+            } else {
+                values[size] = ((Number) value).longValue();
+            }
+            size++;
+            return true;
+        }
+
+        @Override
+        Object get(int row) {
+            if (nulls.get(row)) {
+                return null;
+            }
+            long v = values[row];
+            if (type == Integer.class) {
+                return Integer.valueOf((int) v);
+            } else if (type == Short.class) {
+                return Short.valueOf((short) v);
+            } else if (type == Byte.class) {
+                return Byte.valueOf((byte) v);
+            }
+            return Long.valueOf(v);
+        }
+    }
+
+    private static final class DoubleColumn extends Column {
+        private double[] values = new double[INITIAL_CAPACITY];
+
+        private final BitSet nulls = new BitSet();
+
+        private Class<?> type;
+
+        private int size;
+
+        @Override
+        boolean add(Object value) {
+            if (value != null) {
+                Class<?> c = value.getClass();
+                if (type == null) {
+                    type = c;
+                } else if (type != c) {
+                    return false;
+                }
+                if (!(value instanceof Double || value instanceof Float)) {
+                    return false;
+                }
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size << 1);
+            }
+            if (value == null) {
+                nulls.set(size);
+            } else {
+                values[size] = ((Number) value).doubleValue();
+            }
+            size++;
+            return true;
+        }
+
+        @Override
+        Object get(int row) {
+            if (nulls.get(row)) {
+                return null;
+            }
+            if (type == Float.class) {
+                return Float.valueOf((float) values[row]);
+            }
+            return Double.valueOf(values[row]);
+        }
+    }
+
+    private final class StringColumn extends Column {
+        /** Index into dictionaryValues, -1 for null */
+        private int[] codes = new int[INITIAL_CAPACITY];
+
+        private int size;
+
+        /** Number of values that added a new dictionary entry */
+        private int misses;
+
+        @Override
+        boolean add(Object value) {
+            if (value != null && !(value instanceof String)) {
+                return false;
+            }
+            if (size == DICTIONARY_CHECK_ROWS
+                    && misses > DICTIONARY_CHECK_ROWS / 2) {
+                return false; // mostly distinct: store the Strings directly
+            }
+            if (size == codes.length) {
+                codes = Arrays.copyOf(codes, size << 1);
+            }
+            if (value == null) {
+                codes[size] = -1;
+            } else {
+                int before = dictionaryValues.size();
+                codes[size] = encode((String) value);
+                if (dictionaryValues.size() > before) {
+                    misses++;
+                }
+            }
+            size++;
+            return true;
+        }
+
+        @Override
+        Object get(int row) {
+            int code = codes[row];
+            return code < 0 ? null : dictionaryValues.get(code);
+        }
+
+        /**
+         * Moves the values to the current dictionary.
+         *
+         * @param previous
+         *            values of the dictionary the codes refer to
+         */
+        void recode(List<String> previous) {
+            for (int row = 0; row < size; row++) {
+                if (codes[row] >= 0) {
+                    codes[row] = encode(previous.get(codes[row]));
+                }
+            }
+        }
+    }
+
+    private static final class ObjectColumn extends Column {
+        private final List<Object> values;
+
+        ObjectColumn(int capacity) {
+            values = new ArrayList<Object>(capacity);
+        }
+
+        @Override
+        boolean add(Object value) {
+            values.add(value);
+            return true;
+        }
+
+        @Override
+        Object get(int row) {
+            return values.get(row);
+        }
+    }
+
+    /**
+     * Read-only map view of one row.
+     */
+    private final class RowView extends AbstractMap<String, Object> {
+        private final int row;
+
+        RowView(int row) {
+            this.row = row;
+        }
+
+        @Override
+        public Object get(Object key) {
+            Integer i = index.get(key);
+            return i == null ? null : columns[i.intValue()].get(row);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return index.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return index.size();
+        }
+
+        @Override
+        public Set<Map.Entry<String, Object>> entrySet() {
+            return new AbstractSet<Map.Entry<String, Object>>() {
+                @Override
+                public int size() {
+                    return index.size();
+                }
+
+                @Override
+                public Iterator<Map.Entry<String, Object>> iterator() {
+                    return new EntryIterator(row);
+                }
+            };
+        }
+    }
+
+    /**
+     * Iterates over the distinct column names of a row; where names repeat,
+     * the value of the last such column is returned, as the HashMap rows
+     * used to do.
+     */
+    private final class EntryIterator implements
+            Iterator<Map.Entry<String, Object>> {
+        private final int row;
+
+        private int next;
+
+        EntryIterator(int row) {
+            this.row = row;
+            this.next = advance(0);
+        }
+
+        private int advance(int from) {
+            int i = from;
+            while (i < names.length
+                    && index.get(names[i]).intValue() != i) {
+                i++;
+            }
+            return i;
+        }
+
+        public boolean hasNext() {
+            return next < names.length;
+        }
+
+        public Map.Entry<String, Object> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int i = next;
+            next = advance(i + 1);
+            return new AbstractMap.SimpleImmutableEntry<String, Object>(names[i],
+                    columns[i].get(row));
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package org.apache.jmeter.protocol.jdbc.sampler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Chooses one of several data sources for each sample of a sampler whose
+ * pool variable is a comma separated list.
+ * <p>
+ * Routers are shared by all samplers with the same list, so that round
+ * robin and least in-flight balance the samples of every thread. The
+ * in-flight count of a data source is taken from its
+ * {@link JDBCSamplerMetrics}, which also keep its latency and error
+ * figures.
+ */
+final class DataSourceRouter {
+
+    private static final String COMMA = ","; // $NON-NLS-1$
+
+    /** Routers of the test, by list of data sources */
+    private static final ConcurrentMap<String, DataSourceRouter> routers = new ConcurrentHashMap<String, DataSourceRouter>();
+
+    private final String[] nodes;
+
+    private final JDBCSamplerMetrics[] metrics;
+
+    private final AtomicLong next = new AtomicLong();
+
+    private DataSourceRouter(String[] nodes) {
+        this.nodes = nodes;
+        metrics = new JDBCSamplerMetrics[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            metrics[i] = JDBCSamplerMetrics.forDataSource(nodes[i]);
+        }
+    }
+
+    /**
+     * Returns the router of a list of data sources.
+     *
+     * @param dataSources
+     *            pool variable names, separated by commas
+     * @return the shared router, or null if <code>dataSources</code> is not
+     *         a list
+     */
+    static DataSourceRouter get(String dataSources) {
+        if (dataSources == null || dataSources.indexOf(',') < 0) {
+            return null;
+        }
+        DataSourceRouter router = routers.get(dataSources);
+        if (router == null) {
+            String[] nodes = split(dataSources);
+            if (nodes.length == 0) {
+                return null;
+            }
+            DataSourceRouter created = new DataSourceRouter(nodes);
+            router = routers.putIfAbsent(dataSources, created);
+            if (router == null) {
+                router = created;
+            }
+        }
+        return router;
+    }
+
+    /**
+     * @return the trimmed, non-empty names of a comma separated list
+     */
+    static String[] split(String dataSources) {
+        List<String> names = new ArrayList<String>();
+        for (String name : dataSources.split(COMMA)) {
+            name = name.trim();
+            if (name.length() > 0) {
+                names.add(name);
+            }
+        }
+        return names.toArray(new String[names.size()]);
+    }
+
+    /**
+     * Forgets the routers of the test.
+     */
+    static void clear() {
+        routers.clear();
+    }
+
+    int getNodeCount() {
+        return nodes.length;
+    }
+
+    String getNode(int node) {
+        return nodes[node];
+    }
+
+    JDBCSamplerMetrics getMetrics(int node) {
+        return metrics[node];
+    }
+
+    /**
+     * @return the next data source in turn
+     */
+    int roundRobin() {
+        return (int) ((next.getAndIncrement() & Long.MAX_VALUE) % nodes.length);
+    }
+
+    /**
+     * @return the data source with the fewest samples in flight; ties are
+     *         broken in turn
+     */
+    int leastInFlight() {
+        int start = roundRobin();
+        int best = start;
+        long bestCount = metrics[best].getInFlightQueries();
+        for (int k = 1; k < nodes.length && bestCount > 0; k++) {
+            int i = (start + k) % nodes.length;
+            long count = metrics[i].getInFlightQueries();
+            if (count < bestCount) {
+                best = i;
+                bestCount = count;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @param key
+     *            text of the routing value
+     * @return the data source the value always goes to
+     */
+    int hash(String key) {
+        int h = key.hashCode();
+        h ^= h >>> 16; // let the high bits count in the modulo
+        return (h & Integer.MAX_VALUE) % nodes.length;
+    }
+}
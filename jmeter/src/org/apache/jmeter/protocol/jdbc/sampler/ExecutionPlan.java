@@ -0,0 +1,471 @@
+package org.apache.jmeter.protocol.jdbc.sampler;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.sql.CallableStatement;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.jmeter.save.CSVSaveService;
+import org.apache.jmeter.util.JMeterUtils;
+
+/**
+ * Pre-parsed form of the query type, query arguments and output variable
+ * settings of a JDBC sampler.
+ * <p>
+ * Each sampler keeps one plan and refreshes it through
+ * {@link #update(ExecutionPlan, String, String, String, String, String)}
+ * before every sample. The plan is only rebuilt when one of the source
+ * properties has changed; argument values are converted to their Java type
+ * when they are parsed, so a sample with constant arguments does nothing
+ * more than call the typed setters.
+ */
+final class ExecutionPlan implements UpdateBatch.ParameterSets {
+
+    private static final String COMMA = ","; // $NON-NLS-1$
+    private static final char COMMA_CHAR = ',';
+
+    // String used to indicate a null value
+    private static final String NULL_MARKER = JMeterUtils.getPropDefault(
+            "jdbcsampler.nullmarker", "]NULL["); // $NON-NLS-1$
+
+    private static final String INOUT = "INOUT"; // $NON-NLS-1$
+
+    private static final String OUT = "OUT"; // $NON-NLS-1$
+
+    // key: name (lowercase) from java.sql.Types; entry: corresponding int value
+    private static final Map<String, Integer> mapJdbcNameToInt;
+    // read-only after class init
+
+    static {
+        // based on e291. Getting the Name of a JDBC Type from javaalmanac.com
+        // http://javaalmanac.com/egs/java.sql/JdbcInt2Str.html
+        mapJdbcNameToInt = new HashMap<String, Integer>();
+
+        // Get all fields in java.sql.Types and store the corresponding int
+        // values
+        Field[] fields = java.sql.Types.class.getFields();
+        for (int i = 0; i < fields.length; i++) {
+            try {
+                String name = fields[i].getName();
+                Integer value = (Integer) fields[i].get(null);
+                mapJdbcNameToInt.put(
+                        name.toLowerCase(java.util.Locale.ENGLISH), value);
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException(e); // should not happen
+            }
+        }
+    }
+
+    /**
+     * Query types understood by the samplers.
+     */
+    enum QueryType {
+        SELECT(AbstractJDBCQuerySampler.SELECT),
+        UPDATE(AbstractJDBCQuerySampler.UPDATE),
+        CALLABLE(AbstractJDBCQuerySampler.CALLABLE),
+        PREPARED_SELECT(AbstractJDBCQuerySampler.PREPARED_SELECT),
+        PREPARED_UPDATE(AbstractJDBCQuerySampler.PREPARED_UPDATE),
+        COMMIT(AbstractJDBCQuerySampler.COMMIT),
+        ROLLBACK(AbstractJDBCQuerySampler.ROLLBACK),
+        AUTOCOMMIT_FALSE(AbstractJDBCQuerySampler.AUTOCOMMIT_FALSE),
+        AUTOCOMMIT_TRUE(AbstractJDBCQuerySampler.AUTOCOMMIT_TRUE),
+        /** User provided incorrect query type */
+        UNKNOWN(null);
+
+        private final String displayName;
+
+        private QueryType(String displayName) {
+            this.displayName = displayName;
+        }
+
+        static QueryType fromString(String queryType) {
+            for (QueryType type : values()) {
+                if (type.displayName != null
+                        && type.displayName.equals(queryType)) {
+                    return type;
+                }
+            }
+            return UNKNOWN;
+        }
+    }
+
+    // Source properties, compared on each update
+    private final String queryTypeSource;
+    private final String argumentsSource;
+    private final String typesSource;
+    private final String resultVariableSource;
+
+    private final QueryType queryType;
+
+    /** Compiled on first use, as only prepared statements need them */
+    private Binder[] binders;
+
+    /** One set of binders per line of arguments, compiled on first use */
+    private Binder[][] batchBinders;
+
+    private final String resultVariable;
+
+    private ExecutionPlan(String queryType, String arguments, String types,
+            String resultVariable) {
+        this.queryTypeSource = queryType;
+        this.argumentsSource = arguments;
+        this.typesSource = types;
+        this.resultVariableSource = resultVariable;
+        this.queryType = QueryType.fromString(queryType);
+        this.resultVariable = resultVariable.trim();
+    }
+
+    /**
+     * Returns a plan for the given properties, reusing <code>plan</code> if
+     * it was compiled from the same values.
+     *
+     * @param plan
+     *            the current plan, may be null
+     * @return an up to date plan
+     */
+    static ExecutionPlan update(ExecutionPlan plan, String queryType,
+            String arguments, String types, String resultVariable) {
+        if (plan != null && plan.queryTypeSource.equals(queryType)
+                && plan.argumentsSource.equals(arguments)
+                && plan.typesSource.equals(types)
+                && plan.resultVariableSource.equals(resultVariable)) {
+            return plan;
+        }
+        return new ExecutionPlan(queryType, arguments, types, resultVariable);
+    }
+
+    QueryType getQueryType() {
+        return queryType;
+    }
+
+    /**
+     * @return the trimmed result variable name, empty if none
+     */
+    String getResultVariable() {
+        return resultVariable;
+    }
+
+    /**
+     * Binds the pre-parsed arguments to the statement.
+     *
+     * @param pstmt
+     *            statement to bind to; must be a CallableStatement if there
+     *            are OUT parameters
+     * @return the registered output parameter types, Types.NULL for input
+     *         only parameters
+     * @throws SQLException
+     *             if the arguments and their types do not match
+     * @throws IOException
+     *             if the arguments cannot be parsed
+     */
+    int[] bind(PreparedStatement pstmt) throws SQLException, IOException {
+        compile();
+        int[] outputs = new int[binders.length];
+        for (int i = 0; i < binders.length; i++) {
+            try {
+                outputs[i] = binders[i].bind(pstmt);
+            } catch (NullPointerException e) { // thrown by Derby JDBC (at
+                                                // least) if there are no "?"
+                                                // markers in statement
+                throw new SQLException("Could not set argument no: " + (i + 1)
+                        + " - missing parameter marker?");
+            }
+        }
+        return outputs;
+    }
+
+    /**
+     * Parses the arguments now rather than on the first bind, so that the
+     * plan can then be used by other threads.
+     *
+     * @throws SQLException
+     *             if the arguments and their types do not match
+     * @throws IOException
+     *             if the arguments cannot be parsed
+     */
+    void compile() throws SQLException, IOException {
+        if (binders == null) {
+            binders = compileBinders(argumentsSource, typesSource);
+        }
+    }
+
+    /**
+     * @param index
+     *            argument number, starting at 1
+     * @return the text of the argument
+     * @throws SQLException
+     *             if there is no such argument, or the arguments and their
+     *             types do not match
+     * @throws IOException
+     *             if the arguments cannot be parsed
+     */
+    String getArgument(int index) throws SQLException, IOException {
+        compile();
+        if (index < 1 || index > binders.length) {
+            throw new SQLException("No argument number " + index + " among " // $NON-NLS-1$ $NON-NLS-2$
+                    + binders.length);
+        }
+        return binders[index - 1].text;
+    }
+
+    /**
+     * @return the number of parameter sets in batch mode, where each line of
+     *         the arguments is one set
+     * @throws SQLException
+     *             if the arguments and their types do not match
+     * @throws IOException
+     *             if the arguments cannot be parsed
+     */
+    public int getBatchRows() throws SQLException, IOException {
+        return getBatchBinders().length;
+    }
+
+    /**
+     * Binds each line of arguments to the statement and adds it to the
+     * statement's batch.
+     *
+     * @param pstmt
+     *            statement to bind to
+     * @throws SQLException
+     *             if the arguments and their types do not match
+     * @throws IOException
+     *             if the arguments cannot be parsed
+     */
+    public void addBatch(PreparedStatement pstmt) throws SQLException, IOException {
+        for (Binder[] row : getBatchBinders()) {
+            for (int i = 0; i < row.length; i++) {
+                row[i].bind(pstmt);
+            }
+            pstmt.addBatch();
+        }
+    }
+
+    private Binder[][] getBatchBinders() throws SQLException, IOException {
+        if (batchBinders == null) {
+            List<Binder[]> rows = new ArrayList<Binder[]>();
+            for (String line : argumentsSource.split("\\r?\\n")) { // $NON-NLS-1$
+                if (line.trim().length() > 0) {
+                    rows.add(compileBinders(line, typesSource));
+                }
+            }
+            if (rows.isEmpty()) { // statement without parameters
+                rows.add(new Binder[0]);
+            }
+            batchBinders = rows.toArray(new Binder[rows.size()][]);
+        }
+        return batchBinders;
+    }
+
+    private static Binder[] compileBinders(String queryArguments,
+            String queryArgumentsTypes) throws SQLException, IOException {
+        if (queryArguments.trim().length() == 0) {
+            return new Binder[0];
+        }
+        String[] arguments = CSVSaveService.csvSplitString(queryArguments,
+                COMMA_CHAR);
+        String[] argumentsTypes = queryArgumentsTypes.split(COMMA);
+        if (arguments.length != argumentsTypes.length) {
+            throw new SQLException("number of arguments (" + arguments.length
+                    + ") and number of types (" + argumentsTypes.length
+                    + ") are not equal");
+        }
+        Binder[] binders = new Binder[arguments.length];
+        for (int i = 0; i < arguments.length; i++) {
+            String argumentType = argumentsTypes[i];
+            String[] arg = argumentType.split(" ");
+            String inputOutput = "";
+            if (arg.length > 1) {
+                argumentType = arg[1];
+                inputOutput = arg[0];
+            }
+            binders[i] = new Binder(i + 1, getJdbcType(argumentType),
+                    !OUT.equalsIgnoreCase(inputOutput),
+                    OUT.equalsIgnoreCase(inputOutput)
+                            || INOUT.equalsIgnoreCase(inputOutput),
+                    arguments[i]);
+        }
+        return binders;
+    }
+
+    static int getJdbcType(String jdbcType) throws SQLException {
+        Integer entry = mapJdbcNameToInt.get(jdbcType
+                .toLowerCase(java.util.Locale.ENGLISH));
+        if (entry == null) {
+            try {
+                entry = Integer.decode(jdbcType);
+            } catch (NumberFormatException e) {
+                throw new SQLException("Invalid data type: " + jdbcType);
+            }
+        }
+        return (entry).intValue();
+    }
+
+    /**
+     * One statement parameter with its value already converted to the Java
+     * type of the matching typed setter.
+     */
+    private static final class Binder {
+        // Setter used to bind the value
+        private static final int SET_NULL = 0;
+        private static final int SET_OBJECT = 1;
+        private static final int SET_STRING = 2;
+        private static final int SET_INT = 3;
+        private static final int SET_LONG = 4;
+        private static final int SET_DOUBLE = 5;
+        private static final int SET_FLOAT = 6;
+        private static final int SET_BIG_DECIMAL = 7;
+        private static final int SET_DATE = 8;
+        private static final int SET_TIME = 9;
+        private static final int SET_TIMESTAMP = 10;
+
+        private final int index;
+
+        private final int sqlType;
+
+        private final boolean input;
+
+        private final boolean output;
+
+        private final int setter;
+
+        private final String text;
+
+        private final int intValue;
+
+        private final long longValue;
+
+        private final double doubleValue;
+
+        private final Object value;
+
+        Binder(int index, int sqlType, boolean input, boolean output,
+                String text) {
+            this.index = index;
+            this.sqlType = sqlType;
+            this.input = input;
+            this.output = output;
+            this.text = text;
+            int set = SET_OBJECT;
+            int i = 0;
+            long l = 0;
+            double d = 0;
+            Object o = null;
+            if (text.equals(NULL_MARKER)) {
+                set = SET_NULL;
+            } else {
+                // Anything the JDK cannot parse is left to the driver via
+                // setObject, as before
+                try {
+                    switch (sqlType) {
+                    case Types.CHAR:
+                    case Types.VARCHAR:
+                    case Types.LONGVARCHAR:
+                        set = SET_STRING;
+                        break;
+                    case Types.TINYINT:
+                    case Types.SMALLINT:
+                    case Types.INTEGER:
+                        i = Integer.parseInt(text.trim());
+                        set = SET_INT;
+                        break;
+                    case Types.BIGINT:
+                        l = Long.parseLong(text.trim());
+                        set = SET_LONG;
+                        break;
+                    case Types.FLOAT:
+                    case Types.DOUBLE:
+                        d = Double.parseDouble(text.trim());
+                        set = SET_DOUBLE;
+                        break;
+                    case Types.REAL:
+                        d = Float.parseFloat(text.trim());
+                        set = SET_FLOAT;
+                        break;
+                    case Types.DECIMAL:
+                    case Types.NUMERIC:
+                        o = new BigDecimal(text.trim());
+                        set = SET_BIG_DECIMAL;
+                        break;
+                    case Types.DATE:
+                        o = Date.valueOf(text.trim());
+                        set = SET_DATE;
+                        break;
+                    case Types.TIME:
+                        o = Time.valueOf(text.trim());
+                        set = SET_TIME;
+                        break;
+                    case Types.TIMESTAMP:
+                        o = Timestamp.valueOf(text.trim());
+                        set = SET_TIMESTAMP;
+                        break;
+                    default:
+                        break;
+                    }
+                } catch (IllegalArgumentException e) { // includes NumberFormatException
+                    set = SET_OBJECT;
+                }
+            }
+            this.setter = set;
+            this.intValue = i;
+            this.longValue = l;
+            this.doubleValue = d;
+            this.value = o;
+        }
+
+        int bind(PreparedStatement pstmt) throws SQLException {
+            if (input) {
+                switch (setter) {
+                case SET_NULL:
+                    pstmt.setNull(index, sqlType);
+                    break;
+                case SET_STRING:
+                    pstmt.setString(index, text);
+                    break;
+                case SET_INT:
+                    pstmt.setInt(index, intValue);
+                    break;
+                case SET_LONG:
+                    pstmt.setLong(index, longValue);
+                    break;
+                case SET_DOUBLE:
+                    pstmt.setDouble(index, doubleValue);
+                    break;
+                case SET_FLOAT:
+                    pstmt.setFloat(index, (float) doubleValue);
+                    break;
+                case SET_BIG_DECIMAL:
+                    pstmt.setBigDecimal(index, (BigDecimal) value);
+                    break;
+                case SET_DATE:
+                    pstmt.setDate(index, (Date) value);
+                    break;
+                case SET_TIME:
+                    pstmt.setTime(index, (Time) value);
+                    break;
+                case SET_TIMESTAMP:
+                    pstmt.setTimestamp(index, (Timestamp) value);
+                    break;
+                default:
+                    pstmt.setObject(index, text, sqlType);
+                }
+            }
+            if (output) {
+                CallableStatement cs = (CallableStatement) pstmt;
+                cs.registerOutParameter(index, sqlType);
+                return sqlType;
+            }
+            return java.sql.Types.NULL; // can't have an output parameter
+                                        // type null
+        }
+    }
+}
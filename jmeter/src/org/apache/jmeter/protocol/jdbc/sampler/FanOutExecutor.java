@@ -0,0 +1,72 @@
+package org.apache.jmeter.protocol.jdbc.sampler;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.jorphan.logging.LoggingManager;
+import org.apache.log.Logger;
+
+/**
+ * Executor running the concurrent queries of fan-out samples, shared by all
+ * JMeter threads.
+ * <p>
+ * On a JVM with virtual threads each query gets a virtual thread, so a
+ * JMeter thread can keep many queries in flight without as many platform
+ * threads. Older JVMs get a cached pool of daemon platform threads instead.
+ * The executor is looked up by reflection so that this class still
+ * compiles and runs on the Java version JMeter is built for.
+ */
+final class FanOutExecutor {
+
+    private static final Logger log = LoggingManager.getLoggerForClass();
+
+    private static volatile ExecutorService executor;
+
+    private FanOutExecutor() {
+    }
+
+    /**
+     * @return the shared executor, created on first use
+     */
+    static ExecutorService get() {
+        ExecutorService result = executor;
+        if (result == null) {
+            synchronized (FanOutExecutor.class) {
+                result = executor;
+                if (result == null) {
+                    result = create();
+                    executor = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static ExecutorService create() {
+        try {
+            Method factory = Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor"); // $NON-NLS-1$
+            ExecutorService virtual = (ExecutorService) factory.invoke(null);
+            log.info("Running fan-out queries on virtual threads");
+            return virtual;
+        } catch (NoSuchMethodException e) {
+            log.info("Virtual threads not available, running fan-out queries on platform threads");
+        } catch (Exception e) {
+            log.warn("Could not create virtual thread executor, running fan-out queries on platform threads: "
+                    + e);
+        }
+        return Executors.newCachedThreadPool(new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "JDBC fan-out-" // $NON-NLS-1$
+                        + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+}
@@ -0,0 +1,139 @@
+package org.apache.jmeter.protocol.jdbc.sampler;
+
+import org.apache.jmeter.samplers.SampleResult;
+
+/**
+ * Records when the phases of a query completed: statement execution, the
+ * first row and the last row. Times are measured with
+ * {@link System#nanoTime()} from the start of execution and reported as
+ * sub-results of the sample, each starting when execution started.
+ * <p>
+ * Instances are held by a single (per-thread) sampler and reused.
+ */
+final class FetchTimings {
+
+    private static final long NOT_RECORDED = -1;
+
+    private long startMillis;
+
+    private long startNanos;
+
+    private long executeNanos = NOT_RECORDED;
+
+    private long firstRowNanos = NOT_RECORDED;
+
+    private long lastRowNanos = NOT_RECORDED;
+
+    private int rowCount = -1;
+
+    private boolean started;
+
+    /**
+     * Forgets the previous sample; to be called before anything else.
+     */
+    void reset() {
+        started = false;
+        executeNanos = NOT_RECORDED;
+        firstRowNanos = NOT_RECORDED;
+        lastRowNanos = NOT_RECORDED;
+        rowCount = -1;
+    }
+
+    /** Marks the start of statement execution */
+    void start() {
+        started = true;
+        startMillis = System.currentTimeMillis();
+        startNanos = System.nanoTime();
+    }
+
+    /** Marks the return of executeQuery */
+    void executed() {
+        executeNanos = System.nanoTime() - startNanos;
+    }
+
+    /** Marks the return of the first call to ResultSet.next() */
+    void firstRow() {
+        firstRowNanos = System.nanoTime() - startNanos;
+    }
+
+    /**
+     * Marks the end of the fetch: the return of the last call to
+     * ResultSet.next(), or the last row read if reading stopped before the
+     * end of the result set
+     */
+    void lastRow() {
+        lastRowNanos = System.nanoTime() - startNanos;
+    }
+
+    void setRowCount(int rows) {
+        rowCount = rows;
+    }
+
+    boolean isStarted() {
+        return started;
+    }
+
+    /**
+     * @return number of rows read, or -1 if rows were not counted
+     */
+    int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @return nanoseconds from the start of execution to the return of
+     *         executeQuery, or -1 if not recorded
+     */
+    long getExecuteNanos() {
+        return executeNanos;
+    }
+
+    /**
+     * @return nanoseconds from the start of execution to the first row, or
+     *         -1 if not recorded
+     */
+    long getFirstRowNanos() {
+        return firstRowNanos;
+    }
+
+    /**
+     * @return nanoseconds from the start of execution to the end of the
+     *         result set, or -1 if not recorded
+     */
+    long getLastRowNanos() {
+        return lastRowNanos;
+    }
+
+    /**
+     * Adds one sub-result per recorded phase to <code>parent</code>.
+     *
+     * @param parent
+     *            the sample to add to
+     * @param label
+     *            label prefix of the sub-results
+     */
+    void addSubResults(SampleResult parent, String label) {
+        if (!started) {
+            return;
+        }
+        addSubResult(parent, label + " - execute", executeNanos, ""); // $NON-NLS-1$
+        addSubResult(parent, label + " - first row", firstRowNanos, ""); // $NON-NLS-1$
+        addSubResult(parent, label + " - last row", lastRowNanos, // $NON-NLS-1$
+                rowCount + " rows"); // $NON-NLS-1$
+    }
+
+    private void addSubResult(SampleResult parent, String label, long nanos,
+            String message) {
+        if (nanos == NOT_RECORDED) {
+            return;
+        }
+        SampleResult sub = new SampleResult();
+        sub.setSampleLabel(label);
+        sub.setDataType(SampleResult.TEXT);
+        sub.setStampAndTime(startMillis, nanos / 1000000L);
+        sub.setSuccessful(parent.isSuccessful());
+        sub.setResponseCodeOK();
+        sub.setResponseMessage(message);
+        parent.addSubResult(sub);
+    }
+}
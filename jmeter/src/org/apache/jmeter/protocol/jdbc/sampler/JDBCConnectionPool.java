@@ -0,0 +1,319 @@
+package org.apache.jmeter.protocol.jdbc.sampler;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jmeter.util.JMeterUtils;
+import org.apache.jorphan.logging.LoggingManager;
+import org.apache.log.Logger;
+
+/**
+ * Minimal bounded connection pool used by {@link JavaJDBCSampler}.
+ * <p>
+ * One pool exists per driver/URL/user combination and is shared by every
+ * JMeter thread that references it. Threads attach to a pool in
+ * <code>setupTest</code> and detach in <code>teardownTest</code>; the pool
+ * closes its idle connections once the last thread has detached.
+ * <p>
+ * Idle connections are kept in LIFO order so the most recently used (and
+ * therefore warmest) connection is handed out first, and connections idle
+ * for longer than the configured limit are evicted on borrow and release.
+ * When validation on borrow is enabled, only connections idle for longer
+ * than <code>jdbcsampler.validation_bypass_ms</code> are validated, so a
+ * connection handed straight back to the next sample costs no round trip.
+ */
+class JDBCConnectionPool {
+
+    private static final Logger log = LoggingManager.getLoggerForClass();
+
+    /** Connections idle for at most this long are trusted without validation */
+    private static final long VALIDATION_BYPASS_MILLIS = JMeterUtils.getPropDefault(
+            "jdbcsampler.validation_bypass_ms", 500L); // $NON-NLS-1$
+
+    /** Drivers already loaded in this JVM, keyed by class name */
+    private static final ConcurrentMap<String, Boolean> loadedDrivers = new ConcurrentHashMap<String, Boolean>();
+
+    /** Live pools keyed by driver, URL and user */
+    private static final ConcurrentMap<String, JDBCConnectionPool> pools = new ConcurrentHashMap<String, JDBCConnectionPool>();
+
+    private final String key;
+
+    private final String url;
+
+    private final String user;
+
+    private final String password;
+
+    private final int maxSize;
+
+    private final long maxIdleMillis;
+
+    private final boolean validateOnBorrow;
+
+    private final String validationQuery;
+
+    /** Bounds the number of connections handed out; null if unbounded */
+    private final Semaphore permits;
+
+    private final LinkedBlockingDeque<IdleConnection> idle = new LinkedBlockingDeque<IdleConnection>();
+
+    /** Number of attached threads, guarded by pools map */
+    private int references;
+
+    private JDBCConnectionPool(String key, String url, String user,
+            String password, int maxSize, long maxIdleMillis,
+            boolean validateOnBorrow, String validationQuery) {
+        this.key = key;
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.maxIdleMillis = maxIdleMillis;
+        this.validateOnBorrow = validateOnBorrow;
+        this.validationQuery = validationQuery;
+        this.permits = maxSize > 0 ? new Semaphore(maxSize, true) : null;
+    }
+
+    /**
+     * Loads the JDBC driver class once per JVM.
+     *
+     * @param driverClass
+     *            fully qualified name of the driver
+     * @throws SQLException
+     *             if the driver cannot be loaded
+     */
+    static void loadDriver(String driverClass) throws SQLException {
+        if (loadedDrivers.containsKey(driverClass)) {
+            return;
+        }
+        try {
+            // Some older drivers only register themselves on instantiation
+            Class.forName(driverClass).newInstance();
+        } catch (Exception e) {
+            throw new SQLException("Could not load driver " + driverClass
+                    + ": " + e);
+        }
+        loadedDrivers.putIfAbsent(driverClass, Boolean.TRUE);
+    }
+
+    /**
+     * Opens a new unpooled connection, loading the driver if required.
+     */
+    static Connection openConnection(String driverClass, String url,
+            String user, String password) throws SQLException {
+        loadDriver(driverClass);
+        return DriverManager.getConnection(url, user, password);
+    }
+
+    /**
+     * Attaches the caller to the pool for the given settings, creating it if
+     * necessary. Every call must be matched by a call to {@link #detach()}.
+     * The sizing and validation settings of the first caller win.
+     */
+    static JDBCConnectionPool attach(String driverClass, String url,
+            String user, String password, int maxSize, long maxIdleMillis,
+            boolean validateOnBorrow, String validationQuery)
+            throws SQLException {
+        loadDriver(driverClass);
+        String poolKey = driverClass + '|' + url + '|' + user;
+        synchronized (pools) {
+            JDBCConnectionPool pool = pools.get(poolKey);
+            if (pool == null) {
+                pool = new JDBCConnectionPool(poolKey, url, user, password,
+                        maxSize, maxIdleMillis, validateOnBorrow,
+                        validationQuery);
+                pools.put(poolKey, pool);
+            }
+            pool.references++;
+            return pool;
+        }
+    }
+
+    /**
+     * Detaches the caller; the last caller to detach closes the pool.
+     */
+    void detach() {
+        synchronized (pools) {
+            if (--references > 0) {
+                return;
+            }
+            pools.remove(key);
+        }
+        closeIdle();
+    }
+
+    /**
+     * Borrows a connection, waiting at most <code>timeoutMillis</code> for
+     * one to become available.
+     *
+     * @param timeoutMillis
+     *            maximum time to wait if the pool is exhausted
+     * @return a connection, validated if it was idle for long enough
+     * @throws SQLException
+     *             if no connection could be obtained in time
+     */
+    Connection borrow(long timeoutMillis) throws SQLException {
+        if (permits != null) {
+            boolean acquired;
+            try {
+                acquired = permits.tryAcquire(timeoutMillis,
+                        TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted waiting for connection");
+            }
+            if (!acquired) {
+                throw new SQLException("Timed out after " + timeoutMillis
+                        + "ms waiting for one of " + maxSize
+                        + " pooled connections to " + url);
+            }
+        }
+        try {
+            IdleConnection entry;
+            while ((entry = idle.pollFirst()) != null) {
+                long now = System.currentTimeMillis();
+                if (isExpired(entry, now)
+                        || (needsValidation(entry, now) && !isValid(entry.connection))) {
+                    discard(entry.connection);
+                    continue;
+                }
+                return entry.connection;
+            }
+            return DriverManager.getConnection(url, user, password);
+        } catch (SQLException e) {
+            releasePermit();
+            throw e;
+        } catch (RuntimeException e) {
+            releasePermit();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a connection to the pool.
+     *
+     * @param conn
+     *            the connection, may be null
+     * @param broken
+     *            true if the connection failed and must not be reused
+     */
+    void release(Connection conn, boolean broken) {
+        if (conn == null) {
+            return;
+        }
+        try {
+            if (broken || conn.isClosed()) {
+                discard(conn);
+            } else {
+                idle.offerFirst(new IdleConnection(conn,
+                        System.currentTimeMillis()));
+            }
+        } catch (SQLException e) {
+            discard(conn);
+        } finally {
+            releasePermit();
+        }
+        evictIdle();
+    }
+
+    private void releasePermit() {
+        if (permits != null) {
+            permits.release();
+        }
+    }
+
+    /**
+     * Closes connections at the cold end of the idle deque that have been
+     * idle longer than allowed.
+     */
+    private void evictIdle() {
+        if (maxIdleMillis <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        IdleConnection oldest;
+        while ((oldest = idle.peekLast()) != null && isExpired(oldest, now)) {
+            if (idle.removeLastOccurrence(oldest)) {
+                discard(oldest.connection);
+            }
+        }
+    }
+
+    private boolean isExpired(IdleConnection entry, long now) {
+        return maxIdleMillis > 0 && now - entry.idleSince > maxIdleMillis;
+    }
+
+    private boolean needsValidation(IdleConnection entry, long now) {
+        return validateOnBorrow
+                && now - entry.idleSince > VALIDATION_BYPASS_MILLIS;
+    }
+
+    private boolean isValid(Connection conn) {
+        try {
+            if (validationQuery.length() == 0) {
+                return conn.isValid(0);
+            }
+            Statement st = conn.createStatement();
+            try {
+                ResultSet rs = st.executeQuery(validationQuery);
+                rs.close();
+            } finally {
+                st.close();
+            }
+            return true;
+        } catch (SQLException e) {
+            log.debug("Discarding invalid connection to " + url + ": " + e);
+            return false;
+        }
+    }
+
+    private void closeIdle() {
+        for (Iterator<IdleConnection> it = idle.iterator(); it.hasNext();) {
+            IdleConnection entry = it.next();
+            it.remove();
+            discard(entry.connection);
+        }
+    }
+
+    /**
+     * Closes a connection together with the statements cached for it.
+     *
+     * @param conn
+     *            the connection, may be null
+     */
+    static void discard(Connection conn) {
+        AbstractJDBCQuerySampler.perConnCache.release(conn);
+        closeQuietly(conn);
+    }
+
+    static void closeQuietly(Connection conn) {
+        if (conn == null) {
+            return;
+        }
+        try {
+            conn.close();
+        } catch (SQLException e) {
+            log.warn("Error closing connection: " + e);
+        }
+    }
+
+    private static final class IdleConnection {
+        private final Connection connection;
+
+        private final long idleSince;
+
+        IdleConnection(Connection connection, long idleSince) {
+            this.connection = connection;
+            this.idleSince = idleSince;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package org.apache.jmeter.protocol.jdbc.sampler;
 
+import java.beans.PropertyDescriptor;
+
 import org.apache.jmeter.protocol.jdbc.JDBCTestElementBeanInfoSupport;
 
 public class JDBCFetchlessSamplerBeanInfo extends
@@ -7,5 +9,16 @@ public class JDBCFetchlessSamplerBeanInfo extends
 
 	public JDBCFetchlessSamplerBeanInfo() {
 		super(JDBCFetchlessSampler.class);
+
+		createPropertyGroup("fetch", new String[] { "fetchMode" }); // $NON-NLS-1$ $NON-NLS-2$
+
+		PropertyDescriptor p = property("fetchMode"); // $NON-NLS-1$
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, JDBCFetchlessSampler.FETCH_METADATA);
+		p.setValue(NOT_OTHER, Boolean.TRUE);
+		p.setValue(TAGS, new String[] { JDBCFetchlessSampler.FETCH_METADATA,
+				JDBCFetchlessSampler.FETCH_FIRST_ROW,
+				JDBCFetchlessSampler.FETCH_DRAIN,
+				JDBCFetchlessSampler.FETCH_MATERIALIZE });
 	}
 }
@@ -2,87 +2,95 @@ package org.apache.jmeter.protocol.jdbc.sampler;
 
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
-import java.lang.reflect.Field;
-import java.sql.CallableStatement;
 import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.jmeter.protocol.jdbc.config.DataSourceElement;
-import org.apache.jmeter.save.CSVSaveService;
-import org.apache.jmeter.threads.JMeterVariables;
-import org.apache.jmeter.util.JMeterUtils;
+import org.apache.jmeter.samplers.Entry;
+import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jorphan.logging.LoggingManager;
 import org.apache.log.Logger;
 
-public class JDBCPageNoPoolSampler extends JDBCSampler {
+/**
+ * Page sampler that takes its own connection from the data source rather
+ * than the one JDBCSampler borrowed for the sample, keeping it for
+ * <code>reconnectEvery</code> samples. This models clients anywhere between
+ * fully pooled (0: one connection per thread) and unpooled (1: a new
+ * connection per sample). When samples are routed over several data
+ * sources, a connection is held for each.
+ * <p>
+ * The data source is a pool, so acquiring a connection means borrowing it,
+ * and waiting for it if the pool is exhausted, plus a physical connect when
+ * the pool has to open one; the two cannot be told apart from here. The
+ * acquisition is added to the sample latency, which already holds the time
+ * JDBCSampler took to borrow its own connection, and the acquisition and
+ * the query are added as "borrow + connect" and "query" sub-results. An
+ * acquisition only times a lookup while a connection is held.
+ */
+public class JDBCPageNoPoolSampler extends AbstractJDBCQuerySampler {
 	private static final long serialVersionUID = -659610836561775584L;
 
 	private static final Logger log = LoggingManager.getLoggerForClass();
 
-	private static final String COMMA = ","; // $NON-NLS-1$
-	private static final char COMMA_CHAR = ',';
-	
-	private static final String UNDERSCORE = "_"; // $NON-NLS-1$
-
-	// String used to indicate a null value
-	private static final String NULL_MARKER = JMeterUtils.getPropDefault(
-			"jdbcsampler.nullmarker", "]NULL["); // $NON-NLS-1$
-
-	private static final String INOUT = "INOUT"; // $NON-NLS-1$
-
-	private static final String OUT = "OUT"; // $NON-NLS-1$
-
-	// key: name (lowercase) from java.sql.Types; entry: corresponding int value
-	private static final Map<String, Integer> mapJdbcNameToInt;
-	// read-only after class init
-
-	static {
-		// based on e291. Getting the Name of a JDBC Type from javaalmanac.com
-		// http://javaalmanac.com/egs/java.sql/JdbcInt2Str.html
-		mapJdbcNameToInt = new HashMap<String, Integer>();
-
-		// Get all fields in java.sql.Types and store the corresponding int
-		// values
-		Field[] fields = java.sql.Types.class.getFields();
-		for (int i = 0; i < fields.length; i++) {
-			try {
-				String name = fields[i].getName();
-				Integer value = (Integer) fields[i].get(null);
-				mapJdbcNameToInt.put(
-						name.toLowerCase(java.util.Locale.ENGLISH), value);
-			} catch (IllegalAccessException e) {
-				throw new RuntimeException(e); // should not happen
-			}
-		}
-	}
+	/** Number of samples run on a connection before it is replaced, 0 for never */
+	private int reconnectEvery = 1;
 
-	// Query types (used to communicate with GUI)
-	// N.B. These must not be changed, as they are used in the JMX files
-	public static final String SELECT = "Select Statement"; // $NON-NLS-1$
-	public static final String UPDATE = "Update Statement"; // $NON-NLS-1$
-	public static final String CALLABLE = "Callable Statement"; // $NON-NLS-1$
-	public static final String PREPARED_SELECT = "Prepared Select Statement"; // $NON-NLS-1$
-	public static final String PREPARED_UPDATE = "Prepared Update Statement"; // $NON-NLS-1$
-	public static final String COMMIT = "Commit"; // $NON-NLS-1$
-	public static final String ROLLBACK = "Rollback"; // $NON-NLS-1$
-	public static final String AUTOCOMMIT_FALSE = "AutoCommit(false)"; // $NON-NLS-1$
-	public static final String AUTOCOMMIT_TRUE = "AutoCommit(true)"; // $NON-NLS-1$
+	/** Bytes of a select response kept in the result, 0 for all */
+	private int maxRetainedBytes;
 
-	/**
-	 * Cache of PreparedStatements stored in a per-connection basis. Each entry
-	 * of this cache is another Map mapping the statement string to the actual
-	 * PreparedStatement. At one time a Connection is only held by one thread
-	 */
-	private static final Map<Connection, Map<String, PreparedStatement>> perConnCache = new ConcurrentHashMap<Connection, Map<String, PreparedStatement>>();
+	/** Whether successful selects drop their response data */
+	private boolean retainOnErrorOnly;
+
+	/** Variable the row count is exported to, empty for none */
+	private String rowCountVariable = ""; // $NON-NLS-1$
+
+	/** Response size past which a select spills to a file, 0 for never */
+	private int spillThreshold;
+
+	/** Whether the spill file is deleted at the end of the sample */
+	private boolean deleteSpillFile = true;
+
+	/** How samples are spread over several data sources */
+	private String routingMode = ROUTE_ROUND_ROBIN;
+
+	/** Argument hashed by the hash routing mode, starting at 1 */
+	private int routingParameter = 1;
+
+	/** Binary parameter file bound instead of the query arguments */
+	private String parameterFile = ""; // $NON-NLS-1$
+
+	/** How binary and large text columns are written */
+	private String lobMode = LOB_FULL;
+
+	/** Digest mode, one of the DIGEST_ constants */
+	private String digestMode = DIGEST_NONE;
+
+	/** Digest a select must produce to succeed, empty for no check */
+	private String expectedDigest = ""; // $NON-NLS-1$
+
+	/** Variable the digest is exported to, empty for none */
+	private String digestVariable = ""; // $NON-NLS-1$
+
+	/** Number of prepared updates sent per batch, 0 or 1 for no batching */
+	private int batchSize;
+
+	/** Milliseconds after which a partial batch is sent, 0 for no time bound */
+	private long batchTimeout;
+
+	// Connections held by this (per-thread) element, by data source
+	private transient Map<String, HeldConnection> connections = new HashMap<String, HeldConnection>();
+
+	// Connection of the current sample
+	private transient HeldConnection held;
+
+	// Phases of the current sample, -1 if not reached; connect is the
+	// borrow from the pool, including any physical connect it makes
+	private transient long connectStart;
+	private transient long connectNanos;
+	private transient long queryNanos;
 
 	/**
 	 * Creates a No-Fetch JDBCSampler.
@@ -91,249 +99,268 @@ public class JDBCPageNoPoolSampler extends JDBCSampler {
 
 	}
 
+	/**
+	 * Adds the acquisition and query times of the sample as sub-results.
+	 */
+	@Override
+	public SampleResult sample(Entry e) {
+		connectNanos = -1;
+		queryNanos = -1;
+		SampleResult res = super.sample(e);
+		if (res != null && connectNanos >= 0) {
+			long connectMillis = connectNanos / 1000000L;
+			res.setLatency(res.getLatency() + connectMillis);
+			addSubResult(res, res.getSampleLabel() + " - borrow + connect", // $NON-NLS-1$
+					connectStart, connectMillis);
+			if (queryNanos >= 0) {
+				addSubResult(res, res.getSampleLabel() + " - query", // $NON-NLS-1$
+						connectStart + connectMillis, queryNanos / 1000000L);
+			}
+		}
+		return res;
+	}
+
+	private static void addSubResult(SampleResult parent, String label,
+			long start, long millis) {
+		SampleResult sub = new SampleResult();
+		sub.setSampleLabel(label);
+		sub.setDataType(SampleResult.TEXT);
+		sub.setStampAndTime(start, millis);
+		sub.setSuccessful(parent.isSuccessful());
+		sub.setResponseCodeOK();
+		sub.setResponseMessage(""); // $NON-NLS-1$
+		parent.addSubResult(sub);
+	}
+
 	@Override
 	protected byte[] execute(Connection conn) throws SQLException,
 			UnsupportedEncodingException, IOException,
 			UnsupportedOperationException {
-		log.info("executing jdbc query");
-		Statement stmt = null;
-		Connection newConn = null;
-		log.info("connection established");
+		connectStart = System.currentTimeMillis();
+		long start = System.nanoTime();
+		Connection queryConn = getConnection();
+		long connected = System.nanoTime();
+		connectNanos = connected - start;
+		boolean broken = true;
 		try {
-		    newConn = DataSourceElement.getConnection(getDataSource());
-		    // Based on query return value, get results
-			String _queryType = getQueryType();
-			if (SELECT.equals(_queryType)) {
-				stmt = newConn.createStatement();
-				ResultSet rs = null;
-				try {
-					rs = stmt.executeQuery(getQuery());
-					return getStringFromResultSet(rs).getBytes(ENCODING);
-				} finally {
-					close(rs);
-				}
-			} else if (CALLABLE.equals(_queryType)) {
-				return super.execute(newConn);
-			} else if (UPDATE.equals(_queryType)) {
-				return super.execute(newConn);
-			} else if (PREPARED_SELECT.equals(_queryType)) {
-				PreparedStatement pstmt = getPreparedStatement(newConn);
-				setArguments(pstmt);
-				ResultSet rs = null;
-				try {
-					rs = pstmt.executeQuery();
-					return getStringFromResultSet(rs).getBytes(ENCODING);
-				} finally {
-					close(rs);
-				}
-			} else if (PREPARED_UPDATE.equals(_queryType)) {
-				return super.execute(newConn);
-			} else if (ROLLBACK.equals(_queryType)) {
-				return super.execute(newConn);
-			} else if (COMMIT.equals(_queryType)) {
-				return super.execute(newConn);
-			} else if (AUTOCOMMIT_FALSE.equals(_queryType)) {
-				return super.execute(newConn);
-			} else if (AUTOCOMMIT_TRUE.equals(_queryType)) {
-				return super.execute(newConn);
-			} else { // User provided incorrect query type
-				return super.execute(newConn);
-			}
+			byte[] result = super.execute(queryConn);
+			broken = false;
+			return result;
 		} catch (SQLException e) {
-		    log.info("error: " + e);
-		    throw e;
+			if (log.isDebugEnabled()) {
+				log.debug("error: " + e);
+			}
+			throw e;
 		} finally {
-		    log.info("closing");
-			close(stmt);
-			close(newConn);
+			queryNanos = System.nanoTime() - connected;
+			if (broken || (reconnectEvery > 0
+					&& held.samples >= reconnectEvery)) {
+				closeConnection(held);
+			}
 		}
 	}
 
 	/**
-	 * Gets a Data object from a ResultSet.
-	 * 
-	 * @param rs
-	 *            ResultSet passed in from a database query
-	 * @return a Data object
-	 * @throws java.sql.SQLException
-	 * @throws UnsupportedEncodingException
+	 * @return the connection held for the data source of the sample, opened
+	 *         if there is none
 	 */
-	private String getStringFromResultSet(ResultSet rs) throws SQLException,
-			UnsupportedEncodingException {
-		ResultSetMetaData meta = rs.getMetaData();
-
-		StringBuilder sb = new StringBuilder();
-
-		int numColumns = meta.getColumnCount();
-		for (int i = 1; i <= numColumns; i++) {
-			sb.append(meta.getColumnName(i));
-			if (i == numColumns) {
-				sb.append('\n');
-			} else {
-				sb.append('\t');
+	private Connection getConnection() throws SQLException {
+		String dataSource = getDataSource();
+		held = connections.get(dataSource);
+		if (held == null) {
+			if (log.isDebugEnabled()) {
+				log.debug("opening connection from " + dataSource);
 			}
+			held = new HeldConnection(dataSource,
+					DataSourceElement.getConnection(dataSource));
+			connections.put(dataSource, held);
 		}
-
-        JMeterVariables jmvars = getThreadContext().getVariables();
-        String varnames[] = getVariableNames().split(COMMA);
-        String resultVariable = getResultVariable().trim();
-        List<Map<String, Object> > results = null;
-        if(resultVariable.length() > 0) {
-            results = new ArrayList<Map<String,Object> >();
-            jmvars.putObject(resultVariable, results);
-        }
-        
-        final int limit = Integer.valueOf(jmvars.get("row_limit")); //TODO Read Row Limit from Vars
-        int idx = 0, j = 0;
-        while (idx < limit && rs.next()) {
-        	idx++;
-            Map<String, Object> row = null;
-            j++;
-            for (int i = 1; i <= numColumns; i++) {
-                Object o = rs.getObject(i);
-                if(results != null) {
-                    if(row == null) {
-                        row = new HashMap<String, Object>(numColumns);
-                        results.add(row);
-                    }
-                    row.put(meta.getColumnName(i), o);
-                }
-                if (o instanceof byte[]) {
-                    o = new String((byte[]) o, ENCODING);
-                }
-                sb.append(o);
-                if (i==numColumns){
-                    sb.append('\n');
-                } else {
-                    sb.append('\t');
-                }
-                if (i <= varnames.length) { // i starts at 1
-                    String name = varnames[i - 1].trim();
-                    if (name.length()>0){ // Save the value in the variable if present
-                        jmvars.put(name+UNDERSCORE+j, o == null ? null : o.toString());
-                    }
-                }
-            }
-        }
-        // Remove any additional values from previous sample
-        for(int i=0; i < varnames.length; i++){
-            String name = varnames[i].trim();
-            if (name.length()>0 && jmvars != null){
-                final String varCount = name+"_#"; // $NON-NLS-1$
-                // Get the previous count
-                String prevCount = jmvars.get(varCount);
-                if (prevCount != null){
-                    int prev = Integer.parseInt(prevCount);
-                    for (int n=j+1; n <= prev; n++ ){
-                        jmvars.remove(name+UNDERSCORE+n);
-                    }
-                }
-                jmvars.put(varCount, Integer.toString(j)); // save the current count
-            }
-        }
-
-		return sb.toString();
+		held.samples++;
+		return held.connection;
 	}
 
-	/**
-	 * Direct copy from {@link AbstractJDBCTestElement}.
-	 */
-	private PreparedStatement getPreparedStatement(Connection conn)
-			throws SQLException {
-		final boolean callable = false;
-		Map<String, PreparedStatement> preparedStatementMap = perConnCache
-				.get(conn);
-		if (null == preparedStatementMap) {
-			preparedStatementMap = new ConcurrentHashMap<String, PreparedStatement>();
-			// As a connection is held by only one thread, we cannot already
-			// have a
-			// preparedStatementMap put by another thread
-			perConnCache.put(conn, preparedStatementMap);
-		}
-		PreparedStatement pstmt = preparedStatementMap.get(getQuery());
-		if (null == pstmt) {
-			if (callable) {
-				pstmt = conn.prepareCall(getQuery());
-			} else {
-				pstmt = conn.prepareStatement(getQuery());
-			}
-			// PreparedStatementMap is associated to one connection so
-			// 2 threads cannot use the same PreparedStatement map at the same
-			// time
-			preparedStatementMap.put(getQuery(), pstmt);
+	private void closeConnection(HeldConnection c) {
+		if (log.isDebugEnabled()) {
+			log.debug("closing connection after " + c.samples + " samples");
 		}
-		pstmt.clearParameters();
-		return pstmt;
+		connections.remove(c.dataSource);
+		// The connection is not reused, so its statements cannot be either
+		perConnCache.release(c.connection);
+		close(c.connection);
+	}
+
+	@Override
+	ResultSetConsumer createConsumer(ExecutionPlan plan, ResultSetEncoder body) {
+		return ResultSetConsumers.chain(new ResultSetConsumers.Variables(
+				getThreadContext().getVariables(), getColumnVariables(),
+				plan.getResultVariable()),
+				new ResultSetConsumers.TsvBody(body));
 	}
 
 	/**
-	 * Direct copy from {@link AbstractJDBCTestElement}.
+	 * @return the <code>row_limit</code> variable, 0 (no limit) if unset
 	 */
-	private int[] setArguments(PreparedStatement pstmt) throws SQLException,
-			IOException {
-		if (getQueryArguments().trim().length() == 0) {
-			return new int[] {};
-		}
-		String[] arguments = CSVSaveService.csvSplitString(getQueryArguments(),
-				COMMA_CHAR);
-		String[] argumentsTypes = getQueryArgumentsTypes().split(COMMA);
-		if (arguments.length != argumentsTypes.length) {
-			throw new SQLException("number of arguments (" + arguments.length
-					+ ") and number of types (" + argumentsTypes.length
-					+ ") are not equal");
-		}
-		int[] outputs = new int[arguments.length];
-		for (int i = 0; i < arguments.length; i++) {
-			String argument = arguments[i];
-			String argumentType = argumentsTypes[i];
-			String[] arg = argumentType.split(" ");
-			String inputOutput = "";
-			if (arg.length > 1) {
-				argumentType = arg[1];
-				inputOutput = arg[0];
-			}
-			int targetSqlType = getJdbcType(argumentType);
-			try {
-				if (!OUT.equalsIgnoreCase(inputOutput)) {
-					if (argument.equals(NULL_MARKER)) {
-						pstmt.setNull(i + 1, targetSqlType);
-					} else {
-						pstmt.setObject(i + 1, argument, targetSqlType);
-					}
-				}
-				if (OUT.equalsIgnoreCase(inputOutput)
-						|| INOUT.equalsIgnoreCase(inputOutput)) {
-					CallableStatement cs = (CallableStatement) pstmt;
-					cs.registerOutParameter(i + 1, targetSqlType);
-					outputs[i] = targetSqlType;
-				} else {
-					outputs[i] = java.sql.Types.NULL; // can't have an output
-														// parameter type null
-				}
-			} catch (NullPointerException e) { // thrown by Derby JDBC (at
-												// least) if there are no "?"
-												// markers in statement
-				throw new SQLException("Could not set argument no: " + (i + 1)
-						+ " - missing parameter marker?");
-			}
+	@Override
+	int getEffectiveRowLimit() {
+		return getRowLimitVariable();
+	}
+
+	@Override
+	public void threadFinished() {
+		super.threadFinished();
+		for (HeldConnection c : new ArrayList<HeldConnection>(
+				connections.values())) {
+			closeConnection(c);
 		}
-		return outputs;
+	}
+
+	@Override
+	public int getMaxRetainedBytes() {
+		return maxRetainedBytes;
+	}
+
+	public void setMaxRetainedBytes(int maxRetainedBytes) {
+		this.maxRetainedBytes = maxRetainedBytes;
+	}
+
+	@Override
+	public boolean isRetainOnErrorOnly() {
+		return retainOnErrorOnly;
+	}
+
+	public void setRetainOnErrorOnly(boolean retainOnErrorOnly) {
+		this.retainOnErrorOnly = retainOnErrorOnly;
+	}
+
+	@Override
+	public String getRowCountVariable() {
+		return rowCountVariable;
+	}
+
+	public void setRowCountVariable(String rowCountVariable) {
+		this.rowCountVariable = rowCountVariable;
+	}
+
+	@Override
+	public int getSpillThreshold() {
+		return spillThreshold;
+	}
+
+	public void setSpillThreshold(int spillThreshold) {
+		this.spillThreshold = spillThreshold;
+	}
+
+	@Override
+	public boolean isDeleteSpillFile() {
+		return deleteSpillFile;
+	}
+
+	public void setDeleteSpillFile(boolean deleteSpillFile) {
+		this.deleteSpillFile = deleteSpillFile;
+	}
+
+	@Override
+	public String getRoutingMode() {
+		return routingMode;
+	}
+
+	public void setRoutingMode(String routingMode) {
+		this.routingMode = routingMode;
+	}
+
+	@Override
+	public int getRoutingParameter() {
+		return routingParameter;
+	}
+
+	public void setRoutingParameter(int routingParameter) {
+		this.routingParameter = routingParameter;
+	}
+
+	@Override
+	public String getParameterFile() {
+		return parameterFile;
+	}
+
+	public void setParameterFile(String parameterFile) {
+		this.parameterFile = parameterFile;
+	}
+
+	@Override
+	public String getLobMode() {
+		return lobMode;
+	}
+
+	public void setLobMode(String lobMode) {
+		this.lobMode = lobMode;
+	}
+
+	@Override
+	public String getDigestMode() {
+		return digestMode;
+	}
+
+	public void setDigestMode(String digestMode) {
+		this.digestMode = digestMode;
+	}
+
+	@Override
+	public String getExpectedDigest() {
+		return expectedDigest;
+	}
+
+	public void setExpectedDigest(String expectedDigest) {
+		this.expectedDigest = expectedDigest;
+	}
+
+	@Override
+	public String getDigestVariable() {
+		return digestVariable;
+	}
+
+	public void setDigestVariable(String digestVariable) {
+		this.digestVariable = digestVariable;
+	}
+
+	@Override
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	@Override
+	public long getBatchTimeout() {
+		return batchTimeout;
+	}
+
+	public void setBatchTimeout(long batchTimeout) {
+		this.batchTimeout = batchTimeout;
+	}
+
+	public int getReconnectEvery() {
+		return reconnectEvery;
+	}
+
+	public void setReconnectEvery(int reconnectEvery) {
+		this.reconnectEvery = reconnectEvery;
 	}
 
 	/**
-	 * Direct copy from {@link AbstractJDBCTestElement}.
+	 * A connection held across samples, with the number of samples it ran.
 	 */
-	private static int getJdbcType(String jdbcType) throws SQLException {
-		Integer entry = mapJdbcNameToInt.get(jdbcType
-				.toLowerCase(java.util.Locale.ENGLISH));
-		if (entry == null) {
-			try {
-				entry = Integer.decode(jdbcType);
-			} catch (NumberFormatException e) {
-				throw new SQLException("Invalid data type: " + jdbcType);
-			}
+	private static final class HeldConnection {
+		private final String dataSource;
+
+		private final Connection connection;
+
+		private int samples;
+
+		HeldConnection(String dataSource, Connection connection) {
+			this.dataSource = dataSource;
+			this.connection = connection;
 		}
-		return (entry).intValue();
 	}
-
 }
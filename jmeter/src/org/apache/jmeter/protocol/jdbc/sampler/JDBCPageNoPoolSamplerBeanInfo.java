@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+/*
+ * Created on May 16, 2004
+ *
+ */
+package org.apache.jmeter.protocol.jdbc.sampler;
+
+import java.beans.PropertyDescriptor;
+
+import org.apache.jmeter.protocol.jdbc.JDBCTestElementBeanInfoSupport;
+import org.apache.jmeter.testbeans.gui.FileEditor;
+
+public class JDBCPageNoPoolSamplerBeanInfo extends JDBCTestElementBeanInfoSupport {
+
+	/**
+     *
+     */
+	public JDBCPageNoPoolSamplerBeanInfo() {
+		super(JDBCPageNoPoolSampler.class);
+
+		createPropertyGroup("connection", new String[] { "reconnectEvery" }); // $NON-NLS-1$ $NON-NLS-2$
+
+		PropertyDescriptor p = property("reconnectEvery"); // $NON-NLS-1$
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, Integer.valueOf(1));
+
+		createPropertyGroup("batch", // $NON-NLS-1$
+				new String[] { "batchSize", "batchTimeout" }); // $NON-NLS-1$ $NON-NLS-2$
+
+		p = property("batchSize"); // $NON-NLS-1$
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, Integer.valueOf(0));
+
+		p = property("batchTimeout"); // $NON-NLS-1$
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, Long.valueOf(0));
+
+		createPropertyGroup("digest", // $NON-NLS-1$
+				new String[] { "digestMode", "expectedDigest", "digestVariable" }); // $NON-NLS-1$ $NON-NLS-2$ $NON-NLS-3$
+
+		p = property("digestMode"); // $NON-NLS-1$
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, AbstractJDBCQuerySampler.DIGEST_NONE);
+		p.setValue(NOT_OTHER, Boolean.TRUE);
+		p.setValue(TAGS, new String[] { AbstractJDBCQuerySampler.DIGEST_NONE,
+				AbstractJDBCQuerySampler.DIGEST_ORDERED,
+				AbstractJDBCQuerySampler.DIGEST_UNORDERED });
+
+		p = property("expectedDigest"); // $NON-NLS-1$
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, ""); // $NON-NLS-1$
+
+		p = property("digestVariable"); // $NON-NLS-1$
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, ""); // $NON-NLS-1$
+
+		createPropertyGroup("retention", // $NON-NLS-1$
+				new String[] { "maxRetainedBytes", "retainOnErrorOnly", "rowCountVariable" }); // $NON-NLS-1$ $NON-NLS-2$ $NON-NLS-3$
+
+		p = property("maxRetainedBytes"); // $NON-NLS-1$
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, Integer.valueOf(0));
+
+		p = property("retainOnErrorOnly"); // $NON-NLS-1$
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, Boolean.FALSE);
+
+		p = property("rowCountVariable"); // $NON-NLS-1$
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, ""); // $NON-NLS-1$
+
+		createPropertyGroup("spill", // $NON-NLS-1$
+				new String[] { "spillThreshold", "deleteSpillFile" }); // $NON-NLS-1$ $NON-NLS-2$
+
+		p = property("spillThreshold"); // $NON-NLS-1$
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, Integer.valueOf(0));
+
+		p = property("deleteSpillFile"); // $NON-NLS-1$
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, Boolean.TRUE);
+
+		createPropertyGroup("routing", // $NON-NLS-1$
+				new String[] { "routingMode", "routingParameter" }); // $NON-NLS-1$ $NON-NLS-2$
+
+		p = property("routingMode"); // $NON-NLS-1$
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, AbstractJDBCQuerySampler.ROUTE_ROUND_ROBIN);
+		p.setValue(NOT_OTHER, Boolean.TRUE);
+		p.setValue(TAGS, new String[] {
+				AbstractJDBCQuerySampler.ROUTE_ROUND_ROBIN,
+				AbstractJDBCQuerySampler.ROUTE_LEAST_IN_FLIGHT,
+				AbstractJDBCQuerySampler.ROUTE_HASH });
+
+		p = property("routingParameter"); // $NON-NLS-1$
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, Integer.valueOf(1));
+
+		createPropertyGroup("parameters", // $NON-NLS-1$
+				new String[] { "parameterFile" }); // $NON-NLS-1$
+
+		p = property("parameterFile"); // $NON-NLS-1$
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, ""); // $NON-NLS-1$
+		p.setPropertyEditorClass(FileEditor.class);
+
+		createPropertyGroup("lob", // $NON-NLS-1$
+				new String[] { "lobMode" }); // $NON-NLS-1$
+
+		p = property("lobMode"); // $NON-NLS-1$
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, AbstractJDBCQuerySampler.LOB_FULL);
+		p.setValue(NOT_OTHER, Boolean.TRUE);
+		p.setValue(TAGS, new String[] { AbstractJDBCQuerySampler.LOB_FULL,
+				AbstractJDBCQuerySampler.LOB_LENGTH,
+				AbstractJDBCQuerySampler.LOB_HASH,
+				AbstractJDBCQuerySampler.LOB_HEX_PREFIX });
+	}
+}
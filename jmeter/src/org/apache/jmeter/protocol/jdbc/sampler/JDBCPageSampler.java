@@ -1,88 +1,90 @@
 package org.apache.jmeter.protocol.jdbc.sampler;
 
-import java.io.IOException;
-import java.io.UnsupportedEncodingException;
-import java.lang.reflect.Field;
-import java.sql.CallableStatement;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-
-import org.apache.jmeter.protocol.jdbc.AbstractJDBCTestElement;
-import org.apache.jmeter.save.CSVSaveService;
-import org.apache.jmeter.threads.JMeterVariables;
+
 import org.apache.jmeter.util.JMeterUtils;
 import org.apache.jorphan.logging.LoggingManager;
 import org.apache.log.Logger;
 
-public class JDBCPageSampler extends JDBCSampler {
+public class JDBCPageSampler extends AbstractJDBCQuerySampler {
 	private static final long serialVersionUID = -659610836561775584L;
 
 	private static final Logger log = LoggingManager.getLoggerForClass();
 
-	private static final String COMMA = ","; // $NON-NLS-1$
-	private static final char COMMA_CHAR = ',';
-	
-	private static final String UNDERSCORE = "_"; // $NON-NLS-1$
-
-	// String used to indicate a null value
-	private static final String NULL_MARKER = JMeterUtils.getPropDefault(
-			"jdbcsampler.nullmarker", "]NULL["); // $NON-NLS-1$
-
-	private static final String INOUT = "INOUT"; // $NON-NLS-1$
-
-	private static final String OUT = "OUT"; // $NON-NLS-1$
-
-	// key: name (lowercase) from java.sql.Types; entry: corresponding int value
-	private static final Map<String, Integer> mapJdbcNameToInt;
-	// read-only after class init
-
-	static {
-		// based on e291. Getting the Name of a JDBC Type from javaalmanac.com
-		// http://javaalmanac.com/egs/java.sql/JdbcInt2Str.html
-		mapJdbcNameToInt = new HashMap<String, Integer>();
-
-		// Get all fields in java.sql.Types and store the corresponding int
-		// values
-		Field[] fields = java.sql.Types.class.getFields();
-		for (int i = 0; i < fields.length; i++) {
-			try {
-				String name = fields[i].getName();
-				Integer value = (Integer) fields[i].get(null);
-				mapJdbcNameToInt.put(
-						name.toLowerCase(java.util.Locale.ENGLISH), value);
-			} catch (IllegalAccessException e) {
-				throw new RuntimeException(e); // should not happen
-			}
-		}
-	}
-
-	// Query types (used to communicate with GUI)
+	// Row limit syntax (used to communicate with GUI)
 	// N.B. These must not be changed, as they are used in the JMX files
-	public static final String SELECT = "Select Statement"; // $NON-NLS-1$
-	public static final String UPDATE = "Update Statement"; // $NON-NLS-1$
-	public static final String CALLABLE = "Callable Statement"; // $NON-NLS-1$
-	public static final String PREPARED_SELECT = "Prepared Select Statement"; // $NON-NLS-1$
-	public static final String PREPARED_UPDATE = "Prepared Update Statement"; // $NON-NLS-1$
-	public static final String COMMIT = "Commit"; // $NON-NLS-1$
-	public static final String ROLLBACK = "Rollback"; // $NON-NLS-1$
-	public static final String AUTOCOMMIT_FALSE = "AutoCommit(false)"; // $NON-NLS-1$
-	public static final String AUTOCOMMIT_TRUE = "AutoCommit(true)"; // $NON-NLS-1$
+	public static final String LIMIT_NONE = "None (client side only)"; // $NON-NLS-1$
+	public static final String LIMIT_LIMIT = "LIMIT n"; // $NON-NLS-1$
+	public static final String LIMIT_FETCH_FIRST = "FETCH FIRST n ROWS ONLY"; // $NON-NLS-1$
+	public static final String LIMIT_ROWNUM = "ROWNUM <= n"; // $NON-NLS-1$
 
-	/**
-	 * Cache of PreparedStatements stored in a per-connection basis. Each entry
-	 * of this cache is another Map mapping the statement string to the actual
-	 * PreparedStatement. At one time a Connection is only held by one thread
-	 */
-	private static final Map<Connection, Map<String, PreparedStatement>> perConnCache = new ConcurrentHashMap<Connection, Map<String, PreparedStatement>>();
+	/** Largest fetch size derived from the row limit when none is configured */
+	private static final int MAX_LIMIT_FETCH_SIZE =
+		JMeterUtils.getPropDefault("jdbcsampler.max_limit_fetch_size", 500); // $NON-NLS-1$
+
+	/** Maximum number of rows to return, 0 for no limit */
+	private int rowLimit;
+
+	/** JDBC fetch size hint, 0 for the driver default */
+	private int fetchSize;
+
+	/** How the row limit is pushed into the SQL text, one of the LIMIT_ constants */
+	private String limitSyntax = LIMIT_NONE;
+
+	/** Bytes of a select response kept in the result, 0 for all */
+	private int maxRetainedBytes;
+
+	/** Whether successful selects drop their response data */
+	private boolean retainOnErrorOnly;
+
+	/** Variable the row count is exported to, empty for none */
+	private String rowCountVariable = ""; // $NON-NLS-1$
+
+	/** Response size past which a select spills to a file, 0 for never */
+	private int spillThreshold;
+
+	/** Whether the spill file is deleted at the end of the sample */
+	private boolean deleteSpillFile = true;
+
+	/** How samples are spread over several data sources */
+	private String routingMode = ROUTE_ROUND_ROBIN;
+
+	/** Argument hashed by the hash routing mode, starting at 1 */
+	private int routingParameter = 1;
+
+	/** Binary parameter file bound instead of the query arguments */
+	private String parameterFile = ""; // $NON-NLS-1$
+
+	/** How binary and large text columns are written */
+	private String lobMode = LOB_FULL;
+
+	/** Pool connections warmed up before the first sample of the test, 0 for none */
+	private int warmUpConnections;
+
+	/** Unrecorded select executions per warmed up connection */
+	private int warmUpExecutions;
+
+	/** Digest mode, one of the DIGEST_ constants */
+	private String digestMode = DIGEST_NONE;
+
+	/** Digest a select must produce to succeed, empty for no check */
+	private String expectedDigest = ""; // $NON-NLS-1$
+
+	/** Variable the digest is exported to, empty for none */
+	private String digestVariable = ""; // $NON-NLS-1$
+
+	/** Number of prepared updates sent per batch, 0 or 1 for no batching */
+	private int batchSize;
+
+	/** Milliseconds after which a partial batch is sent, 0 for no time bound */
+	private long batchTimeout;
+
+	// Last rewritten query and what it was built from
+	private transient String limitedQuery;
+	private transient String limitedQuerySource;
+	private transient String limitedQuerySyntax;
+	private transient int limitedQueryRows;
 
 	/**
 	 * Creates a No-Fetch JDBCSampler.
@@ -92,241 +94,248 @@ public class JDBCPageSampler extends JDBCSampler {
 	}
 
 	@Override
-	protected byte[] execute(Connection conn) throws SQLException,
-			UnsupportedEncodingException, IOException,
-			UnsupportedOperationException {
-		log.debug("executing jdbc");
-		Statement stmt = null;
-
-		try {
-			// Based on query return value, get results
-			String _queryType = getQueryType();
-			if (SELECT.equals(_queryType)) {
-				stmt = conn.createStatement();
-				ResultSet rs = null;
-				try {
-					rs = stmt.executeQuery(getQuery());
-					return getStringFromResultSet(rs).getBytes(ENCODING);
-				} finally {
-					close(rs);
-				}
-			} else if (CALLABLE.equals(_queryType)) {
-				return super.execute(conn);
-			} else if (UPDATE.equals(_queryType)) {
-				return super.execute(conn);
-			} else if (PREPARED_SELECT.equals(_queryType)) {
-				PreparedStatement pstmt = getPreparedStatement(conn);
-				setArguments(pstmt);
-				ResultSet rs = null;
-				try {
-					rs = pstmt.executeQuery();
-					return getStringFromResultSet(rs).getBytes(ENCODING);
-				} finally {
-					close(rs);
-				}
-			} else if (PREPARED_UPDATE.equals(_queryType)) {
-				return super.execute(conn);
-			} else if (ROLLBACK.equals(_queryType)) {
-				return super.execute(conn);
-			} else if (COMMIT.equals(_queryType)) {
-				return super.execute(conn);
-			} else if (AUTOCOMMIT_FALSE.equals(_queryType)) {
-				return super.execute(conn);
-			} else if (AUTOCOMMIT_TRUE.equals(_queryType)) {
-				return super.execute(conn);
-			} else { // User provided incorrect query type
-				return super.execute(conn);
-			}
-		} finally {
-			close(stmt);
-		}
+	ResultSetConsumer createConsumer(ExecutionPlan plan, ResultSetEncoder body) {
+		return ResultSetConsumers.chain(new ResultSetConsumers.Variables(
+				getThreadContext().getVariables(), getColumnVariables(),
+				plan.getResultVariable()),
+				new ResultSetConsumers.TsvBody(body));
 	}
 
 	/**
-	 * Gets a Data object from a ResultSet.
-	 * 
-	 * @param rs
-	 *            ResultSet passed in from a database query
-	 * @return a Data object
-	 * @throws java.sql.SQLException
-	 * @throws UnsupportedEncodingException
+	 * @return the rowLimit property if set, else the legacy
+	 *         <code>row_limit</code> variable, else 0 (no limit)
 	 */
-	private String getStringFromResultSet(ResultSet rs) throws SQLException,
-			UnsupportedEncodingException {
-		ResultSetMetaData meta = rs.getMetaData();
-
-		StringBuilder sb = new StringBuilder();
-
-		int numColumns = meta.getColumnCount();
-		for (int i = 1; i <= numColumns; i++) {
-			sb.append(meta.getColumnName(i));
-			if (i == numColumns) {
-				sb.append('\n');
-			} else {
-				sb.append('\t');
-			}
+	@Override
+	int getEffectiveRowLimit() {
+		if (rowLimit > 0) {
+			return rowLimit;
 		}
-
-        JMeterVariables jmvars = getThreadContext().getVariables();
-        String varnames[] = getVariableNames().split(COMMA);
-        String resultVariable = getResultVariable().trim();
-        List<Map<String, Object> > results = null;
-        if(resultVariable.length() > 0) {
-            results = new ArrayList<Map<String,Object> >();
-            jmvars.putObject(resultVariable, results);
-        }
-        
-        final int limit = Integer.valueOf(jmvars.get("row_limit")); //TODO Read Row Limit from Vars
-        int idx = 0, j = 0;
-        while (idx < limit && rs.next()) {
-        	idx++;
-            Map<String, Object> row = null;
-            j++;
-            for (int i = 1; i <= numColumns; i++) {
-                Object o = rs.getObject(i);
-                if(results != null) {
-                    if(row == null) {
-                        row = new HashMap<String, Object>(numColumns);
-                        results.add(row);
-                    }
-                    row.put(meta.getColumnName(i), o);
-                }
-                if (o instanceof byte[]) {
-                    o = new String((byte[]) o, ENCODING);
-                }
-                sb.append(o);
-                if (i==numColumns){
-                    sb.append('\n');
-                } else {
-                    sb.append('\t');
-                }
-                if (i <= varnames.length) { // i starts at 1
-                    String name = varnames[i - 1].trim();
-                    if (name.length()>0){ // Save the value in the variable if present
-                        jmvars.put(name+UNDERSCORE+j, o == null ? null : o.toString());
-                    }
-                }
-            }
-        }
-        // Remove any additional values from previous sample
-        for(int i=0; i < varnames.length; i++){
-            String name = varnames[i].trim();
-            if (name.length()>0 && jmvars != null){
-                final String varCount = name+"_#"; // $NON-NLS-1$
-                // Get the previous count
-                String prevCount = jmvars.get(varCount);
-                if (prevCount != null){
-                    int prev = Integer.parseInt(prevCount);
-                    for (int n=j+1; n <= prev; n++ ){
-                        jmvars.remove(name+UNDERSCORE+n);
-                    }
-                }
-                jmvars.put(varCount, Integer.toString(j)); // save the current count
-            }
-        }
-
-		return sb.toString();
+		return getRowLimitVariable();
 	}
 
 	/**
-	 * Direct copy from {@link AbstractJDBCTestElement}.
+	 * Pushes the row limit and fetch size down to the driver, so that it does
+	 * not fetch and buffer rows that would be discarded. When no fetch size
+	 * is configured, a limited query fetches its rows in one round trip, up
+	 * to MAX_LIMIT_FETCH_SIZE rows, as some drivers allocate buffers for the
+	 * whole fetch size up front. Both are set on every use, as cached
+	 * statements are shared by all samplers using the same SQL on a
+	 * connection.
 	 */
-	private PreparedStatement getPreparedStatement(Connection conn)
-			throws SQLException {
-		final boolean callable = false;
-		Map<String, PreparedStatement> preparedStatementMap = perConnCache
-				.get(conn);
-		if (null == preparedStatementMap) {
-			preparedStatementMap = new ConcurrentHashMap<String, PreparedStatement>();
-			// As a connection is held by only one thread, we cannot already
-			// have a
-			// preparedStatementMap put by another thread
-			perConnCache.put(conn, preparedStatementMap);
-		}
-		PreparedStatement pstmt = preparedStatementMap.get(getQuery());
-		if (null == pstmt) {
-			if (callable) {
-				pstmt = conn.prepareCall(getQuery());
-			} else {
-				pstmt = conn.prepareStatement(getQuery());
-			}
-			// PreparedStatementMap is associated to one connection so
-			// 2 threads cannot use the same PreparedStatement map at the same
-			// time
-			preparedStatementMap.put(getQuery(), pstmt);
+	@Override
+	void configureStatement(Statement stmt, int limit) throws SQLException {
+		stmt.setMaxRows(limit);
+		if (fetchSize != 0) {
+			stmt.setFetchSize(fetchSize);
+		} else {
+			// 0 restores the driver default
+			stmt.setFetchSize(Math.min(limit, MAX_LIMIT_FETCH_SIZE));
 		}
-		pstmt.clearParameters();
-		return pstmt;
 	}
 
 	/**
-	 * Direct copy from {@link AbstractJDBCTestElement}.
+	 * @return the query, rewritten with the configured row limit syntax if
+	 *         there is a limit
 	 */
-	private int[] setArguments(PreparedStatement pstmt) throws SQLException,
-			IOException {
-		if (getQueryArguments().trim().length() == 0) {
-			return new int[] {};
-		}
-		String[] arguments = CSVSaveService.csvSplitString(getQueryArguments(),
-				COMMA_CHAR);
-		String[] argumentsTypes = getQueryArgumentsTypes().split(COMMA);
-		if (arguments.length != argumentsTypes.length) {
-			throw new SQLException("number of arguments (" + arguments.length
-					+ ") and number of types (" + argumentsTypes.length
-					+ ") are not equal");
+	@Override
+	String getSelectQuery(int limit) {
+		String query = getQuery();
+		if (limit <= 0 || LIMIT_NONE.equals(limitSyntax)) {
+			return query;
 		}
-		int[] outputs = new int[arguments.length];
-		for (int i = 0; i < arguments.length; i++) {
-			String argument = arguments[i];
-			String argumentType = argumentsTypes[i];
-			String[] arg = argumentType.split(" ");
-			String inputOutput = "";
-			if (arg.length > 1) {
-				argumentType = arg[1];
-				inputOutput = arg[0];
-			}
-			int targetSqlType = getJdbcType(argumentType);
-			try {
-				if (!OUT.equalsIgnoreCase(inputOutput)) {
-					if (argument.equals(NULL_MARKER)) {
-						pstmt.setNull(i + 1, targetSqlType);
-					} else {
-						pstmt.setObject(i + 1, argument, targetSqlType);
-					}
-				}
-				if (OUT.equalsIgnoreCase(inputOutput)
-						|| INOUT.equalsIgnoreCase(inputOutput)) {
-					CallableStatement cs = (CallableStatement) pstmt;
-					cs.registerOutParameter(i + 1, targetSqlType);
-					outputs[i] = targetSqlType;
-				} else {
-					outputs[i] = java.sql.Types.NULL; // can't have an output
-														// parameter type null
-				}
-			} catch (NullPointerException e) { // thrown by Derby JDBC (at
-												// least) if there are no "?"
-												// markers in statement
-				throw new SQLException("Could not set argument no: " + (i + 1)
-						+ " - missing parameter marker?");
-			}
+		if (limit != limitedQueryRows || !query.equals(limitedQuerySource)
+				|| !limitSyntax.equals(limitedQuerySyntax)) {
+			limitedQuery = applyLimitSyntax(query, limitSyntax, limit);
+			limitedQuerySource = query;
+			limitedQuerySyntax = limitSyntax;
+			limitedQueryRows = limit;
 		}
-		return outputs;
+		return limitedQuery;
 	}
 
-	/**
-	 * Direct copy from {@link AbstractJDBCTestElement}.
-	 */
-	private static int getJdbcType(String jdbcType) throws SQLException {
-		Integer entry = mapJdbcNameToInt.get(jdbcType
-				.toLowerCase(java.util.Locale.ENGLISH));
-		if (entry == null) {
-			try {
-				entry = Integer.decode(jdbcType);
-			} catch (NumberFormatException e) {
-				throw new SQLException("Invalid data type: " + jdbcType);
-			}
+	private static String applyLimitSyntax(String query, String syntax,
+			int limit) {
+		String sql = query.trim();
+		if (sql.endsWith(";")) { // $NON-NLS-1$
+			sql = sql.substring(0, sql.length() - 1);
+		}
+		if (LIMIT_LIMIT.equals(syntax)) {
+			return sql + " LIMIT " + limit; // $NON-NLS-1$
+		} else if (LIMIT_FETCH_FIRST.equals(syntax)) {
+			return sql + " FETCH FIRST " + limit + " ROWS ONLY"; // $NON-NLS-1$ $NON-NLS-2$
+		} else if (LIMIT_ROWNUM.equals(syntax)) {
+			return "SELECT * FROM (" + sql + ") WHERE ROWNUM <= " + limit; // $NON-NLS-1$ $NON-NLS-2$
 		}
-		return (entry).intValue();
+		log.warn("Unknown row limit syntax: " + syntax);
+		return query;
+	}
+
+	@Override
+	public int getMaxRetainedBytes() {
+		return maxRetainedBytes;
+	}
+
+	public void setMaxRetainedBytes(int maxRetainedBytes) {
+		this.maxRetainedBytes = maxRetainedBytes;
+	}
+
+	@Override
+	public boolean isRetainOnErrorOnly() {
+		return retainOnErrorOnly;
+	}
+
+	public void setRetainOnErrorOnly(boolean retainOnErrorOnly) {
+		this.retainOnErrorOnly = retainOnErrorOnly;
+	}
+
+	@Override
+	public String getRowCountVariable() {
+		return rowCountVariable;
+	}
+
+	public void setRowCountVariable(String rowCountVariable) {
+		this.rowCountVariable = rowCountVariable;
+	}
+
+	@Override
+	public int getSpillThreshold() {
+		return spillThreshold;
+	}
+
+	public void setSpillThreshold(int spillThreshold) {
+		this.spillThreshold = spillThreshold;
+	}
+
+	@Override
+	public boolean isDeleteSpillFile() {
+		return deleteSpillFile;
+	}
+
+	public void setDeleteSpillFile(boolean deleteSpillFile) {
+		this.deleteSpillFile = deleteSpillFile;
+	}
+
+	@Override
+	public String getRoutingMode() {
+		return routingMode;
+	}
+
+	public void setRoutingMode(String routingMode) {
+		this.routingMode = routingMode;
+	}
+
+	@Override
+	public int getRoutingParameter() {
+		return routingParameter;
+	}
+
+	public void setRoutingParameter(int routingParameter) {
+		this.routingParameter = routingParameter;
+	}
+
+	@Override
+	public String getParameterFile() {
+		return parameterFile;
+	}
+
+	public void setParameterFile(String parameterFile) {
+		this.parameterFile = parameterFile;
+	}
+
+	@Override
+	public String getLobMode() {
+		return lobMode;
+	}
+
+	public void setLobMode(String lobMode) {
+		this.lobMode = lobMode;
+	}
+
+	@Override
+	public int getWarmUpConnections() {
+		return warmUpConnections;
+	}
+
+	public void setWarmUpConnections(int warmUpConnections) {
+		this.warmUpConnections = warmUpConnections;
+	}
+
+	@Override
+	public int getWarmUpExecutions() {
+		return warmUpExecutions;
+	}
+
+	public void setWarmUpExecutions(int warmUpExecutions) {
+		this.warmUpExecutions = warmUpExecutions;
+	}
+
+	@Override
+	public String getDigestMode() {
+		return digestMode;
+	}
+
+	public void setDigestMode(String digestMode) {
+		this.digestMode = digestMode;
+	}
+
+	@Override
+	public String getExpectedDigest() {
+		return expectedDigest;
+	}
+
+	public void setExpectedDigest(String expectedDigest) {
+		this.expectedDigest = expectedDigest;
+	}
+
+	@Override
+	public String getDigestVariable() {
+		return digestVariable;
+	}
+
+	public void setDigestVariable(String digestVariable) {
+		this.digestVariable = digestVariable;
+	}
+
+	@Override
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	@Override
+	public long getBatchTimeout() {
+		return batchTimeout;
+	}
+
+	public void setBatchTimeout(long batchTimeout) {
+		this.batchTimeout = batchTimeout;
+	}
+
+	public int getRowLimit() {
+		return rowLimit;
+	}
+
+	public void setRowLimit(int rowLimit) {
+		this.rowLimit = rowLimit;
+	}
+
+	public int getFetchSize() {
+		return fetchSize;
+	}
+
+	public void setFetchSize(int fetchSize) {
+		this.fetchSize = fetchSize;
+	}
+
+	public String getLimitSyntax() {
+		return limitSyntax;
+	}
+
+	public void setLimitSyntax(String limitSyntax) {
+		this.limitSyntax = limitSyntax;
 	}
 
 }
@@ -22,7 +22,10 @@
  */
 package org.apache.jmeter.protocol.jdbc.sampler;
 
+import java.beans.PropertyDescriptor;
+
 import org.apache.jmeter.protocol.jdbc.JDBCTestElementBeanInfoSupport;
+import org.apache.jmeter.testbeans.gui.FileEditor;
 
 public class JDBCPageSamplerBeanInfo extends JDBCTestElementBeanInfoSupport {
 
@@ -31,5 +34,127 @@ public class JDBCPageSamplerBeanInfo extends JDBCTestElementBeanInfoSupport {
      */
 	public JDBCPageSamplerBeanInfo() {
 		super(JDBCPageSampler.class);
+
+		createPropertyGroup("paging", // $NON-NLS-1$
+				new String[] { "rowLimit", "fetchSize", "limitSyntax" }); // $NON-NLS-1$ $NON-NLS-2$ $NON-NLS-3$
+
+		PropertyDescriptor p = property("rowLimit"); // $NON-NLS-1$
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, Integer.valueOf(0));
+
+		p = property("fetchSize"); // $NON-NLS-1$
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, Integer.valueOf(0));
+
+		p = property("limitSyntax"); // $NON-NLS-1$
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, JDBCPageSampler.LIMIT_NONE);
+		p.setValue(NOT_OTHER, Boolean.TRUE);
+		p.setValue(TAGS, new String[] { JDBCPageSampler.LIMIT_NONE,
+				JDBCPageSampler.LIMIT_LIMIT, JDBCPageSampler.LIMIT_FETCH_FIRST,
+				JDBCPageSampler.LIMIT_ROWNUM });
+
+		createPropertyGroup("batch", // $NON-NLS-1$
+				new String[] { "batchSize", "batchTimeout" }); // $NON-NLS-1$ $NON-NLS-2$
+
+		p = property("batchSize"); // $NON-NLS-1$
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, Integer.valueOf(0));
+
+		p = property("batchTimeout"); // $NON-NLS-1$
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, Long.valueOf(0));
+
+		createPropertyGroup("digest", // $NON-NLS-1$
+				new String[] { "digestMode", "expectedDigest", "digestVariable" }); // $NON-NLS-1$ $NON-NLS-2$ $NON-NLS-3$
+
+		p = property("digestMode"); // $NON-NLS-1$
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, AbstractJDBCQuerySampler.DIGEST_NONE);
+		p.setValue(NOT_OTHER, Boolean.TRUE);
+		p.setValue(TAGS, new String[] { AbstractJDBCQuerySampler.DIGEST_NONE,
+				AbstractJDBCQuerySampler.DIGEST_ORDERED,
+				AbstractJDBCQuerySampler.DIGEST_UNORDERED });
+
+		p = property("expectedDigest"); // $NON-NLS-1$
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, ""); // $NON-NLS-1$
+
+		p = property("digestVariable"); // $NON-NLS-1$
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, ""); // $NON-NLS-1$
+
+		createPropertyGroup("retention", // $NON-NLS-1$
+				new String[] { "maxRetainedBytes", "retainOnErrorOnly", "rowCountVariable" }); // $NON-NLS-1$ $NON-NLS-2$ $NON-NLS-3$
+
+		p = property("maxRetainedBytes"); // $NON-NLS-1$
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, Integer.valueOf(0));
+
+		p = property("retainOnErrorOnly"); // $NON-NLS-1$
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, Boolean.FALSE);
+
+		p = property("rowCountVariable"); // $NON-NLS-1$
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, ""); // $NON-NLS-1$
+
+		createPropertyGroup("spill", // $NON-NLS-1$
+				new String[] { "spillThreshold", "deleteSpillFile" }); // $NON-NLS-1$ $NON-NLS-2$
+
+		p = property("spillThreshold"); // $NON-NLS-1$
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, Integer.valueOf(0));
+
+		p = property("deleteSpillFile"); // $NON-NLS-1$
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, Boolean.TRUE);
+
+		createPropertyGroup("routing", // $NON-NLS-1$
+				new String[] { "routingMode", "routingParameter" }); // $NON-NLS-1$ $NON-NLS-2$
+
+		p = property("routingMode"); // $NON-NLS-1$
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, AbstractJDBCQuerySampler.ROUTE_ROUND_ROBIN);
+		p.setValue(NOT_OTHER, Boolean.TRUE);
+		p.setValue(TAGS, new String[] {
+				AbstractJDBCQuerySampler.ROUTE_ROUND_ROBIN,
+				AbstractJDBCQuerySampler.ROUTE_LEAST_IN_FLIGHT,
+				AbstractJDBCQuerySampler.ROUTE_HASH });
+
+		p = property("routingParameter"); // $NON-NLS-1$
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, Integer.valueOf(1));
+
+		createPropertyGroup("parameters", // $NON-NLS-1$
+				new String[] { "parameterFile" }); // $NON-NLS-1$
+
+		p = property("parameterFile"); // $NON-NLS-1$
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, ""); // $NON-NLS-1$
+		p.setPropertyEditorClass(FileEditor.class);
+
+		createPropertyGroup("lob", // $NON-NLS-1$
+				new String[] { "lobMode" }); // $NON-NLS-1$
+
+		p = property("lobMode"); // $NON-NLS-1$
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, AbstractJDBCQuerySampler.LOB_FULL);
+		p.setValue(NOT_OTHER, Boolean.TRUE);
+		p.setValue(TAGS, new String[] { AbstractJDBCQuerySampler.LOB_FULL,
+				AbstractJDBCQuerySampler.LOB_LENGTH,
+				AbstractJDBCQuerySampler.LOB_HASH,
+				AbstractJDBCQuerySampler.LOB_HEX_PREFIX });
+
+		createPropertyGroup("warmUp", // $NON-NLS-1$
+				new String[] { "warmUpConnections", "warmUpExecutions" }); // $NON-NLS-1$ $NON-NLS-2$
+
+		p = property("warmUpConnections"); // $NON-NLS-1$
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, Integer.valueOf(0));
+
+		p = property("warmUpExecutions"); // $NON-NLS-1$
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, Integer.valueOf(0));
 	}
 }
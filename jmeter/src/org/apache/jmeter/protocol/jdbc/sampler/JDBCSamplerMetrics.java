@@ -0,0 +1,384 @@
+package org.apache.jmeter.protocol.jdbc.sampler;
+
+import java.lang.management.ManagementFactory;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.apache.jmeter.util.JMeterUtils;
+import org.apache.jorphan.logging.LoggingManager;
+import org.apache.log.Logger;
+
+/**
+ * Counters behind {@link JDBCSamplerMetricsMXBean}, one instance per sampler
+ * class and one per data source that samples are routed to.
+ * <p>
+ * Samplers only increment counters; anything derived, such as rates and
+ * ratios, is computed when the bean is read. Counters are striped: a thread
+ * updates the stripe picked by its id, each stripe on cache lines of its
+ * own, so that threads rarely contend for a counter. Reading sums the
+ * stripes, or takes their maximum. Registration can be turned off with the
+ * <code>jdbcsampler.jmx</code> property, the counters are then kept but not
+ * published.
+ */
+final class JDBCSamplerMetrics implements JDBCSamplerMetricsMXBean {
+
+    private static final Logger log = LoggingManager.getLoggerForClass();
+
+    private static final String DOMAIN = "org.apache.jmeter.protocol.jdbc"; // $NON-NLS-1$
+
+    /** Failures that were not a SQLException */
+    private static final String NO_SQL_STATE = "none"; // $NON-NLS-1$
+
+    /** SQLExceptions the driver gave no SQLState */
+    private static final String UNKNOWN_SQL_STATE = "unknown"; // $NON-NLS-1$
+
+    private static final long RATE_INTERVAL_NANOS = 1000000000L;
+
+    private static final boolean REGISTER = JMeterUtils.getPropDefault(
+            "jdbcsampler.jmx", true); // $NON-NLS-1$
+
+    private static final ConcurrentMap<String, JDBCSamplerMetrics> metrics = new ConcurrentHashMap<String, JDBCSamplerMetrics>();
+
+    // Counters of a stripe
+    private static final int SAMPLES = 0;
+    private static final int ERRORS = 1;
+    private static final int IN_FLIGHT = 2;
+    private static final int ROWS = 3;
+    private static final int BYTES = 4;
+    private static final int ACQUISITIONS = 5;
+    private static final int ACQUIRE_NANOS = 6;
+    private static final int MAX_ACQUIRE_NANOS = 7;
+    private static final int SAMPLE_NANOS = 8;
+    private static final int MAX_SAMPLE_NANOS = 9;
+
+    /** Longs per stripe, leaving more than a cache line between stripes */
+    private static final int STRIDE = 24;
+
+    /** Number of stripes, a power of two */
+    private static final int STRIPES = stripeCount();
+
+    /** Counters of every stripe, stripe s at s * STRIDE */
+    private final AtomicLongArray counters = new AtomicLongArray(STRIPES
+            * STRIDE);
+
+    // Only counted on failures, which are not worth striping
+    private final ConcurrentMap<String, AtomicLong> errorsBySqlState = new ConcurrentHashMap<String, AtomicLong>();
+
+    // Rate state, guarded by this
+    private long rateStart = System.nanoTime();
+    private long[] rateBase = new long[3];
+    private final double[] rates = new double[3];
+
+    private JDBCSamplerMetrics() {
+    }
+
+    /**
+     * @return twice the number of processors, rounded up to a power of two
+     */
+    private static int stripeCount() {
+        int wanted = 2 * Runtime.getRuntime().availableProcessors();
+        int count = 1;
+        while (count < wanted) {
+            count <<= 1;
+        }
+        return count;
+    }
+
+    /**
+     * @return index of counter i in the stripe of the calling thread
+     */
+    private static int slot(int i) {
+        long id = Thread.currentThread().getId();
+        int h = (int) (id ^ (id >>> 32));
+        h ^= h >>> 16; // thread ids are mostly consecutive small numbers
+        return (h & (STRIPES - 1)) * STRIDE + i;
+    }
+
+    private void add(int i, long delta) {
+        counters.addAndGet(slot(i), delta);
+    }
+
+    private void raise(int i, long value) {
+        int slot = slot(i);
+        long current = counters.get(slot);
+        while (value > current && !counters.compareAndSet(slot, current, value)) {
+            current = counters.get(slot);
+        }
+    }
+
+    /**
+     * @return counter i summed over the stripes
+     */
+    private long sum(int i) {
+        long total = 0;
+        for (int s = 0; s < STRIPES; s++) {
+            total += counters.get(s * STRIDE + i);
+        }
+        return total;
+    }
+
+    /**
+     * @return the largest value of counter i in any stripe
+     */
+    private long max(int i) {
+        long result = 0;
+        for (int s = 0; s < STRIPES; s++) {
+            result = Math.max(result, counters.get(s * STRIDE + i));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the metrics of a sampler class, registering its bean on first
+     * use.
+     *
+     * @param samplerClass
+     *            the sampler class
+     * @return the metrics, never null
+     */
+    static JDBCSamplerMetrics get(Class<?> samplerClass) {
+        return get("SamplerMetrics", samplerClass.getSimpleName()); // $NON-NLS-1$
+    }
+
+    /**
+     * Returns the metrics of one data source of a routed sampler,
+     * registering its bean on first use.
+     *
+     * @param dataSource
+     *            name of the pool variable
+     * @return the metrics, never null
+     */
+    static JDBCSamplerMetrics forDataSource(String dataSource) {
+        return get("DataSourceMetrics", dataSource); // $NON-NLS-1$
+    }
+
+    private static JDBCSamplerMetrics get(String type, String name) {
+        String key = type + '\n' + name;
+        JDBCSamplerMetrics m = metrics.get(key);
+        if (m == null) {
+            JDBCSamplerMetrics created = new JDBCSamplerMetrics();
+            m = metrics.putIfAbsent(key, created);
+            if (m == null) {
+                m = created;
+                if (REGISTER) {
+                    register(type, name, created);
+                }
+            }
+        }
+        return m;
+    }
+
+    private static void register(String type, String name,
+            JDBCSamplerMetrics m) {
+        try {
+            ObjectName objectName = new ObjectName(DOMAIN + ":type=" + type // $NON-NLS-1$
+                    + ",name=" + quoteIfNeeded(name)); // $NON-NLS-1$
+            ManagementFactory.getPlatformMBeanServer().registerMBean(m,
+                    objectName);
+        } catch (JMException e) {
+            log.warn("Could not register JMX metrics of " + name + ": " + e);
+        }
+    }
+
+    private static String quoteIfNeeded(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (",=:\"*?\\\n".indexOf(value.charAt(i)) >= 0) { // $NON-NLS-1$
+                return ObjectName.quote(value);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * @return the SQLState under which a failure with this exception is
+     *         counted
+     */
+    static String sqlState(SQLException e) {
+        String state = e.getSQLState();
+        return state != null ? state : UNKNOWN_SQL_STATE;
+    }
+
+    void connectionAcquired(long nanos) {
+        add(ACQUISITIONS, 1);
+        add(ACQUIRE_NANOS, nanos);
+        raise(MAX_ACQUIRE_NANOS, nanos);
+    }
+
+    void queryStarted() {
+        add(IN_FLIGHT, 1);
+    }
+
+    /**
+     * Counts a query as ended; the stripe may differ from the one that
+     * counted its start, only the sum is meaningful.
+     */
+    void queryEnded() {
+        add(IN_FLIGHT, -1);
+    }
+
+    void rowsRead(long rowCount) {
+        add(ROWS, rowCount);
+    }
+
+    /**
+     * Counts a finished sample.
+     *
+     * @param successful
+     *            whether the sample succeeded
+     * @param sqlState
+     *            SQLState of the error of a failed sample, as given by
+     *            {@link #sqlState(SQLException)}; null if it was not a
+     *            SQLException
+     * @param byteCount
+     *            response size
+     * @param nanos
+     *            time taken by the sample
+     */
+    void sampled(boolean successful, String sqlState, long byteCount,
+            long nanos) {
+        add(SAMPLES, 1);
+        add(SAMPLE_NANOS, nanos);
+        raise(MAX_SAMPLE_NANOS, nanos);
+        if (byteCount > 0) {
+            add(BYTES, byteCount);
+        }
+        if (!successful) {
+            add(ERRORS, 1);
+            String key = sqlState != null ? sqlState : NO_SQL_STATE;
+            AtomicLong count = errorsBySqlState.get(key);
+            if (count == null) {
+                AtomicLong created = new AtomicLong();
+                count = errorsBySqlState.putIfAbsent(key, created);
+                if (count == null) {
+                    count = created;
+                }
+            }
+            count.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return the rate of counter i (samples, rows, bytes) per second
+     */
+    private synchronized double rate(int i) {
+        long now = System.nanoTime();
+        long elapsed = now - rateStart;
+        if (elapsed >= RATE_INTERVAL_NANOS) {
+            long[] current = { sum(SAMPLES), sum(ROWS), sum(BYTES) };
+            for (int j = 0; j < current.length; j++) {
+                rates[j] = (current[j] - rateBase[j]) * 1e9 / elapsed;
+            }
+            rateBase = current;
+            rateStart = now;
+        }
+        return rates[i];
+    }
+
+    public long getSamples() {
+        return sum(SAMPLES);
+    }
+
+    public double getSamplesPerSecond() {
+        return rate(0);
+    }
+
+    public long getErrors() {
+        return sum(ERRORS);
+    }
+
+    public Map<String, Long> getErrorsBySqlState() {
+        Map<String, Long> counts = new TreeMap<String, Long>();
+        for (Map.Entry<String, AtomicLong> e : errorsBySqlState.entrySet()) {
+            counts.put(e.getKey(), Long.valueOf(e.getValue().get()));
+        }
+        return counts;
+    }
+
+    public double getMeanSampleMillis() {
+        long n = sum(SAMPLES);
+        return n == 0 ? 0 : sum(SAMPLE_NANOS) / 1e6 / n;
+    }
+
+    public double getMaxSampleMillis() {
+        return max(MAX_SAMPLE_NANOS) / 1e6;
+    }
+
+    public long getInFlightQueries() {
+        return sum(IN_FLIGHT);
+    }
+
+    public long getRows() {
+        return sum(ROWS);
+    }
+
+    public double getRowsPerSecond() {
+        return rate(1);
+    }
+
+    public long getBytes() {
+        return sum(BYTES);
+    }
+
+    public double getBytesPerSecond() {
+        return rate(2);
+    }
+
+    public long getConnectionAcquisitions() {
+        return sum(ACQUISITIONS);
+    }
+
+    public double getMeanConnectionAcquireMillis() {
+        long n = sum(ACQUISITIONS);
+        return n == 0 ? 0 : sum(ACQUIRE_NANOS) / 1e6 / n;
+    }
+
+    public double getMaxConnectionAcquireMillis() {
+        return max(MAX_ACQUIRE_NANOS) / 1e6;
+    }
+
+    public double getStatementCacheHitRatio() {
+        long hits = getStatementCacheHits();
+        long total = hits + getStatementCacheMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    public long getStatementCacheHits() {
+        return AbstractJDBCQuerySampler.perConnCache.getHits();
+    }
+
+    public long getStatementCacheMisses() {
+        return AbstractJDBCQuerySampler.perConnCache.getMisses();
+    }
+
+    public long getStatementCacheEvictions() {
+        return AbstractJDBCQuerySampler.perConnCache.getEvictions();
+    }
+
+    public Map<String, Integer> getCachedStatementsPerConnection() {
+        return AbstractJDBCQuerySampler.perConnCache.getStatementCounts();
+    }
+
+    public void reset() {
+        // In-flight queries are a level, not a count
+        for (int s = 0; s < STRIPES; s++) {
+            for (int i = 0; i < STRIDE; i++) {
+                if (i != IN_FLIGHT) {
+                    counters.set(s * STRIDE + i, 0);
+                }
+            }
+        }
+        errorsBySqlState.clear();
+        synchronized (this) {
+            rateBase = new long[3];
+            rateStart = System.nanoTime();
+        }
+    }
+}
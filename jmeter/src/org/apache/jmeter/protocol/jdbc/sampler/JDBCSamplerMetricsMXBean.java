@@ -0,0 +1,76 @@
+package org.apache.jmeter.protocol.jdbc.sampler;
+
+import java.util.Map;
+
+/**
+ * Live counters of one JDBC sampler class, registered with the platform
+ * MBean server under
+ * <code>org.apache.jmeter.protocol.jdbc:type=SamplerMetrics,name=&lt;class&gt;</code>
+ * so that a running test can be watched with JConsole or any JMX client.
+ * Samplers routing over several data sources also count each sample in a
+ * bean per data source, of type <code>DataSourceMetrics</code>, where the
+ * queries in flight include the samples waiting for a connection.
+ * <p>
+ * Counters add up every sampler of the class since the JVM started or the
+ * last {@link #reset()}. Rates are averages since the previous refresh,
+ * which happens on read at most once a second. The statement cache is
+ * shared by all samplers of the package, so its figures are the same in
+ * every bean.
+ */
+public interface JDBCSamplerMetricsMXBean {
+
+    long getSamples();
+
+    double getSamplesPerSecond();
+
+    long getErrors();
+
+    /**
+     * @return failed samples by the SQLState of their error; failures that
+     *         were not a SQLException are counted under <code>none</code>,
+     *         SQLExceptions without a SQLState under <code>unknown</code>
+     */
+    Map<String, Long> getErrorsBySqlState();
+
+    double getMeanSampleMillis();
+
+    double getMaxSampleMillis();
+
+    /**
+     * @return queries currently running
+     */
+    long getInFlightQueries();
+
+    long getRows();
+
+    double getRowsPerSecond();
+
+    long getBytes();
+
+    double getBytesPerSecond();
+
+    long getConnectionAcquisitions();
+
+    double getMeanConnectionAcquireMillis();
+
+    double getMaxConnectionAcquireMillis();
+
+    double getStatementCacheHitRatio();
+
+    long getStatementCacheHits();
+
+    long getStatementCacheMisses();
+
+    long getStatementCacheEvictions();
+
+    /**
+     * @return number of statements cached for each connection, by
+     *         connection class and identity
+     */
+    Map<String, Integer> getCachedStatementsPerConnection();
+
+    /**
+     * Zeroes the counters of this bean, not those of the statement cache.
+     */
+    void reset();
+}
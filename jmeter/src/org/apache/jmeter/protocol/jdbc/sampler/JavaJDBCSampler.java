@@ -1,17 +1,26 @@
 package org.apache.jmeter.protocol.jdbc.sampler;
 
-import java.io.UnsupportedEncodingException;
+import java.io.IOException;
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
-import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.apache.jmeter.config.Arguments;
 import org.apache.jmeter.protocol.java.sampler.AbstractJavaSamplerClient;
 import org.apache.jmeter.protocol.java.sampler.JavaSamplerContext;
 import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.testelement.TestElement;
 
 public class JavaJDBCSampler extends AbstractJavaSamplerClient {
 
@@ -52,7 +61,154 @@ public class JavaJDBCSampler extends AbstractJavaSamplerClient {
 
     private static final String ROW_LIMIT = "Row Limit";    
     
-    
+    private String connectionMode;
+
+    /** Borrow a connection from the shared pool for every sample */
+    public static final String MODE_POOLED = "pooled";
+
+    /** Keep one connection per JMeter thread for the whole test */
+    public static final String MODE_STICKY = "per-thread sticky";
+
+    /** Open and close a connection for every sample */
+    public static final String MODE_PER_SAMPLE = "per-sample";
+
+    public static final String DEFAULT_CONNECTION_MODE = MODE_POOLED;
+
+    private static final String CONNECTION_MODE = "Connection Mode";
+
+    /** Seconds to wait for a failed connection to prove it is still valid */
+    private static final int VALID_TIMEOUT = 1;
+
+    public static final int DEFAULT_POOL_SIZE = 10;
+
+    private static final String POOL_SIZE = "Pool Size";
+
+    public static final long DEFAULT_POOL_TIMEOUT = 10000;
+
+    private static final String POOL_TIMEOUT = "Pool Wait Timeout (ms)";
+
+    public static final long DEFAULT_MAX_IDLE_TIME = 60000;
+
+    private static final String MAX_IDLE_TIME = "Max Idle Time (ms)";
+
+    public static final String DEFAULT_VALIDATE_ON_BORROW = "true";
+
+    private static final String VALIDATE_ON_BORROW = "Validate On Borrow";
+
+    public static final String DEFAULT_VALIDATION_QUERY = "";
+
+    private static final String VALIDATION_QUERY = "Validation Query";
+
+    public static final int DEFAULT_CONCURRENT_QUERIES = 1;
+
+    private static final String CONCURRENT_QUERIES = "Concurrent Queries";
+
+    public static final int DEFAULT_WAIT_FOR = 0;
+
+    private static final String WAIT_FOR = "Wait For First N (0 = all)";
+
+    public static final int DEFAULT_FETCH_SIZE = 0;
+
+    private static final String FETCH_SIZE = "Fetch Size (0 = driver default)";
+
+    public static final int DEFAULT_QUERY_TIMEOUT = 0;
+
+    private static final String QUERY_TIMEOUT = "Query Timeout (s)";
+
+    public static final String CURSOR_FORWARD_ONLY = "forward only";
+
+    public static final String CURSOR_SCROLL_INSENSITIVE = "scroll insensitive";
+
+    public static final String CURSOR_SCROLL_SENSITIVE = "scroll sensitive";
+
+    public static final String DEFAULT_CURSOR_TYPE = CURSOR_FORWARD_ONLY;
+
+    private static final String CURSOR_TYPE = "Cursor Type";
+
+    public static final String CONCURRENCY_READ_ONLY = "read only";
+
+    public static final String CONCURRENCY_UPDATABLE = "updatable";
+
+    public static final String DEFAULT_CONCURRENCY = CONCURRENCY_READ_ONLY;
+
+    private static final String CONCURRENCY = "Cursor Concurrency";
+
+    public static final String DEFAULT_PREPARED = "false";
+
+    private static final String PREPARED = "Prepared Statement";
+
+    public static final String DEFAULT_PARAMETER_VALUES = "";
+
+    private static final String PARAMETER_VALUES = "Parameter Values";
+
+    public static final String DEFAULT_PARAMETER_TYPES = "";
+
+    private static final String PARAMETER_TYPES = "Parameter Types";
+
+    /** Encode every row as tab separated text into the response */
+    public static final String RESULT_ROWS = "rows";
+
+    /** Only count the rows, without reading any column */
+    public static final String RESULT_COUNT = "count only";
+
+    public static final String DEFAULT_RESULT_MODE = RESULT_ROWS;
+
+    private static final String RESULT_MODE = "Result Mode";
+
+    private long poolTimeout;
+
+    /** Statement settings, applied on every execution */
+    private int fetchSize;
+
+    private int queryTimeout;
+
+    private int resultSetType;
+
+    private int resultSetConcurrency;
+
+    /** Whether the query runs as a cached PreparedStatement */
+    private boolean prepared;
+
+    /** Compiled parameters of the prepared query */
+    private ExecutionPlan plan;
+
+    /** Whether only the number of rows is reported */
+    private boolean countOnly;
+
+    /**
+     * Columns of the last result, reused while the signature is unchanged;
+     * shared by the fan-out queries
+     */
+    private volatile ColumnLayout layout;
+
+    /** Live counters of this sampler class, set in setupTest */
+    private JDBCSamplerMetrics metrics;
+
+    /** Number of queries issued at once by each sample; 1 runs them inline */
+    private int concurrentQueries;
+
+    /** Number of completed queries that ends a fan-out sample, 0 for all */
+    private int waitFor;
+
+    /** Shared pool, attached in setupTest when running in pooled mode */
+    private JDBCConnectionPool pool;
+
+    /**
+     * This thread's connections when running in sticky mode, one per
+     * concurrent query
+     */
+    private Connection[] stickyConnections = new Connection[1];
+
+    /** Statements in flight, one per concurrent query, so they can be cancelled */
+    private AtomicReferenceArray<Statement> runningStatements = new AtomicReferenceArray<Statement>(1);
+
+    /**
+     * Response buffers, one per concurrent query; fan-out queries run on
+     * short-lived threads, which would get a new thread-local encoder each
+     * time
+     */
+    private ResultSetEncoder[] encoders = new ResultSetEncoder[1];
+
     
 
     @Override
@@ -64,6 +220,24 @@ public class JavaJDBCSampler extends AbstractJavaSamplerClient {
         params.addArgument(DRIVER_CLASS, DEFAULT_DRIVER_CLASS);
         params.addArgument(QUERY, DEFAULT_QUERY);
         params.addArgument(ROW_LIMIT, Long.toString(DEFAULT_ROW_LIMIT));
+        params.addArgument(CONNECTION_MODE, DEFAULT_CONNECTION_MODE);
+        params.addArgument(POOL_SIZE, Integer.toString(DEFAULT_POOL_SIZE));
+        params.addArgument(POOL_TIMEOUT, Long.toString(DEFAULT_POOL_TIMEOUT));
+        params.addArgument(MAX_IDLE_TIME, Long.toString(DEFAULT_MAX_IDLE_TIME));
+        params.addArgument(VALIDATE_ON_BORROW, DEFAULT_VALIDATE_ON_BORROW);
+        params.addArgument(VALIDATION_QUERY, DEFAULT_VALIDATION_QUERY);
+        params.addArgument(CONCURRENT_QUERIES,
+                Integer.toString(DEFAULT_CONCURRENT_QUERIES));
+        params.addArgument(WAIT_FOR, Integer.toString(DEFAULT_WAIT_FOR));
+        params.addArgument(FETCH_SIZE, Integer.toString(DEFAULT_FETCH_SIZE));
+        params.addArgument(QUERY_TIMEOUT,
+                Integer.toString(DEFAULT_QUERY_TIMEOUT));
+        params.addArgument(CURSOR_TYPE, DEFAULT_CURSOR_TYPE);
+        params.addArgument(CONCURRENCY, DEFAULT_CONCURRENCY);
+        params.addArgument(PREPARED, DEFAULT_PREPARED);
+        params.addArgument(PARAMETER_VALUES, DEFAULT_PARAMETER_VALUES);
+        params.addArgument(PARAMETER_TYPES, DEFAULT_PARAMETER_TYPES);
+        params.addArgument(RESULT_MODE, DEFAULT_RESULT_MODE);
         return params;
     }
 
@@ -75,6 +249,63 @@ public class JavaJDBCSampler extends AbstractJavaSamplerClient {
         driverClass = context.getParameter(DRIVER_CLASS, DEFAULT_DRIVER_CLASS);
         query = context.getParameter(QUERY, DEFAULT_QUERY);
         rowLimit = context.getLongParameter(ROW_LIMIT, DEFAULT_ROW_LIMIT);
+        connectionMode = context.getParameter(CONNECTION_MODE,
+                DEFAULT_CONNECTION_MODE).trim();
+        poolTimeout = context.getLongParameter(POOL_TIMEOUT,
+                DEFAULT_POOL_TIMEOUT);
+        concurrentQueries = Math.max(1, context.getIntParameter(
+                CONCURRENT_QUERIES, DEFAULT_CONCURRENT_QUERIES));
+        waitFor = context.getIntParameter(WAIT_FOR, DEFAULT_WAIT_FOR);
+        fetchSize = Math.max(0, context.getIntParameter(FETCH_SIZE,
+                DEFAULT_FETCH_SIZE));
+        queryTimeout = Math.max(0, context.getIntParameter(QUERY_TIMEOUT,
+                DEFAULT_QUERY_TIMEOUT));
+        resultSetType = getResultSetType(context.getParameter(CURSOR_TYPE,
+                DEFAULT_CURSOR_TYPE).trim());
+        if (CONCURRENCY_UPDATABLE.equals(context.getParameter(CONCURRENCY,
+                DEFAULT_CONCURRENCY).trim())) {
+            resultSetConcurrency = ResultSet.CONCUR_UPDATABLE;
+        } else {
+            resultSetConcurrency = ResultSet.CONCUR_READ_ONLY;
+        }
+        prepared = Boolean.parseBoolean(context.getParameter(PREPARED,
+                DEFAULT_PREPARED).trim());
+        if (prepared) {
+            plan = ExecutionPlan.update(plan,
+                    AbstractJDBCQuerySampler.PREPARED_SELECT,
+                    context.getParameter(PARAMETER_VALUES,
+                            DEFAULT_PARAMETER_VALUES),
+                    context.getParameter(PARAMETER_TYPES,
+                            DEFAULT_PARAMETER_TYPES), ""); // $NON-NLS-1$
+        }
+        countOnly = RESULT_COUNT.equals(context.getParameter(RESULT_MODE,
+                DEFAULT_RESULT_MODE).trim());
+        if (stickyConnections.length < concurrentQueries) {
+            stickyConnections = Arrays.copyOf(stickyConnections,
+                    concurrentQueries);
+        }
+        if (encoders.length < concurrentQueries) {
+            encoders = Arrays.copyOf(encoders, concurrentQueries);
+        }
+        if (runningStatements.length() < concurrentQueries) {
+            runningStatements = new AtomicReferenceArray<Statement>(
+                    concurrentQueries);
+        }
+    }
+
+    private static boolean isKnownConnectionMode(String mode) {
+        return MODE_POOLED.equals(mode) || MODE_STICKY.equals(mode)
+                || MODE_PER_SAMPLE.equals(mode);
+    }
+
+    private static int getResultSetType(String cursorType) {
+        if (CURSOR_SCROLL_INSENSITIVE.equals(cursorType)) {
+            return ResultSet.TYPE_SCROLL_INSENSITIVE;
+        }
+        if (CURSOR_SCROLL_SENSITIVE.equals(cursorType)) {
+            return ResultSet.TYPE_SCROLL_SENSITIVE;
+        }
+        return ResultSet.TYPE_FORWARD_ONLY;
     }
 
     /**
@@ -114,107 +345,436 @@ public class JavaJDBCSampler extends AbstractJavaSamplerClient {
     public SampleResult runTest(JavaSamplerContext context) {
         setupValues(context);
 
+        if (concurrentQueries > 1) {
+            if (prepared) {
+                // Parse the parameters before the fan-out threads share them
+                try {
+                    plan.compile();
+                } catch (SQLException e) {
+                    // Reported by each query
+                } catch (IOException e) {
+                    // Reported by each query
+                }
+            }
+            return runFanOut(context);
+        }
         SampleResult results = new SampleResult();
+        runQuery(results, 0);
+        return results;
+    }
 
+    /**
+     * Runs the query once on a connection of its own, recording the outcome
+     * in <code>results</code>. Called from the JMeter thread, or from the
+     * fan-out executor for concurrent queries.
+     *
+     * @param results
+     *            result to fill in
+     * @param slot
+     *            number of the concurrent query, 0 for the first
+     */
+    private void runQuery(SampleResult results, int slot) {
         results.setDataType(SampleResult.TEXT);
 
         Connection conn = null;
         Statement st = null;
         ResultSet rs = null;
+        boolean broken = false;
+        boolean running = false;
+        String errorState = null;
         // Record sample start time.
         results.sampleStart();
+        long start = System.nanoTime();
         
         try {
             
-            Class.forName(driverClass).newInstance();
-            conn = DriverManager.getConnection(serverURL, userName,
-                    userPassword);
-            
-            st = conn.createStatement();
-            rs = st.executeQuery(query);
-            String result = getStringFromResultSet(rs);
-            results.setResponseData(result.getBytes());
+            long acquireStart = System.nanoTime();
+            conn = getConnection(slot);
+            metrics.connectionAcquired(System.nanoTime() - acquireStart);
+            metrics.queryStarted();
+            running = true;
+
+            if (prepared) {
+                PreparedStatement pst = AbstractJDBCQuerySampler.perConnCache
+                        .get(conn, query, false, resultSetType,
+                                resultSetConcurrency);
+                configureStatement(pst);
+                plan.bind(pst);
+                st = pst;
+                runningStatements.set(slot, st);
+                rs = pst.executeQuery();
+            } else {
+                st = conn.createStatement(resultSetType, resultSetConcurrency);
+                configureStatement(st);
+                runningStatements.set(slot, st);
+                rs = st.executeQuery(query);
+            }
+            results.setResponseData(countOnly ? countRows(rs, slot)
+                    : getBytesFromResultSet(rs, slot));
             
             results.setSuccessful(true);
         } catch (Exception e) {
-            getLogger().error("JavaJDBCSampler: error during sample: ", e);
+            if (e instanceof SQLException) {
+                errorState = JDBCSamplerMetrics.sqlState((SQLException) e);
+            }
+            if (st != null && !runningStatements.compareAndSet(slot, st, null)) {
+                // Cancelled by runFanOut; the connection is still usable
+                getLogger().debug("JavaJDBCSampler: query cancelled: " + e);
+            } else {
+                getLogger().error("JavaJDBCSampler: error during sample: ", e);
+                broken = isConnectionFailure(conn, e);
+            }
             results.setSuccessful(false);
         } finally {
             // Record end time.
             results.sampleEnd();
+            runningStatements.set(slot, null);
+            if (running) {
+                metrics.queryEnded();
+            }
             try {
                 if (rs != null) {
                     rs.close();
                 }
-                if (st != null) {
+                // Prepared statements stay in the cache
+                if (st != null && !prepared) {
                     st.close();
                 }
-                if (conn != null) {
-                    conn.close();
-                }
             } catch (SQLException e) {
                 getLogger().error("JavaJDBCSampler: error during sample: ", e);
                 results.setSuccessful(false);
+                broken = broken || isConnectionFailure(conn, e);
             }
+            releaseConnection(conn, broken, slot);
+            metrics.sampled(results.isSuccessful(), errorState,
+                    results.getBytes(), System.nanoTime() - start);
         }
+    }
 
-        return results;
+    /**
+     * Tells whether a failed sample left its connection unusable. Errors of
+     * the statement itself, such as a syntax error or a constraint
+     * violation, keep the connection; SQLState class 08 (connection
+     * exception) discards it, and errors without a SQLState discard it only
+     * if the connection no longer answers {@link Connection#isValid(int)}.
+     *
+     * @param conn
+     *            the connection used by the sample, may be null
+     * @param e
+     *            the error of the sample
+     * @return true if the connection must not be reused
+     */
+    private static boolean isConnectionFailure(Connection conn, Exception e) {
+        if (conn == null) {
+            return false;
+        }
+        if (e instanceof SQLException) {
+            String state = ((SQLException) e).getSQLState();
+            if (state != null && state.length() >= 2) {
+                return state.startsWith("08"); // $NON-NLS-1$
+            }
+        }
+        try {
+            return !conn.isValid(VALID_TIMEOUT);
+        } catch (SQLException ex) {
+            return true;
+        }
+    }
+
+    /**
+     * Issues <code>concurrentQueries</code> queries at once on the fan-out
+     * executor and waits for all of them, or for the first
+     * <code>waitFor</code>. Queries still running then are cancelled.
+     * 
+     * @return a parent result timed from the first submission to the last
+     *         awaited completion, with one child per awaited query
+     */
+    private SampleResult runFanOut(JavaSamplerContext context) {
+        final int total = concurrentQueries;
+        final int awaited = waitFor > 0 && waitFor < total ? waitFor : total;
+        final String label = context.getParameter(TestElement.NAME,
+                "JavaJDBCSampler"); // $NON-NLS-1$
+
+        SampleResult parent = new SampleResult();
+        parent.setDataType(SampleResult.TEXT);
+        CompletionService<SampleResult> completion = new ExecutorCompletionService<SampleResult>(
+                FanOutExecutor.get());
+        List<Future<SampleResult>> futures = new ArrayList<Future<SampleResult>>(
+                total);
+        List<SampleResult> children = new ArrayList<SampleResult>(awaited);
+        boolean interrupted = false;
+
+        parent.sampleStart();
+        for (int i = 0; i < total; i++) {
+            final int slot = i;
+            futures.add(completion.submit(new Callable<SampleResult>() {
+                public SampleResult call() {
+                    SampleResult child = new SampleResult();
+                    child.setSampleLabel(label + " - query " + (slot + 1)); // $NON-NLS-1$
+                    runQuery(child, slot);
+                    return child;
+                }
+            }));
+        }
+        int taken = 0;
+        try {
+            while (taken < awaited) {
+                Future<SampleResult> done = completion.take();
+                taken++;
+                children.add(done.get());
+            }
+        } catch (InterruptedException e) {
+            interrupted = true;
+        } catch (ExecutionException e) {
+            // runQuery handles its own errors, so this is a bug
+            getLogger().error("JavaJDBCSampler: fan-out query failed: ", e.getCause());
+        }
+        parent.sampleEnd();
+
+        // Cancel the queries nobody waits for, then let them hand their
+        // connections back before the next sample reuses their slots
+        int cancelled = 0;
+        for (int i = 0; i < total; i++) {
+            if (!futures.get(i).isDone()) {
+                cancelled++;
+                cancelStatement(i);
+            }
+        }
+        if (interrupted) {
+            for (Future<SampleResult> future : futures) {
+                future.cancel(true);
+            }
+        } else {
+            for (int i = taken; i < total; i++) {
+                try {
+                    completion.take();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    break;
+                }
+            }
+        }
+
+        int failed = 0;
+        for (SampleResult child : children) {
+            if (!child.isSuccessful()) {
+                failed++;
+            }
+            parent.addSubResult(child);
+        }
+        parent.setSuccessful(!interrupted && failed == 0
+                && children.size() == awaited);
+        parent.setResponseMessage(children.size() + " of " + total // $NON-NLS-1$
+                + " queries completed, " + failed + " failed, " // $NON-NLS-1$ $NON-NLS-2$
+                + cancelled + " cancelled"); // $NON-NLS-1$
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return parent;
+    }
+
+    /**
+     * Applies the statement settings; cached statements are shared by all
+     * samplers using the same SQL on a connection, so they are set on every
+     * execution.
+     */
+    private void configureStatement(Statement st) throws SQLException {
+        st.setFetchSize(fetchSize);
+        st.setQueryTimeout(queryTimeout);
+        // Push the row limit down to the driver
+        st.setMaxRows((int) Math.min(Math.max(rowLimit, 0), Integer.MAX_VALUE));
+    }
+
+    private void cancelStatement(int slot) {
+        Statement st = runningStatements.getAndSet(slot, null);
+        if (st != null) {
+            try {
+                st.cancel();
+            } catch (SQLException e) {
+                getLogger().debug("JavaJDBCSampler: could not cancel query: " + e);
+            }
+        }
     }
 
     @Override
     public void setupTest(JavaSamplerContext context) {
-        //
+        setupValues(context);
+        metrics = JDBCSamplerMetrics.get(getClass());
+        if (!isKnownConnectionMode(connectionMode)) {
+            getLogger().error("JavaJDBCSampler: unknown " + CONNECTION_MODE
+                    + " '" + connectionMode + "', expected one of '"
+                    + MODE_POOLED + "', '" + MODE_STICKY + "', '"
+                    + MODE_PER_SAMPLE + "'");
+        } else if (MODE_POOLED.equals(connectionMode)) {
+            try {
+                pool = JDBCConnectionPool.attach(driverClass, serverURL,
+                        userName, userPassword,
+                        context.getIntParameter(POOL_SIZE, DEFAULT_POOL_SIZE),
+                        context.getLongParameter(MAX_IDLE_TIME,
+                                DEFAULT_MAX_IDLE_TIME),
+                        Boolean.parseBoolean(context.getParameter(
+                                VALIDATE_ON_BORROW,
+                                DEFAULT_VALIDATE_ON_BORROW).trim()),
+                        context.getParameter(VALIDATION_QUERY,
+                                DEFAULT_VALIDATION_QUERY).trim());
+            } catch (SQLException e) {
+                getLogger().error("JavaJDBCSampler: could not create pool: ", e);
+            }
+            if (concurrentQueries > context.getIntParameter(POOL_SIZE,
+                    DEFAULT_POOL_SIZE)) {
+                getLogger().warn("JavaJDBCSampler: " + CONCURRENT_QUERIES
+                        + " exceeds " + POOL_SIZE
+                        + ", fan-out queries will wait for connections");
+            }
+        }
     }
 
     @Override
     public void teardownTest(JavaSamplerContext context) {
-        //
+        for (int i = 0; i < stickyConnections.length; i++) {
+            JDBCConnectionPool.discard(stickyConnections[i]);
+            stickyConnections[i] = null;
+        }
+        if (pool != null) {
+            pool.detach();
+            pool = null;
+        }
+    }
+
+    /**
+     * Obtains a connection according to the configured connection mode.
+     * Only the per-sample mode pays for a new physical connection on every
+     * call; the driver itself is loaded once per JVM in all modes.
+     *
+     * @param slot
+     *            number of the concurrent query; in sticky mode each has its
+     *            own connection
+     */
+    private Connection getConnection(int slot) throws SQLException {
+        if (MODE_PER_SAMPLE.equals(connectionMode)) {
+            return JDBCConnectionPool.openConnection(driverClass, serverURL,
+                    userName, userPassword);
+        }
+        if (MODE_STICKY.equals(connectionMode)) {
+            // A sticky connection that failed is dropped in releaseConnection
+            Connection conn = stickyConnections[slot];
+            if (conn == null || conn.isClosed()) {
+                conn = JDBCConnectionPool.openConnection(driverClass,
+                        serverURL, userName, userPassword);
+                stickyConnections[slot] = conn;
+            }
+            return conn;
+        }
+        if (!MODE_POOLED.equals(connectionMode)) {
+            throw new SQLException("Unknown " + CONNECTION_MODE + " '"
+                    + connectionMode + "'");
+        }
+        if (pool == null) {
+            throw new SQLException("Connection pool not available for "
+                    + serverURL + ", see earlier errors");
+        }
+        return pool.borrow(poolTimeout);
+    }
+
+    /**
+     * Hands a connection back according to the configured connection mode.
+     */
+    private void releaseConnection(Connection conn, boolean broken, int slot) {
+        if (conn == null) {
+            return;
+        }
+        if (MODE_STICKY.equals(connectionMode)) {
+            if (broken) {
+                JDBCConnectionPool.discard(conn);
+                stickyConnections[slot] = null;
+            }
+        } else if (pool != null && MODE_POOLED.equals(connectionMode)) {
+            // The pool releases the cached statements of what it closes
+            pool.release(conn, broken);
+        } else {
+            JDBCConnectionPool.discard(conn);
+        }
     }
     
     /**
-     * Gets a Data object from a ResultSet.
+     * @param slot
+     *            number of the concurrent query
+     * @return the emptied encoder of the query, in full LOB mode
+     */
+    private ResultSetEncoder getEncoder(int slot) {
+        ResultSetEncoder encoder = encoders[slot];
+        if (encoder == null) {
+            encoder = new ResultSetEncoder();
+            encoders[slot] = encoder;
+        }
+        encoder.reset();
+        encoder.setLobMode(ResultSetEncoder.LOB_FULL);
+        return encoder;
+    }
+
+    /**
+     * Encodes a ResultSet as tab separated UTF-8 text.
      * 
      * @param rs
      *            ResultSet passed in from a database query
-     * @return a Data object
+     * @param slot
+     *            number of the concurrent query
+     * @return the encoded rows, preceded by the column names
      * @throws java.sql.SQLException
-     * @throws UnsupportedEncodingException
      */
-    private String getStringFromResultSet(ResultSet rs) throws SQLException,
-            UnsupportedEncodingException {
-        ResultSetMetaData meta = rs.getMetaData();
+    private byte[] getBytesFromResultSet(ResultSet rs, int slot)
+            throws SQLException {
+        ColumnLayout columns = ColumnLayout.update(layout, query,
+                rs.getMetaData());
+        layout = columns;
 
-        StringBuilder sb = new StringBuilder();
+        ResultSetEncoder encoder = getEncoder(slot);
+        encoder.writeHeader(columns);
 
-        int numColumns = meta.getColumnCount();
-        for (int i = 1; i <= numColumns; i++) {
-            sb.append(meta.getColumnName(i));
-            if (i == numColumns) {
-                sb.append('\n');
-            } else {
-                sb.append('\t');
-            }
-        }
+        int numColumns = columns.getColumnCount();
+        int[] kinds = columns.getKinds();
 
         final int limit = (int) (rowLimit > 0 ? rowLimit : Integer.MAX_VALUE);
         int idx = 0;
         while (idx < limit && rs.next()) {
             idx++;
             for (int i = 1; i <= numColumns; i++) {
-                Object o = rs.getObject(i);
-                if (o instanceof byte[]) {
-                    o = new String((byte[]) o, "UTF-8");
-                }
-                sb.append(o);
+                encoder.writeColumn(rs, i, kinds[i]);
                 if (i==numColumns){
-                    sb.append('\n');
+                    encoder.write('\n');
                 } else {
-                    sb.append('\t');
+                    encoder.write('\t');
                 }
             }
         }
+        metrics.rowsRead(idx);
+
+        return encoder.toByteArray();
+    }
 
-        return sb.toString();
+    /**
+     * Reads the rows without touching any column, the lightest way through
+     * a result set.
+     * 
+     * @param rs
+     *            ResultSet passed in from a database query
+     * @param slot
+     *            number of the concurrent query
+     * @return the number of rows, under a <code>Rows</code> heading
+     * @throws java.sql.SQLException
+     */
+    private byte[] countRows(ResultSet rs, int slot) throws SQLException {
+        final long limit = rowLimit > 0 ? rowLimit : Long.MAX_VALUE;
+        long rows = 0;
+        while (rows < limit && rs.next()) {
+            rows++;
+        }
+        metrics.rowsRead(rows);
+        ResultSetEncoder encoder = getEncoder(slot);
+        encoder.write("Rows\n"); // $NON-NLS-1$
+        encoder.write(rows);
+        encoder.write('\n');
+        return encoder.toByteArray();
     }
     
 
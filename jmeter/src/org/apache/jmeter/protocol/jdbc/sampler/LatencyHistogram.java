@@ -0,0 +1,128 @@
+package org.apache.jmeter.protocol.jdbc.sampler;
+
+/**
+ * Latency histogram with HdrHistogram-style log-linear buckets, used to
+ * merge the counts of {@link LatencyRecorder}s.
+ * <p>
+ * Values are in microseconds. Values below 128 have a bucket each; above
+ * that, every power of two range is split into 64 buckets, so a bucket is
+ * never wider than 1/64 (about 1.6%) of the values it holds. Values above
+ * about 71 minutes go into the last bucket.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 7;
+
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    private static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT >> 1;
+
+    /** Highest value with a bucket of its own range */
+    static final long MAX_VALUE = (1L << 32) - 1;
+
+    /** Number of buckets needed for values up to MAX_VALUE */
+    static final int BUCKETS = index(MAX_VALUE) + 1;
+
+    private final long[] counts = new long[BUCKETS];
+
+    private long totalCount;
+
+    /**
+     * @param micros
+     *            a value, negative values count as 0
+     * @return the bucket holding the value
+     */
+    static int index(long micros) {
+        long v = micros < 0 ? 0 : Math.min(micros, MAX_VALUE);
+        int exponent = Math.max(0, 63 - Long.numberOfLeadingZeros(v)
+                - (SUB_BUCKET_BITS - 1));
+        return exponent * SUB_BUCKET_HALF + (int) (v >>> exponent);
+    }
+
+    /**
+     * @return the lowest value held by the bucket
+     */
+    static long lowestValue(int index) {
+        int exponent = Math.max(0, index / SUB_BUCKET_HALF - 1);
+        return (long) (index - exponent * SUB_BUCKET_HALF) << exponent;
+    }
+
+    /**
+     * @return the highest value held by the bucket
+     */
+    static long highestValue(int index) {
+        int exponent = Math.max(0, index / SUB_BUCKET_HALF - 1);
+        return lowestValue(index) + (1L << exponent) - 1;
+    }
+
+    void add(int index, long count) {
+        counts[index] += count;
+        totalCount += count;
+    }
+
+    void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+    }
+
+    long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * @param percentile
+     *            percentile, 0 to 100
+     * @return highest value of the bucket the percentile falls into, 0 if
+     *         the histogram is empty
+     */
+    long getValueAtPercentile(double percentile) {
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0
+                * totalCount));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return highestValue(i);
+            }
+        }
+        return 0;
+    }
+
+    long getMinValue() {
+        for (int i = 0; i < BUCKETS; i++) {
+            if (counts[i] != 0) {
+                return lowestValue(i);
+            }
+        }
+        return 0;
+    }
+
+    long getMaxValue() {
+        for (int i = BUCKETS - 1; i >= 0; i--) {
+            if (counts[i] != 0) {
+                return highestValue(i);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Appends the non-empty buckets as comma separated
+     * <code>lowestValue:count</code> pairs, from which histograms can be
+     * merged again.
+     */
+    void appendBuckets(StringBuilder sb) {
+        boolean first = true;
+        for (int i = 0; i < BUCKETS; i++) {
+            if (counts[i] != 0) {
+                if (!first) {
+                    sb.append(',');
+                }
+                sb.append(lowestValue(i)).append(':').append(counts[i]);
+                first = false;
+            }
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package org.apache.jmeter.protocol.jdbc.sampler;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jmeter.util.JMeterUtils;
+import org.apache.jorphan.logging.LoggingManager;
+import org.apache.log.Logger;
+
+/**
+ * Collects the latencies recorded by the JDBC samplers without going
+ * through the listeners, and writes them to an interval log as the test
+ * runs.
+ * <p>
+ * Enabled by setting the <code>jdbcsampler.latency_log</code> property to
+ * the file to write. Every <code>jdbcsampler.latency_log.interval</code>
+ * milliseconds (default 10000) a background thread merges the per-thread
+ * {@link LatencyRecorder}s into one histogram per label and phase, and
+ * appends the interval to the log straight away, so that nothing is held
+ * back in memory and a log cut short by a crash keeps every interval up to
+ * the last one. The log is tab separated text, values in microseconds,
+ * with a line per label, phase and interval followed, at test end, by a
+ * line per label and phase for the whole test. The last column holds the
+ * non-empty buckets, so that intervals can be merged again later.
+ */
+final class LatencyLog {
+
+    private static final Logger log = LoggingManager.getLoggerForClass();
+
+    private static final String ENCODING = "UTF-8"; // $NON-NLS-1$
+
+    private static final String HEADER = "#Kind\tStartTimestamp\tIntervalMs\tLabel\tPhase\tCount" // $NON-NLS-1$
+            + "\tMin\tP50\tP90\tP99\tP99.9\tMax\tBuckets\n"; // $NON-NLS-1$
+
+    /** The log of the running test, guarded by the class */
+    private static LatencyLog current;
+
+    private final String fileName;
+
+    private final long testStart = System.currentTimeMillis();
+
+    private final Queue<LatencyRecorder> recorders = new ConcurrentLinkedQueue<LatencyRecorder>();
+
+    private final ScheduledExecutorService merger;
+
+    // Only used by the merger, then by finish() once the merger stopped
+    private long intervalStart = testStart;
+
+    private final Map<String, LatencyHistogram[]> totals = new LinkedHashMap<String, LatencyHistogram[]>();
+
+    /**
+     * Counts already merged per label, phase and bucket, summed over the
+     * label's recorders; a phase is null until it has values
+     */
+    private final Map<String, int[][]> merged = new HashMap<String, int[][]>();
+
+    /** Scratch sums of the recorders of one label and phase */
+    private final int[] sums = new int[LatencyHistogram.BUCKETS];
+
+    /** Lines of the interval being written */
+    private final StringBuilder lines = new StringBuilder();
+
+    /** The open log, null if it could not be created */
+    private Writer out;
+
+    private LatencyLog(String fileName, long intervalMillis) {
+        this.fileName = fileName;
+        try {
+            out = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(fileName), ENCODING));
+            out.write(HEADER);
+            out.flush();
+        } catch (IOException e) {
+            log.error("Could not create JDBC latency log " + fileName, e);
+            close();
+        }
+        merger = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "JDBC latency log"); // $NON-NLS-1$
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        merger.scheduleAtFixedRate(new Runnable() {
+            public void run() {
+                merge();
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a recorder for the calling thread, starting the log on first
+     * use.
+     *
+     * @param label
+     *            sample label the recorder is for
+     * @return the recorder, or null if the latency log is not enabled
+     */
+    static LatencyRecorder createRecorder(String label) {
+        LatencyLog latencyLog;
+        synchronized (LatencyLog.class) {
+            if (current == null) {
+                String fileName = JMeterUtils.getPropDefault(
+                        "jdbcsampler.latency_log", "").trim(); // $NON-NLS-1$ $NON-NLS-2$
+                if (fileName.length() == 0) {
+                    return null;
+                }
+                long interval = Math.max(100, JMeterUtils.getPropDefault(
+                        "jdbcsampler.latency_log.interval", 10000L)); // $NON-NLS-1$
+                current = new LatencyLog(fileName, interval);
+            }
+            latencyLog = current;
+        }
+        LatencyRecorder recorder = new LatencyRecorder(label);
+        latencyLog.recorders.add(recorder);
+        return recorder;
+    }
+
+    /**
+     * Merges what was recorded since the last interval and writes the log,
+     * if one was started.
+     */
+    static void testEnded() {
+        LatencyLog latencyLog;
+        synchronized (LatencyLog.class) {
+            latencyLog = current;
+            current = null;
+        }
+        if (latencyLog != null) {
+            latencyLog.finish();
+        }
+    }
+
+    private void merge() {
+        long now = System.currentTimeMillis();
+        Map<String, List<LatencyRecorder>> byLabel = new LinkedHashMap<String, List<LatencyRecorder>>();
+        for (LatencyRecorder recorder : recorders) {
+            List<LatencyRecorder> list = byLabel.get(recorder.getLabel());
+            if (list == null) {
+                list = new ArrayList<LatencyRecorder>();
+                byLabel.put(recorder.getLabel(), list);
+            }
+            list.add(recorder);
+        }
+        Map<String, LatencyHistogram[]> interval = new LinkedHashMap<String, LatencyHistogram[]>();
+        for (Map.Entry<String, List<LatencyRecorder>> entry : byLabel.entrySet()) {
+            interval.put(entry.getKey(),
+                    mergeLabel(entry.getKey(), entry.getValue()));
+        }
+        for (Map.Entry<String, LatencyHistogram[]> entry : interval.entrySet()) {
+            LatencyHistogram[] total = totals.get(entry.getKey());
+            if (total == null) {
+                total = newHistograms();
+                totals.put(entry.getKey(), total);
+            }
+            for (int p = 0; p < total.length; p++) {
+                LatencyHistogram histogram = entry.getValue()[p];
+                total[p].add(histogram);
+                appendLine("interval", intervalStart, now - intervalStart, // $NON-NLS-1$
+                        entry.getKey(), p, histogram);
+            }
+        }
+        intervalStart = now;
+        writeLines();
+    }
+
+    /**
+     * Sums the counts of the recorders of a label and takes the difference
+     * to the sums of the previous merge. Recorders are never removed during
+     * a test, so the sums only grow, modulo 2^32.
+     *
+     * @return the values recorded since the previous merge, per phase
+     */
+    private LatencyHistogram[] mergeLabel(String label,
+            List<LatencyRecorder> labelRecorders) {
+        int[][] done = merged.get(label);
+        if (done == null) {
+            done = new int[LatencyRecorder.PHASE_NAMES.length][];
+            merged.put(label, done);
+        }
+        LatencyHistogram[] histograms = newHistograms();
+        for (int p = 0; p < done.length; p++) {
+            Arrays.fill(sums, 0);
+            boolean recorded = false;
+            for (LatencyRecorder recorder : labelRecorders) {
+                recorded |= recorder.addCounts(p, sums);
+            }
+            if (!recorded) {
+                continue;
+            }
+            if (done[p] == null) {
+                done[p] = new int[LatencyHistogram.BUCKETS];
+            }
+            int[] previous = done[p];
+            for (int i = 0; i < sums.length; i++) {
+                if (sums[i] != previous[i]) {
+                    histograms[p].add(i, (sums[i] - previous[i]) & 0xFFFFFFFFL);
+                    previous[i] = sums[i];
+                }
+            }
+        }
+        return histograms;
+    }
+
+    /**
+     * Appends the pending lines to the log and flushes it.
+     */
+    private void writeLines() {
+        if (lines.length() == 0) {
+            return;
+        }
+        if (out != null) {
+            try {
+                out.append(lines);
+                out.flush();
+            } catch (IOException e) {
+                log.error("Could not write JDBC latency log " + fileName
+                        + ", no further intervals will be logged", e);
+                close();
+            }
+        }
+        lines.setLength(0);
+    }
+
+    private void close() {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            log.warn("Could not close JDBC latency log " + fileName + ": " + e);
+        }
+        out = null;
+    }
+
+    private void finish() {
+        merger.shutdown();
+        try {
+            if (!merger.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.warn("Latency log merger did not stop, log may be incomplete");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        merge();
+        long duration = System.currentTimeMillis() - testStart;
+        for (Map.Entry<String, LatencyHistogram[]> entry : totals.entrySet()) {
+            for (int p = 0; p < entry.getValue().length; p++) {
+                appendLine("total", testStart, duration, entry.getKey(), p, // $NON-NLS-1$
+                        entry.getValue()[p]);
+            }
+        }
+        writeLines();
+        if (out != null) {
+            log.info("Wrote JDBC latency log " + fileName + " for "
+                    + recorders.size() + " recorders");
+        }
+        close();
+    }
+
+    private void appendLine(String kind, long start, long length,
+            String label, int phase, LatencyHistogram histogram) {
+        if (histogram.getTotalCount() == 0) {
+            return;
+        }
+        StringBuilder sb = lines;
+        sb.append(kind).append('\t').append(start).append('\t').append(length)
+                .append('\t').append(label.replace('\t', ' '))
+                .append('\t').append(LatencyRecorder.PHASE_NAMES[phase])
+                .append('\t').append(histogram.getTotalCount())
+                .append('\t').append(histogram.getMinValue())
+                .append('\t').append(histogram.getValueAtPercentile(50))
+                .append('\t').append(histogram.getValueAtPercentile(90))
+                .append('\t').append(histogram.getValueAtPercentile(99))
+                .append('\t').append(histogram.getValueAtPercentile(99.9))
+                .append('\t').append(histogram.getMaxValue()).append('\t');
+        histogram.appendBuckets(sb);
+        sb.append('\n');
+    }
+
+    private static LatencyHistogram[] newHistograms() {
+        LatencyHistogram[] histograms = new LatencyHistogram[LatencyRecorder.PHASE_NAMES.length];
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+        return histograms;
+    }
+}
@@ -0,0 +1,85 @@
+package org.apache.jmeter.protocol.jdbc.sampler;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Latency counts of one sample label, written by a single (per-thread)
+ * sampler and read by the {@link LatencyLog} merger.
+ * <p>
+ * Counts only ever grow. The writer increments with ordered stores and no
+ * atomic read-modify-write, since it is the only writer; the merger never
+ * resets them, but remembers per label what it already merged and takes
+ * the difference. Neither side waits for the other. The counts of a phase
+ * are only allocated once a value is recorded for it, so a recorder of
+ * updates, which have no first row, holds a single array.
+ */
+final class LatencyRecorder {
+
+    /** Time to the return of executeQuery */
+    static final int EXECUTE = 0;
+
+    /** Time to the first row */
+    static final int FIRST_ROW = 1;
+
+    /** Time of the whole sample */
+    static final int TOTAL = 2;
+
+    static final String[] PHASE_NAMES = { "execute", "first_row", "total" }; // $NON-NLS-1$ $NON-NLS-2$ $NON-NLS-3$
+
+    private final String label;
+
+    /**
+     * Cumulative counts per phase and bucket, null until the phase's first
+     * value; wrap around is harmless
+     */
+    private final AtomicReferenceArray<AtomicIntegerArray> counts =
+            new AtomicReferenceArray<AtomicIntegerArray>(PHASE_NAMES.length);
+
+    LatencyRecorder(String label) {
+        this.label = label;
+    }
+
+    String getLabel() {
+        return label;
+    }
+
+    /**
+     * Records one value; must only be called by the owning thread.
+     *
+     * @param phase
+     *            one of the phase constants
+     * @param nanos
+     *            the latency in nanoseconds
+     */
+    void record(int phase, long nanos) {
+        AtomicIntegerArray c = counts.get(phase);
+        if (c == null) {
+            c = new AtomicIntegerArray(LatencyHistogram.BUCKETS);
+            counts.set(phase, c);
+        }
+        int i = LatencyHistogram.index(nanos / 1000L);
+        c.lazySet(i, c.get(i) + 1);
+    }
+
+    /**
+     * Adds the cumulative counts of a phase to <code>sums</code>; must only
+     * be called by the merger.
+     *
+     * @param phase
+     *            one of the phase constants
+     * @param sums
+     *            one sum per bucket
+     * @return false if no value was recorded for the phase yet
+     */
+    boolean addCounts(int phase, int[] sums) {
+        AtomicIntegerArray c = counts.get(phase);
+        if (c == null) {
+            return false;
+        }
+        for (int i = 0; i < sums.length; i++) {
+            sums[i] += c.get(i);
+        }
+        return true;
+    }
+}
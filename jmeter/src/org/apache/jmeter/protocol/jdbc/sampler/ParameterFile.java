@@ -0,0 +1,401 @@
+package org.apache.jmeter.protocol.jdbc.sampler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Pre-generated, typed parameter sets of a prepared statement, held in a
+ * memory-mapped file shared by all threads.
+ * <p>
+ * Binding from the file costs no variable substitution, splitting or text
+ * conversion: each value is read from the mapping and passed to its typed
+ * setter. Each thread walks the rows through its own {@link Cursor}, taking
+ * every <i>stride</i>-th row from its own offset and starting over at the
+ * end, so threads never share state.
+ * <p>
+ * The file is big-endian, as written by <code>DataOutputStream</code>:
+ *
+ * <pre>
+ * int       magic, 0x4A504152 ("JPAR")
+ * int       version, 1
+ * int       number of columns C
+ * int       number of rows R
+ * int[C]    java.sql.Types type of each column
+ * R x C     values of 9 bytes: a null flag (1 for NULL, else 0) and 8 bytes
+ * bytes     UTF-8 text of the string and decimal values
+ * </pre>
+ *
+ * The 8 bytes of a value hold a long for the integer and boolean types
+ * (non-zero is true), the bits of a double for REAL, FLOAT and DOUBLE,
+ * milliseconds since the epoch for DATE, TIME and TIMESTAMP, and for CHAR,
+ * VARCHAR, LONGVARCHAR, NCHAR, NVARCHAR, DECIMAL and NUMERIC an int offset
+ * into the text that follows the values and an int byte length. Files are
+ * limited to 2GB.
+ */
+final class ParameterFile {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8"); // $NON-NLS-1$
+
+    private static final int MAGIC = 0x4A504152;
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 16;
+
+    private static final int VALUE_SIZE = 9;
+
+    /** Files opened during the test, by path */
+    private static final ConcurrentMap<String, ParameterFile> files = new ConcurrentHashMap<String, ParameterFile>();
+
+    private final String path;
+
+    private final int[] types;
+
+    private final int rows;
+
+    private final MappedByteBuffer data;
+
+    private final int valuesStart;
+
+    private final int textStart;
+
+    private ParameterFile(String path, int[] types, int rows,
+            MappedByteBuffer data) {
+        this.path = path;
+        this.types = types;
+        this.rows = rows;
+        this.data = data;
+        this.valuesStart = HEADER_SIZE + 4 * types.length;
+        this.textStart = valuesStart + VALUE_SIZE * rows * types.length;
+    }
+
+    /**
+     * Returns the shared mapping of a file, mapping it on first use.
+     *
+     * @param path
+     *            the file
+     * @return the mapped file
+     * @throws IOException
+     *             if the file cannot be read or is not a valid parameter
+     *             file
+     */
+    static ParameterFile open(String path) throws IOException {
+        ParameterFile file = files.get(path);
+        if (file == null) {
+            // Mapping twice is harmless, only one mapping is kept
+            ParameterFile mapped = map(path);
+            file = files.putIfAbsent(path, mapped);
+            if (file == null) {
+                file = mapped;
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Forgets the files of the test; the mappings are released when no
+     * longer referenced.
+     */
+    static void clear() {
+        files.clear();
+    }
+
+    private static ParameterFile map(String path) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(new File(path), "r"); // $NON-NLS-1$
+        MappedByteBuffer data;
+        try {
+            FileChannel channel = raf.getChannel();
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Parameter file exceeds 2GB: " + path); // $NON-NLS-1$
+            }
+            // The mapping stays valid once the channel is closed
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        } finally {
+            raf.close();
+        }
+        if (data.limit() < HEADER_SIZE || data.getInt(0) != MAGIC) {
+            throw new IOException("Not a parameter file: " + path); // $NON-NLS-1$
+        }
+        if (data.getInt(4) != VERSION) {
+            throw new IOException("Unsupported parameter file version " // $NON-NLS-1$
+                    + data.getInt(4) + ": " + path); // $NON-NLS-1$
+        }
+        int columns = data.getInt(8);
+        int rows = data.getInt(12);
+        if (columns < 0 || rows < 0
+                || HEADER_SIZE + 4L * columns + (long) VALUE_SIZE * rows
+                        * columns > data.limit()) {
+            throw new IOException("Truncated parameter file: " + path); // $NON-NLS-1$
+        }
+        int[] types = new int[columns];
+        for (int i = 0; i < columns; i++) {
+            types[i] = data.getInt(HEADER_SIZE + 4 * i);
+            if (!isSupported(types[i])) {
+                throw new IOException("Unsupported parameter type " + types[i] // $NON-NLS-1$
+                        + " in column " + (i + 1) + ": " + path); // $NON-NLS-1$
+            }
+        }
+        return new ParameterFile(path, types, rows, data);
+    }
+
+    private static boolean isSupported(int type) {
+        switch (type) {
+        case Types.BIT:
+        case Types.BOOLEAN:
+        case Types.TINYINT:
+        case Types.SMALLINT:
+        case Types.INTEGER:
+        case Types.BIGINT:
+        case Types.REAL:
+        case Types.FLOAT:
+        case Types.DOUBLE:
+        case Types.DATE:
+        case Types.TIME:
+        case Types.TIMESTAMP:
+        case Types.CHAR:
+        case Types.VARCHAR:
+        case Types.LONGVARCHAR:
+        case Types.NCHAR:
+        case Types.NVARCHAR:
+        case Types.DECIMAL:
+        case Types.NUMERIC:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    String getPath() {
+        return path;
+    }
+
+    int getRowCount() {
+        return rows;
+    }
+
+    int getColumnCount() {
+        return types.length;
+    }
+
+    /**
+     * Creates a cursor for the calling thread.
+     *
+     * @param offset
+     *            first row of the thread
+     * @param stride
+     *            rows between two rows of the thread, normally the number
+     *            of threads
+     * @return the cursor, to be used by the calling thread only
+     */
+    Cursor cursor(int offset, int stride) {
+        return new Cursor(offset, Math.max(1, stride));
+    }
+
+    /**
+     * Position of one thread in the rows, with its own view of the mapping.
+     */
+    final class Cursor {
+
+        private final ByteBuffer view = data.duplicate();
+
+        private final int stride;
+
+        private long next;
+
+        private Cursor(int offset, int stride) {
+            this.stride = stride;
+            this.next = Math.max(0, offset);
+        }
+
+        ParameterFile getFile() {
+            return ParameterFile.this;
+        }
+
+        /**
+         * Reads a value of the next row of the thread, without moving on.
+         *
+         * @param column
+         *            column number, starting at 1
+         * @return the value as text: numbers as by <code>toString</code>,
+         *         times in milliseconds since the epoch, and an empty string
+         *         for NULL
+         * @throws SQLException
+         *             if there is no such column, or the file has no rows
+         */
+        String peekText(int column) throws SQLException {
+            if (column < 1 || column > types.length) {
+                throw new SQLException("No column number " + column // $NON-NLS-1$
+                        + " in parameter file " + path); // $NON-NLS-1$
+            }
+            if (rows == 0) {
+                throw new SQLException("Parameter file has no rows: " + path); // $NON-NLS-1$
+            }
+            int row = (int) (next % rows);
+            int pos = valuesStart + VALUE_SIZE * (row * types.length + column - 1);
+            if (view.get(pos) != 0) {
+                return ""; // $NON-NLS-1$
+            }
+            switch (types[column - 1]) {
+            case Types.BIT:
+            case Types.BOOLEAN:
+                return Boolean.toString(view.getLong(pos + 1) != 0);
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return Double.toString(view.getDouble(pos + 1));
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+                return text(view, pos + 1);
+            default: // integers and times
+                return Long.toString(view.getLong(pos + 1));
+            }
+        }
+
+        /**
+         * Binds the next row of the thread to the statement.
+         *
+         * @param pstmt
+         *            statement with one parameter per column
+         * @throws SQLException
+         *             if the file has no rows, or the driver refuses a
+         *             value
+         */
+        void bindNext(PreparedStatement pstmt) throws SQLException {
+            bind(view, nextRow(), pstmt);
+        }
+
+        /**
+         * Takes the next row of the thread, to be bound when a batch is
+         * sent.
+         *
+         * @return the row
+         * @throws SQLException
+         *             if the file has no rows
+         */
+        Row takeNext() throws SQLException {
+            return new Row(nextRow());
+        }
+
+        private int nextRow() throws SQLException {
+            if (rows == 0) {
+                throw new SQLException("Parameter file has no rows: " + path); // $NON-NLS-1$
+            }
+            int row = (int) (next % rows);
+            next += stride;
+            return row;
+        }
+    }
+
+    /**
+     * A row taken by a cursor for a batch. It is bound when the batch is
+     * sent, which may be by the timer thread, so it does not use the view
+     * of the cursor.
+     */
+    final class Row implements UpdateBatch.ParameterSets {
+
+        private final int row;
+
+        private Row(int row) {
+            this.row = row;
+        }
+
+        public int getBatchRows() {
+            return 1;
+        }
+
+        public void addBatch(PreparedStatement pstmt) throws SQLException {
+            bind(data.duplicate(), row, pstmt);
+            pstmt.addBatch();
+        }
+    }
+
+    private void bind(ByteBuffer view, int row, PreparedStatement pstmt)
+            throws SQLException {
+        int pos = valuesStart + VALUE_SIZE * row * types.length;
+        for (int i = 0; i < types.length; i++, pos += VALUE_SIZE) {
+            int index = i + 1;
+            int type = types[i];
+            if (view.get(pos) != 0) {
+                pstmt.setNull(index, type);
+                continue;
+            }
+            switch (type) {
+            case Types.BIT:
+            case Types.BOOLEAN:
+                pstmt.setBoolean(index, view.getLong(pos + 1) != 0);
+                break;
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+                pstmt.setInt(index, (int) view.getLong(pos + 1));
+                break;
+            case Types.BIGINT:
+                pstmt.setLong(index, view.getLong(pos + 1));
+                break;
+            case Types.REAL:
+                pstmt.setFloat(index, (float) view.getDouble(pos + 1));
+                break;
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                pstmt.setDouble(index, view.getDouble(pos + 1));
+                break;
+            case Types.DATE:
+                pstmt.setDate(index, new Date(view.getLong(pos + 1)));
+                break;
+            case Types.TIME:
+                pstmt.setTime(index, new Time(view.getLong(pos + 1)));
+                break;
+            case Types.TIMESTAMP:
+                pstmt.setTimestamp(index,
+                        new Timestamp(view.getLong(pos + 1)));
+                break;
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+                String value = text(view, pos + 1);
+                try {
+                    pstmt.setBigDecimal(index, new BigDecimal(value));
+                } catch (NumberFormatException e) {
+                    throw new SQLException("Invalid decimal '" + value // $NON-NLS-1$
+                            + "' in column " + index + " of " + path); // $NON-NLS-1$ $NON-NLS-2$
+                }
+                break;
+            default: // the string types
+                pstmt.setString(index, text(view, pos + 1));
+            }
+        }
+    }
+
+    private String text(ByteBuffer view, int pos) throws SQLException {
+        int start = textStart + view.getInt(pos);
+        int length = view.getInt(pos + 4);
+        if (start < textStart || length < 0
+                || start > view.limit() - length) {
+            throw new SQLException("Invalid text offset in parameter file: " // $NON-NLS-1$
+                    + path);
+        }
+        byte[] bytes = new byte[length];
+        view.position(start);
+        view.get(bytes);
+        return new String(bytes, UTF8);
+    }
+}
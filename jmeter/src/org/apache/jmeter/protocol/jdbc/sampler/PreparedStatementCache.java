@@ -0,0 +1,276 @@
+package org.apache.jmeter.protocol.jdbc.sampler;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.jorphan.logging.LoggingManager;
+import org.apache.log.Logger;
+
+/**
+ * Cache of PreparedStatements stored in a per-connection basis. Each
+ * connection gets a bounded LRU map from the statement string to the actual
+ * PreparedStatement; the least recently used statement is closed when the
+ * bound is exceeded.
+ * <p>
+ * Connections are keyed by identity and held strongly, as every cached
+ * statement references its connection anyway. Whoever closes a connection or
+ * discards it from a pool must call {@link #release(Connection)} so that its
+ * statements are closed with it; entries of connections found closed are
+ * also dropped whenever a connection is seen for the first time.
+ * <p>
+ * At one time a Connection is only held by one thread, so the per-connection
+ * maps are not contended.
+ */
+final class PreparedStatementCache {
+
+    private static final Logger log = LoggingManager.getLoggerForClass();
+
+    private final int maxPerConnection;
+
+    private final Map<Connection, StatementLru> perConnCache = Collections
+            .synchronizedMap(new IdentityHashMap<Connection, StatementLru>());
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param maxPerConnection
+     *            maximum number of statements kept open per connection
+     */
+    PreparedStatementCache(int maxPerConnection) {
+        this.maxPerConnection = Math.max(1, maxPerConnection);
+    }
+
+    /**
+     * Returns the cached statement for <code>sql</code> on this connection,
+     * preparing and caching it if required. The parameters of the returned
+     * statement are cleared.
+     *
+     * @param conn
+     *            connection held by the calling thread
+     * @param sql
+     *            statement to prepare
+     * @param callable
+     *            true to prepare a CallableStatement
+     * @return the prepared statement
+     * @throws SQLException
+     */
+    PreparedStatement get(Connection conn, String sql, boolean callable)
+            throws SQLException {
+        return get(conn, sql, callable, ResultSet.TYPE_FORWARD_ONLY,
+                ResultSet.CONCUR_READ_ONLY);
+    }
+
+    /**
+     * As {@link #get(Connection, String, boolean)}, for a statement whose
+     * result sets have the given cursor type and concurrency. Statements
+     * with other than forward only, read only results are cached apart from
+     * those for the same SQL.
+     */
+    PreparedStatement get(Connection conn, String sql, boolean callable,
+            int resultSetType, int resultSetConcurrency) throws SQLException {
+        String key = sql;
+        if (resultSetType != ResultSet.TYPE_FORWARD_ONLY
+                || resultSetConcurrency != ResultSet.CONCUR_READ_ONLY) {
+            key = resultSetType + "," + resultSetConcurrency + "\n" + sql; // $NON-NLS-1$ $NON-NLS-2$
+        }
+        StatementLru statements = perConnCache.get(conn);
+        if (statements == null) {
+            purgeClosed();
+            statements = new StatementLru();
+            // As a connection is held by only one thread, we cannot already
+            // have a map put by another thread
+            perConnCache.put(conn, statements);
+        }
+        PreparedStatement pstmt;
+        synchronized (statements) {
+            pstmt = statements.get(key);
+        }
+        if (pstmt == null) {
+            misses.incrementAndGet();
+            if (callable) {
+                pstmt = conn.prepareCall(sql, resultSetType,
+                        resultSetConcurrency);
+            } else {
+                pstmt = conn.prepareStatement(sql, resultSetType,
+                        resultSetConcurrency);
+            }
+            synchronized (statements) {
+                statements.put(key, pstmt);
+            }
+        } else {
+            hits.incrementAndGet();
+        }
+        pstmt.clearParameters();
+        return pstmt;
+    }
+
+    /**
+     * Closes and forgets all statements cached for a connection. To be
+     * called before the connection is closed or handed back to its pool.
+     *
+     * @param conn
+     *            the connection, may be null
+     */
+    void release(Connection conn) {
+        if (conn == null) {
+            return;
+        }
+        StatementLru statements = perConnCache.remove(conn);
+        if (statements != null) {
+            statements.closeAll();
+        }
+    }
+
+    /**
+     * Closes and forgets the statements of connections that were closed
+     * without being released, e.g. by the driver after a fatal error.
+     */
+    private void purgeClosed() {
+        List<StatementLru> closed = null;
+        synchronized (perConnCache) {
+            for (Iterator<Map.Entry<Connection, StatementLru>> it = perConnCache
+                    .entrySet().iterator(); it.hasNext();) {
+                Map.Entry<Connection, StatementLru> e = it.next();
+                if (isClosed(e.getKey())) {
+                    if (closed == null) {
+                        closed = new ArrayList<StatementLru>();
+                    }
+                    closed.add(e.getValue());
+                    it.remove();
+                }
+            }
+        }
+        if (closed != null) {
+            for (StatementLru statements : closed) {
+                statements.closeAll();
+            }
+        }
+    }
+
+    private static boolean isClosed(Connection conn) {
+        try {
+            return conn.isClosed();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Closes every cached statement, e.g. at the end of a test.
+     */
+    void clear() {
+        List<StatementLru> all;
+        synchronized (perConnCache) {
+            all = new ArrayList<StatementLru>(perConnCache.values());
+            perConnCache.clear();
+        }
+        for (StatementLru statements : all) {
+            statements.closeAll();
+        }
+    }
+
+    long getHits() {
+        return hits.get();
+    }
+
+    long getMisses() {
+        return misses.get();
+    }
+
+    long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * @return the number of connections that currently have statements
+     *         cached
+     */
+    int getConnectionCount() {
+        return perConnCache.size();
+    }
+
+    /**
+     * @return the number of statements cached for each connection, by
+     *         connection class and identity hash
+     */
+    Map<String, Integer> getStatementCounts() {
+        Map<String, Integer> counts = new TreeMap<String, Integer>();
+        synchronized (perConnCache) {
+            for (Map.Entry<Connection, StatementLru> e : perConnCache
+                    .entrySet()) {
+                Connection conn = e.getKey();
+                StatementLru statements = e.getValue();
+                int size;
+                synchronized (statements) {
+                    size = statements.size();
+                }
+                counts.put(conn.getClass().getSimpleName() + "@" // $NON-NLS-1$
+                        + Integer.toHexString(System.identityHashCode(conn)),
+                        Integer.valueOf(size));
+            }
+        }
+        return counts;
+    }
+
+    @Override
+    public String toString() {
+        return "hits=" + getHits() + ", misses=" + getMisses() // $NON-NLS-1$ $NON-NLS-2$
+                + ", evictions=" + getEvictions() // $NON-NLS-1$
+                + ", connections=" + getConnectionCount(); // $NON-NLS-1$
+    }
+
+    private static void close(PreparedStatement pstmt) {
+        try {
+            pstmt.close();
+        } catch (SQLException e) {
+            log.warn("Error closing prepared statement: " + e);
+        }
+    }
+
+    /**
+     * Access ordered map that closes the least recently used statement once
+     * it holds more than maxPerConnection entries.
+     */
+    private final class StatementLru extends
+            LinkedHashMap<String, PreparedStatement> {
+        private static final long serialVersionUID = 1L;
+
+        StatementLru() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(
+                Map.Entry<String, PreparedStatement> eldest) {
+            if (size() > maxPerConnection) {
+                evictions.incrementAndGet();
+                close(eldest.getValue());
+                return true;
+            }
+            return false;
+        }
+
+        synchronized void closeAll() {
+            for (Iterator<PreparedStatement> it = values().iterator(); it
+                    .hasNext();) {
+                close(it.next());
+                it.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.apache.jmeter.protocol.jdbc.sampler;
+
+import java.sql.SQLException;
+
+/**
+ * Receives the rows of a query result as the sampler reads them.
+ * <p>
+ * The sampler makes a single pass over the result set and hands every row
+ * to its consumers, so several consumers can be chained without reading the
+ * rows twice. Columns that any consumer asks for as Objects are read once
+ * with <code>getObject</code> and shared; other columns are left in the
+ * result set for the consumers that want to read them directly.
+ * <p>
+ * A consumer is created for one sample and used by one thread.
+ */
+interface ResultSetConsumer {
+
+    /**
+     * Called once, before any row is read.
+     *
+     * @param layout
+     *            columns of the result set
+     */
+    void start(ColumnLayout layout);
+
+    /**
+     * Called after {@link #start(ColumnLayout)}, once per column.
+     *
+     * @param column
+     *            column number, starting at 1
+     * @return true if {@link #row(ResultSetRow)} reads the column with
+     *         {@link ResultSetRow#getObject(int)}
+     */
+    boolean needsObject(int column);
+
+    /**
+     * Called before each row is fetched; the sampler stops reading once no
+     * consumer wants more rows.
+     *
+     * @return true if the next row should be passed to
+     *         {@link #row(ResultSetRow)}
+     */
+    boolean needsRows();
+
+    /**
+     * Called for each row read.
+     *
+     * @param row
+     *            the current row
+     * @throws SQLException
+     */
+    void row(ResultSetRow row) throws SQLException;
+
+    /**
+     * Called once, after the last row was read, even if no row was read.
+     *
+     * @param rows
+     *            number of rows passed to {@link #row(ResultSetRow)}
+     * @throws SQLException
+     */
+    void end(int rows) throws SQLException;
+}
@@ -0,0 +1,359 @@
+package org.apache.jmeter.protocol.jdbc.sampler;
+
+import java.io.UnsupportedEncodingException;
+import java.sql.SQLException;
+
+import org.apache.jmeter.threads.JMeterVariables;
+
+/**
+ * The built-in {@link ResultSetConsumer}s.
+ */
+final class ResultSetConsumers {
+
+    private static final String ENCODING = "UTF-8"; // $NON-NLS-1$
+
+    private ResultSetConsumers() {
+    }
+
+    /**
+     * Combines consumers so that they share a single pass over the rows.
+     *
+     * @param consumers
+     *            consumers in the order they are called for each row
+     * @return a consumer calling all of them
+     */
+    static ResultSetConsumer chain(ResultSetConsumer... consumers) {
+        if (consumers.length == 1) {
+            return consumers[0];
+        }
+        return new Chain(consumers);
+    }
+
+    private static final class Chain implements ResultSetConsumer {
+        private final ResultSetConsumer[] consumers;
+
+        Chain(ResultSetConsumer[] consumers) {
+            this.consumers = consumers;
+        }
+
+        public void start(ColumnLayout layout) {
+            for (ResultSetConsumer consumer : consumers) {
+                consumer.start(layout);
+            }
+        }
+
+        public boolean needsObject(int column) {
+            for (ResultSetConsumer consumer : consumers) {
+                if (consumer.needsObject(column)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public boolean needsRows() {
+            for (ResultSetConsumer consumer : consumers) {
+                if (consumer.needsRows()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public void row(ResultSetRow row) throws SQLException {
+            for (ResultSetConsumer consumer : consumers) {
+                consumer.row(row);
+            }
+        }
+
+        public void end(int rows) throws SQLException {
+            for (ResultSetConsumer consumer : consumers) {
+                consumer.end(rows);
+            }
+        }
+    }
+
+    /**
+     * Writes the column names, and nothing else, to the response body.
+     */
+    static final class Header implements ResultSetConsumer {
+        private final ResultSetEncoder body;
+
+        Header(ResultSetEncoder body) {
+            this.body = body;
+        }
+
+        public void start(ColumnLayout layout) {
+            body.writeHeader(layout);
+        }
+
+        public boolean needsObject(int column) {
+            return false;
+        }
+
+        public boolean needsRows() {
+            return false;
+        }
+
+        public void row(ResultSetRow row) {
+        }
+
+        public void end(int rows) {
+        }
+    }
+
+    /**
+     * Writes the column names and the rows to the response body as tab
+     * separated text. Columns no other consumer needs as Objects are read
+     * with the typed getters, so they are not boxed.
+     */
+    static final class TsvBody implements ResultSetConsumer {
+        private final ResultSetEncoder body;
+
+        private int[] kinds;
+
+        private int numColumns;
+
+        TsvBody(ResultSetEncoder body) {
+            this.body = body;
+        }
+
+        public void start(ColumnLayout layout) {
+            body.writeHeader(layout);
+            numColumns = layout.getColumnCount();
+            kinds = layout.getKinds();
+        }
+
+        public boolean needsObject(int column) {
+            return false;
+        }
+
+        public boolean needsRows() {
+            return true;
+        }
+
+        public void row(ResultSetRow row) throws SQLException {
+            writeRow(body, row, kinds, numColumns);
+        }
+
+        public void end(int rows) {
+        }
+    }
+
+    /**
+     * Writes one row as a tab separated line, reusing the values other
+     * consumers already read.
+     */
+    private static void writeRow(ResultSetEncoder out, ResultSetRow row,
+            int[] kinds, int numColumns) throws SQLException {
+        for (int i = 1; i <= numColumns; i++) {
+            if (row.isLoaded(i)) {
+                out.writeObject(row.getObject(i));
+            } else {
+                out.writeColumn(row.getResultSet(), i, kinds[i]);
+            }
+            out.write(i == numColumns ? '\n' : '\t');
+        }
+    }
+
+    /**
+     * Hashes the rows with xxHash64 as they stream by, instead of keeping
+     * them. Each row is hashed in the form it would have in the tab
+     * separated body, newline included. The ordered digest is the hash of
+     * all rows in sequence, i.e. of the body less its header line; the
+     * unordered digest is the sum of the hashes of the rows, so it does not
+     * depend on the row order but does count duplicate rows.
+     * <p>
+     * The response body only gets the row count and the digest.
+     */
+    static final class Digest implements ResultSetConsumer {
+        private final ResultSetEncoder body;
+
+        private final ResultSetEncoder rowBuffer;
+
+        private final boolean ordered;
+
+        private final XxHash64 hash = new XxHash64();
+
+        private long sum;
+
+        private int[] kinds;
+
+        private int numColumns;
+
+        private String value;
+
+        /**
+         * @param body
+         *            buffer holding the response body
+         * @param rowBuffer
+         *            buffer to encode each row in before hashing it
+         * @param ordered
+         *            true if the digest depends on the row order
+         */
+        Digest(ResultSetEncoder body, ResultSetEncoder rowBuffer,
+                boolean ordered) {
+            this.body = body;
+            this.rowBuffer = rowBuffer;
+            this.ordered = ordered;
+        }
+
+        public void start(ColumnLayout layout) {
+            numColumns = layout.getColumnCount();
+            kinds = layout.getKinds();
+        }
+
+        public boolean needsObject(int column) {
+            return false;
+        }
+
+        public boolean needsRows() {
+            return true;
+        }
+
+        public void row(ResultSetRow row) throws SQLException {
+            rowBuffer.reset();
+            writeRow(rowBuffer, row, kinds, numColumns);
+            if (ordered) {
+                hash.update(rowBuffer.buffer(), 0, rowBuffer.size());
+            } else {
+                hash.reset();
+                hash.update(rowBuffer.buffer(), 0, rowBuffer.size());
+                sum += hash.getValue();
+            }
+        }
+
+        public void end(int rows) {
+            value = XxHash64.toHex(ordered ? hash.getValue() : sum);
+            body.write("Rows\tDigest\n"); // $NON-NLS-1$
+            body.write(rows);
+            body.write('\t');
+            body.write(value);
+            body.write('\n');
+        }
+
+        /**
+         * @return the digest as 16 hexadecimal digits, or null if the rows
+         *         were not all read
+         */
+        String getValue() {
+            return value;
+        }
+    }
+
+    /**
+     * Counts rows, optionally reading every value as a client that
+     * materialises the rows would.
+     */
+    static final class RowCount implements ResultSetConsumer {
+        private final int maxRows;
+
+        private final boolean materialize;
+
+        private int rows;
+
+        /**
+         * @param maxRows
+         *            number of rows to read, 0 for all
+         * @param materialize
+         *            true to read every column of every row with getObject
+         */
+        RowCount(int maxRows, boolean materialize) {
+            this.maxRows = maxRows;
+            this.materialize = materialize;
+        }
+
+        public void start(ColumnLayout layout) {
+        }
+
+        public boolean needsObject(int column) {
+            return materialize;
+        }
+
+        public boolean needsRows() {
+            return maxRows == 0 || rows < maxRows;
+        }
+
+        public void row(ResultSetRow row) {
+            rows++;
+        }
+
+        public void end(int rows) {
+        }
+
+        /**
+         * @return number of rows read
+         */
+        int getRowCount() {
+            return rows;
+        }
+    }
+
+    /**
+     * Stores column values in the <code>name_n</code> variables and the
+     * rows in the result variable.
+     */
+    static final class Variables implements ResultSetConsumer {
+        private final JMeterVariables vars;
+
+        private final ColumnVariables columnVariables;
+
+        private final String resultVariable;
+
+        private ColumnarResult results;
+
+        private int numColumns;
+
+        Variables(JMeterVariables vars, ColumnVariables columnVariables,
+                String resultVariable) {
+            this.vars = vars;
+            this.columnVariables = columnVariables;
+            this.resultVariable = resultVariable;
+        }
+
+        public void start(ColumnLayout layout) {
+            numColumns = layout.getColumnCount();
+            if (resultVariable.length() > 0) {
+                results = new ColumnarResult(layout);
+                vars.putObject(resultVariable, results);
+            }
+        }
+
+        public boolean needsObject(int column) {
+            return results != null || columnVariables.isExported(column);
+        }
+
+        public boolean needsRows() {
+            return true;
+        }
+
+        public void row(ResultSetRow row) throws SQLException {
+            for (int i = 1; i <= numColumns; i++) {
+                boolean exported = columnVariables.isExported(i);
+                if (results == null && !exported) {
+                    continue;
+                }
+                Object o = row.getObject(i);
+                if (results != null) {
+                    results.addValue(i, o);
+                }
+                if (exported) {
+                    if (o instanceof byte[]) {
+                        try {
+                            o = new String((byte[]) o, ENCODING);
+                        } catch (UnsupportedEncodingException e) {
+                            throw new RuntimeException(e); // should not happen
+                        }
+                    }
+                    columnVariables.put(vars, i, row.getNumber(),
+                            o == null ? null : o.toString());
+                }
+            }
+        }
+
+        public void end(int rows) {
+            // Remove any additional values from previous sample
+            columnVariables.finish(vars, rows);
+        }
+    }
+}
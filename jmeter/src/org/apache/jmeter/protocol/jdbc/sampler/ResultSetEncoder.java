@@ -0,0 +1,602 @@
+package org.apache.jmeter.protocol.jdbc.sampler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Arrays;
+
+import org.apache.jmeter.util.JMeterUtils;
+
+/**
+ * Encodes result set rows as tab separated UTF-8 text straight into a
+ * reusable per-thread byte buffer.
+ * <p>
+ * Integral, floating point and boolean columns are read with the typed
+ * getters and formatted without boxing, binary columns are copied as raw
+ * bytes, and everything else falls back to <code>getObject</code>. The
+ * output is identical to appending the column values to a
+ * <code>StringBuilder</code> and encoding it as UTF-8, without the
+ * intermediate copies.
+ * <p>
+ * Binary and large text columns are read as streams through a small
+ * reusable buffer, and written whole or, depending on the LOB mode, reduced
+ * to their length, hash or leading bytes without being held in memory.
+ */
+final class ResultSetEncoder {
+
+    private static final int INITIAL_CAPACITY = 8192;
+
+    /**
+     * Buffers that grew beyond this size are released on {@link #reset()}, so
+     * that one large result does not pin memory for the rest of the test
+     */
+    private static final int MAX_RETAINED_CAPACITY = JMeterUtils.getPropDefault(
+            "jdbcsampler.encoder.max_retained_bytes", 1024 * 1024); // $NON-NLS-1$
+
+    private static final byte[] NULL_BYTES = { 'n', 'u', 'l', 'l' };
+
+    private static final byte[] TRUE_BYTES = { 't', 'r', 'u', 'e' };
+
+    private static final byte[] FALSE_BYTES = { 'f', 'a', 'l', 's', 'e' };
+
+    private static final byte[] MIN_LONG_BYTES = Long.toString(Long.MIN_VALUE)
+            .getBytes();
+
+    // Column read strategies, see columnKinds()
+    static final int KIND_OBJECT = 0;
+
+    static final int KIND_LONG = 1;
+
+    static final int KIND_DOUBLE = 2;
+
+    static final int KIND_FLOAT = 3;
+
+    static final int KIND_BOOLEAN = 4;
+
+    static final int KIND_BYTES = 5;
+
+    static final int KIND_STRING = 6;
+
+    /** Binary large object, read with getBinaryStream */
+    static final int KIND_BLOB = 7;
+
+    /** Character large object, read with getCharacterStream */
+    static final int KIND_CLOB = 8;
+
+    // LOB modes, see setLobMode()
+    static final int LOB_FULL = 0;
+
+    static final int LOB_LENGTH = 1;
+
+    static final int LOB_HASH = 2;
+
+    static final int LOB_HEX_PREFIX = 3;
+
+    private static final int LOB_BUFFER_SIZE = 8192;
+
+    /** Number of leading bytes written in hex prefix mode */
+    private static final int LOB_PREFIX_BYTES = JMeterUtils.getPropDefault(
+            "jdbcsampler.lob.prefix_bytes", 32); // $NON-NLS-1$
+
+    private static final byte[] HEX_DIGITS = { '0', '1', '2', '3', '4', '5',
+            '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f' };
+
+    private static final ThreadLocal<ResultSetEncoder> perThread = new ThreadLocal<ResultSetEncoder>() {
+        @Override
+        protected ResultSetEncoder initialValue() {
+            return new ResultSetEncoder();
+        }
+    };
+
+    private byte[] buf = new byte[INITIAL_CAPACITY];
+
+    private int count;
+
+    private int lobMode = LOB_FULL;
+
+    // Created on first use
+    private byte[] lobBytes;
+
+    private char[] lobChars;
+
+    private XxHash64 lobHash;
+
+    ResultSetEncoder() {
+    }
+
+    /**
+     * @return the calling thread's encoder, emptied, in full LOB mode and
+     *         ready for use
+     */
+    static ResultSetEncoder get() {
+        ResultSetEncoder encoder = perThread.get();
+        encoder.reset();
+        encoder.lobMode = LOB_FULL;
+        return encoder;
+    }
+
+    /**
+     * Sets how binary and large text values are written: whole, as their
+     * length (bytes for binary, characters for text), as the xxHash64 of
+     * their bytes (UTF-8 for text) or as their first bytes in hex.
+     *
+     * @param lobMode
+     *            one of the LOB_ constants
+     */
+    void setLobMode(int lobMode) {
+        this.lobMode = lobMode;
+    }
+
+    void reset() {
+        count = 0;
+        if (buf.length > MAX_RETAINED_CAPACITY) {
+            buf = new byte[INITIAL_CAPACITY];
+        }
+    }
+
+    /**
+     * @return the number of bytes encoded so far
+     */
+    int size() {
+        return count;
+    }
+
+    /**
+     * Drops the bytes beyond <code>size</code>, backing off to the start of
+     * a UTF-8 sequence cut in the middle.
+     *
+     * @param size
+     *            number of bytes to keep
+     * @return number of bytes dropped
+     */
+    int truncate(int size) {
+        if (size >= count) {
+            return 0;
+        }
+        int keep = size;
+        // at most 3 continuation bytes precede the cut
+        for (int i = 0; i < 3 && keep > 0 && (buf[keep] & 0xC0) == 0x80; i++) {
+            keep--;
+        }
+        int dropped = count - keep;
+        count = keep;
+        return dropped;
+    }
+
+    /**
+     * @return the backing array, holding the encoded bytes up to
+     *         {@link #size()}; only valid until the next write
+     */
+    byte[] buffer() {
+        return buf;
+    }
+
+    /**
+     * @return an exactly sized copy of the encoded bytes
+     */
+    byte[] toByteArray() {
+        return Arrays.copyOf(buf, count);
+    }
+
+    /**
+     * Works out how each column should be read, based on its JDBC type.
+     *
+     * @param meta
+     *            metadata of the result set to encode
+     * @return read strategy per column, indexed from 1
+     * @throws SQLException
+     */
+    static int[] columnKinds(ResultSetMetaData meta) throws SQLException {
+        int numColumns = meta.getColumnCount();
+        int[] kinds = new int[numColumns + 1];
+        for (int i = 1; i <= numColumns; i++) {
+            kinds[i] = columnKind(meta, i);
+        }
+        return kinds;
+    }
+
+    private static int columnKind(ResultSetMetaData meta, int column)
+            throws SQLException {
+        switch (meta.getColumnType(column)) {
+        case Types.TINYINT:
+        case Types.SMALLINT:
+        case Types.INTEGER:
+            return KIND_LONG;
+        case Types.BIGINT:
+            // unsigned BIGINT values may not fit in a long
+            return meta.isSigned(column) ? KIND_LONG : KIND_OBJECT;
+        case Types.FLOAT:
+        case Types.DOUBLE:
+            return KIND_DOUBLE;
+        case Types.REAL:
+            return KIND_FLOAT;
+        case Types.BOOLEAN:
+            return KIND_BOOLEAN;
+        case Types.BINARY:
+        case Types.VARBINARY:
+            return KIND_BYTES;
+        case Types.LONGVARBINARY:
+        case Types.BLOB:
+            return KIND_BLOB;
+        case Types.CHAR:
+        case Types.VARCHAR:
+        case Types.NCHAR:
+        case Types.NVARCHAR:
+            return KIND_STRING;
+        case Types.LONGVARCHAR:
+        case Types.LONGNVARCHAR:
+        case Types.CLOB:
+        case Types.NCLOB:
+            return KIND_CLOB;
+        default:
+            return KIND_OBJECT;
+        }
+    }
+
+    /**
+     * Writes the column names as a tab separated line.
+     */
+    void writeHeader(ColumnLayout layout) {
+        int numColumns = layout.getColumnCount();
+        for (int i = 1; i <= numColumns; i++) {
+            write(layout.getColumnName(i));
+            write(i == numColumns ? '\n' : '\t');
+        }
+    }
+
+    /**
+     * Reads one column of the current row using the given strategy and
+     * writes its text form.
+     */
+    void writeColumn(ResultSet rs, int column, int kind) throws SQLException {
+        switch (kind) {
+        case KIND_LONG: {
+            long value = rs.getLong(column);
+            if (rs.wasNull()) {
+                write(NULL_BYTES);
+            } else {
+                write(value);
+            }
+            break;
+        }
+        case KIND_DOUBLE: {
+            double value = rs.getDouble(column);
+            if (rs.wasNull()) {
+                write(NULL_BYTES);
+            } else {
+                write(Double.toString(value));
+            }
+            break;
+        }
+        case KIND_FLOAT: {
+            float value = rs.getFloat(column);
+            if (rs.wasNull()) {
+                write(NULL_BYTES);
+            } else {
+                write(Float.toString(value));
+            }
+            break;
+        }
+        case KIND_BOOLEAN: {
+            boolean value = rs.getBoolean(column);
+            if (rs.wasNull()) {
+                write(NULL_BYTES);
+            } else {
+                write(value ? TRUE_BYTES : FALSE_BYTES);
+            }
+            break;
+        }
+        case KIND_BYTES: {
+            if (lobMode != LOB_FULL) {
+                writeLob(rs.getBinaryStream(column));
+                break;
+            }
+            byte[] value = rs.getBytes(column);
+            write(value == null ? NULL_BYTES : value);
+            break;
+        }
+        case KIND_BLOB:
+            writeLob(rs.getBinaryStream(column));
+            break;
+        case KIND_CLOB:
+            writeLob(rs.getCharacterStream(column));
+            break;
+        case KIND_STRING: {
+            String value = rs.getString(column);
+            write(value == null ? "null" : value);
+            break;
+        }
+        default:
+            writeObject(rs.getObject(column));
+        }
+    }
+
+    /**
+     * Writes an already fetched column value; <code>byte[]</code>, Blob and
+     * Clob values are written as the LOB mode says.
+     */
+    void writeObject(Object o) throws SQLException {
+        if (o == null) {
+            write(NULL_BYTES);
+        } else if (o instanceof byte[]) {
+            writeLob((byte[]) o);
+        } else if (o instanceof Blob) {
+            writeLob(((Blob) o).getBinaryStream());
+        } else if (o instanceof Clob) {
+            writeLob(((Clob) o).getCharacterStream());
+        } else {
+            write(o.toString());
+        }
+    }
+
+    /**
+     * Writes a binary value that was read whole as the LOB mode says.
+     */
+    private void writeLob(byte[] bytes) {
+        switch (lobMode) {
+        case LOB_LENGTH:
+            write(bytes.length);
+            break;
+        case LOB_HASH:
+            hash().reset();
+            lobHash.update(bytes, 0, bytes.length);
+            write(XxHash64.toHex(lobHash.getValue()));
+            break;
+        case LOB_HEX_PREFIX:
+            writeHex(bytes, 0, Math.min(bytes.length, LOB_PREFIX_BYTES));
+            break;
+        default:
+            write(bytes);
+        }
+    }
+
+    /**
+     * Writes a binary value as the LOB mode says, reading it in chunks.
+     *
+     * @param in
+     *            the value, null for SQL NULL; closed when read
+     */
+    private void writeLob(InputStream in) throws SQLException {
+        if (in == null) {
+            write(NULL_BYTES);
+            return;
+        }
+        if (lobBytes == null) {
+            lobBytes = new byte[LOB_BUFFER_SIZE];
+        }
+        byte[] chunk = lobBytes;
+        try {
+            int r;
+            if (lobMode == LOB_HEX_PREFIX) {
+                int wanted = Math.min(chunk.length, LOB_PREFIX_BYTES);
+                int n = 0;
+                while (n < wanted && (r = in.read(chunk, n, wanted - n)) >= 0) {
+                    n += r;
+                }
+                writeHex(chunk, 0, n);
+                return;
+            }
+            if (lobMode == LOB_HASH) {
+                hash().reset();
+            }
+            long length = 0;
+            while ((r = in.read(chunk)) >= 0) {
+                if (lobMode == LOB_FULL) {
+                    write(chunk, 0, r);
+                } else if (lobMode == LOB_HASH) {
+                    lobHash.update(chunk, 0, r);
+                }
+                length += r;
+            }
+            if (lobMode == LOB_LENGTH) {
+                write(length);
+            } else if (lobMode == LOB_HASH) {
+                write(XxHash64.toHex(lobHash.getValue()));
+            }
+        } catch (IOException e) {
+            throw new SQLException("Could not read LOB value: " + e); // $NON-NLS-1$
+        } finally {
+            try {
+                in.close();
+            } catch (IOException e) {
+                // Nothing was lost, the value has been read
+            }
+        }
+    }
+
+    /**
+     * Writes a text value as the LOB mode says, reading it in chunks. Length
+     * mode counts characters; the other modes work on its UTF-8 bytes.
+     *
+     * @param in
+     *            the value, null for SQL NULL; closed when read
+     */
+    private void writeLob(Reader in) throws SQLException {
+        if (in == null) {
+            write(NULL_BYTES);
+            return;
+        }
+        if (lobChars == null) {
+            lobChars = new char[LOB_BUFFER_SIZE];
+        }
+        char[] chunk = lobChars;
+        try {
+            int r;
+            if (lobMode == LOB_HEX_PREFIX) {
+                // Each character takes at least one byte
+                int wanted = Math.min(chunk.length, LOB_PREFIX_BYTES);
+                int n = 0;
+                while (n < wanted && (r = in.read(chunk, n, wanted - n)) >= 0) {
+                    n += r;
+                }
+                if (n > 0 && Character.isHighSurrogate(chunk[n - 1])) {
+                    n--; // its pair was not read
+                }
+                int start = count;
+                write(CharBuffer.wrap(chunk, 0, n));
+                int len = Math.min(count - start, LOB_PREFIX_BYTES);
+                // Moved back to where the bytes started, as hex
+                byte[] prefix = Arrays.copyOfRange(buf, start, start + len);
+                count = start;
+                writeHex(prefix, 0, len);
+                return;
+            }
+            if (lobMode == LOB_HASH) {
+                hash().reset();
+            }
+            long length = 0;
+            int carry = 0;
+            while ((r = in.read(chunk, carry, chunk.length - carry)) >= 0) {
+                int n = carry + r;
+                // A high surrogate ending the chunk waits for its pair
+                carry = n > 0 && Character.isHighSurrogate(chunk[n - 1]) ? 1 : 0;
+                writeText(chunk, n - carry);
+                length += n - carry;
+                if (carry == 1) {
+                    chunk[0] = chunk[n - 1];
+                }
+            }
+            writeText(chunk, carry);
+            length += carry;
+            if (lobMode == LOB_LENGTH) {
+                write(length);
+            } else if (lobMode == LOB_HASH) {
+                write(XxHash64.toHex(lobHash.getValue()));
+            }
+        } catch (IOException e) {
+            throw new SQLException("Could not read LOB value: " + e); // $NON-NLS-1$
+        } finally {
+            try {
+                in.close();
+            } catch (IOException e) {
+                // Nothing was lost, the value has been read
+            }
+        }
+    }
+
+    /**
+     * Writes one chunk of a text value in full mode, or hashes its UTF-8
+     * bytes, which are encoded in the buffer and dropped again.
+     */
+    private void writeText(char[] chunk, int len) {
+        if (len == 0 || lobMode == LOB_LENGTH) {
+            return;
+        }
+        int start = count;
+        write(CharBuffer.wrap(chunk, 0, len));
+        if (lobMode == LOB_HASH) {
+            lobHash.update(buf, start, count - start);
+            count = start;
+        }
+    }
+
+    private XxHash64 hash() {
+        if (lobHash == null) {
+            lobHash = new XxHash64();
+        }
+        return lobHash;
+    }
+
+    private void writeHex(byte[] bytes, int off, int len) {
+        ensureCapacity(count + len * 2);
+        for (int i = off; i < off + len; i++) {
+            buf[count++] = HEX_DIGITS[(bytes[i] >> 4) & 0xF];
+            buf[count++] = HEX_DIGITS[bytes[i] & 0xF];
+        }
+    }
+
+    void write(byte[] bytes) {
+        write(bytes, 0, bytes.length);
+    }
+
+    void write(byte[] bytes, int off, int len) {
+        ensureCapacity(count + len);
+        System.arraycopy(bytes, off, buf, count, len);
+        count += len;
+    }
+
+    /**
+     * Writes a character that is known to be ASCII, such as a separator.
+     */
+    void write(char c) {
+        ensureCapacity(count + 1);
+        buf[count++] = (byte) c;
+    }
+
+    /**
+     * Writes the decimal form of <code>value</code> without creating a
+     * String.
+     */
+    void write(long value) {
+        if (value == Long.MIN_VALUE) {
+            write(MIN_LONG_BYTES);
+            return;
+        }
+        ensureCapacity(count + 20);
+        if (value < 0) {
+            buf[count++] = '-';
+            value = -value;
+        }
+        int start = count;
+        do {
+            buf[count++] = (byte) ('0' + (int) (value % 10));
+            value /= 10;
+        } while (value != 0);
+        // digits were written least significant first
+        for (int i = start, j = count - 1; i < j; i++, j--) {
+            byte b = buf[i];
+            buf[i] = buf[j];
+            buf[j] = b;
+        }
+    }
+
+    /**
+     * Writes the UTF-8 form of <code>s</code>. Unpaired surrogates are
+     * replaced by '?', as {@link String#getBytes(String)} does.
+     */
+    void write(CharSequence s) {
+        int len = s.length();
+        // worst case is 3 bytes per char; pairs take 4 bytes for 2 chars
+        ensureCapacity(count + len * 3);
+        byte[] b = buf;
+        int n = count;
+        for (int i = 0; i < len; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                b[n++] = (byte) c;
+            } else if (c < 0x800) {
+                b[n++] = (byte) (0xC0 | (c >> 6));
+                b[n++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < len
+                    && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                b[n++] = (byte) (0xF0 | (cp >> 18));
+                b[n++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                b[n++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                b[n++] = (byte) (0x80 | (cp & 0x3F));
+            } else if (c >= Character.MIN_SURROGATE
+                    && c <= Character.MAX_SURROGATE) {
+                b[n++] = '?';
+            } else {
+                b[n++] = (byte) (0xE0 | (c >> 12));
+                b[n++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                b[n++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        count = n;
+    }
+
+    private void ensureCapacity(int minCapacity) {
+        if (minCapacity > buf.length) {
+            int newCapacity = Math.max(buf.length << 1, minCapacity);
+            buf = Arrays.copyOf(buf, newCapacity);
+        }
+    }
+}
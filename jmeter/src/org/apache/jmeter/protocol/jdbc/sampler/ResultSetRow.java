@@ -0,0 +1,92 @@
+package org.apache.jmeter.protocol.jdbc.sampler;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/**
+ * The row a {@link ResultSetConsumer} is given: the result set positioned on
+ * the row, and the values of the columns read as Objects for the consumers
+ * that asked for them.
+ */
+final class ResultSetRow {
+
+    private final ResultSet rs;
+
+    /** Columns read with getObject when the row is loaded, index = column */
+    private final boolean[] objectColumns;
+
+    private final Object[] values;
+
+    private final boolean[] loaded;
+
+    private int number;
+
+    /**
+     * @param rs
+     *            the result set being read
+     * @param objectColumns
+     *            columns to read as Objects, index = column number
+     */
+    ResultSetRow(ResultSet rs, boolean[] objectColumns) {
+        this.rs = rs;
+        this.objectColumns = objectColumns;
+        this.values = new Object[objectColumns.length];
+        this.loaded = new boolean[objectColumns.length];
+    }
+
+    /**
+     * Reads the shared Object columns of the row the result set is on.
+     *
+     * @param rowNumber
+     *            row number, starting at 1
+     */
+    void load(int rowNumber) throws SQLException {
+        number = rowNumber;
+        Arrays.fill(loaded, false);
+        for (int i = 1; i < objectColumns.length; i++) {
+            if (objectColumns[i]) {
+                values[i] = rs.getObject(i);
+                loaded[i] = true;
+            }
+        }
+    }
+
+    /**
+     * @return the result set, positioned on this row
+     */
+    ResultSet getResultSet() {
+        return rs;
+    }
+
+    /**
+     * @return row number, starting at 1
+     */
+    int getNumber() {
+        return number;
+    }
+
+    /**
+     * @param column
+     *            column number, starting at 1
+     * @return true if the column has already been read as an Object, in
+     *         which case it must not be read from the result set again
+     */
+    boolean isLoaded(int column) {
+        return loaded[column];
+    }
+
+    /**
+     * @param column
+     *            column number, starting at 1
+     * @return the value returned by <code>getObject</code>, read once per row
+     * @throws SQLException
+     */
+    Object getObject(int column) throws SQLException {
+        if (!loaded[column]) {
+            values[column] = rs.getObject(column);
+            loaded[column] = true;
+        }
+        return values[column];
+    }
+}
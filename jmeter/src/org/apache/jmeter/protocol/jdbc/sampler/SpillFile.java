@@ -0,0 +1,144 @@
+package org.apache.jmeter.protocol.jdbc.sampler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.apache.jmeter.util.JMeterUtils;
+import org.apache.jorphan.logging.LoggingManager;
+import org.apache.log.Logger;
+
+/**
+ * Temporary file receiving the part of a select response that is not kept
+ * on the heap.
+ * <p>
+ * Bytes are copied into a memory-mapped region of the file, and the next
+ * region is mapped when one is full, so writing costs a memory copy and the
+ * page cache, not the heap, absorbs the response. The file is cut to the
+ * bytes written when it is closed.
+ * <p>
+ * A file that cannot be deleted yet, typically because a region is still
+ * mapped, is retried on later deletions and once more when the JVM exits.
+ */
+final class SpillFile {
+
+    private static final Logger log = LoggingManager.getLoggerForClass();
+
+    /** Size of each mapped region */
+    private static final int REGION_SIZE = JMeterUtils.getPropDefault(
+            "jdbcsampler.spill.region_bytes", 8 * 1024 * 1024); // $NON-NLS-1$
+
+    /** Files whose deletion failed, oldest first */
+    private static final Queue<File> undeleted = new ConcurrentLinkedQueue<File>();
+
+    static {
+        // One hook for all files, unlike File.deleteOnExit which keeps each path
+        Runtime.getRuntime().addShutdownHook(new Thread("jdbc-spill-cleanup") { // $NON-NLS-1$
+            @Override
+            public void run() {
+                retryDeletes();
+            }
+        });
+    }
+
+    private final File file;
+
+    private RandomAccessFile raf;
+
+    private FileChannel channel;
+
+    private MappedByteBuffer region;
+
+    private long size;
+
+    /**
+     * Creates an empty file in the temporary directory, or in the directory
+     * given by the <code>jdbcsampler.spill.dir</code> property.
+     *
+     * @throws IOException
+     *             if the file cannot be created
+     */
+    SpillFile() throws IOException {
+        String dir = JMeterUtils.getPropDefault("jdbcsampler.spill.dir", ""); // $NON-NLS-1$ $NON-NLS-2$
+        file = File.createTempFile("jmeter-jdbc-spill", ".tsv", // $NON-NLS-1$ $NON-NLS-2$
+                dir.length() > 0 ? new File(dir) : null);
+        raf = new RandomAccessFile(file, "rw"); // $NON-NLS-1$
+        channel = raf.getChannel();
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    /**
+     * @return number of bytes written
+     */
+    long size() {
+        return size;
+    }
+
+    void write(byte[] bytes, int off, int len) throws IOException {
+        while (len > 0) {
+            if (region == null || !region.hasRemaining()) {
+                region = channel.map(FileChannel.MapMode.READ_WRITE, size,
+                        REGION_SIZE);
+            }
+            int n = Math.min(len, region.remaining());
+            region.put(bytes, off, n);
+            off += n;
+            len -= n;
+            size += n;
+        }
+    }
+
+    /**
+     * Cuts the file to the bytes written and closes it; the file itself is
+     * kept. Can be called more than once.
+     */
+    void close() {
+        if (channel == null) {
+            return;
+        }
+        region = null;
+        try {
+            channel.truncate(size);
+        } catch (IOException e) {
+            // Some platforms refuse while a region is still mapped
+            log.warn("Could not trim spill file " + file + ": " + e);
+        }
+        try {
+            raf.close();
+        } catch (IOException e) {
+            log.warn("Could not close spill file " + file + ": " + e);
+        }
+        channel = null;
+        raf = null;
+    }
+
+    /**
+     * Closes and deletes the file, and retries the files that could not be
+     * deleted before.
+     */
+    void delete() {
+        close();
+        retryDeletes();
+        if (!file.delete()) {
+            // A region may still be mapped until it is garbage collected
+            undeleted.add(file);
+        }
+    }
+
+    private static void retryDeletes() {
+        for (Iterator<File> it = undeleted.iterator(); it.hasNext();) {
+            File f = it.next();
+            if (f.delete() || !f.exists()) {
+                it.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package org.apache.jmeter.protocol.jdbc.sampler;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jmeter.protocol.jdbc.AbstractJDBCTestElement;
+import org.apache.jmeter.protocol.jdbc.config.DataSourceElement;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.threads.JMeterContext;
+import org.apache.jmeter.threads.JMeterContextService;
+import org.apache.jmeter.threads.JMeterVariables;
+import org.apache.jorphan.logging.LoggingManager;
+import org.apache.log.Logger;
+
+/**
+ * Parameter sets of a prepared update queued by one (per-thread) sampler
+ * for one data source, until they are sent with a single
+ * <code>executeBatch</code>.
+ * <p>
+ * Parameter sets are held as execution plans, or rows of a parameter file,
+ * rather than added to a statement straight away, as the sampler may be
+ * given a different
+ * connection for each sample. They are bound and added to the batch on the
+ * connection of the sample that flushes them, which is always one of the
+ * data source the sets were routed to.
+ * <p>
+ * A batch with a time bound that receives no further sample is sent by a
+ * shared timer thread once the bound has passed, on a connection of its
+ * data source; the outcome is then logged, as there is no sample to report
+ * it.
+ */
+final class UpdateBatch {
+
+    /**
+     * Parameter sets queued by one sample.
+     */
+    interface ParameterSets {
+
+        /**
+         * @return the number of sets
+         * @throws SQLException
+         *             if the sets are invalid
+         * @throws IOException
+         *             if the sets cannot be parsed
+         */
+        int getBatchRows() throws SQLException, IOException;
+
+        /**
+         * Binds each set to the statement and adds it to its batch.
+         *
+         * @param pstmt
+         *            statement to bind to
+         * @throws SQLException
+         *             if the sets are invalid
+         * @throws IOException
+         *             if the sets cannot be parsed
+         */
+        void addBatch(PreparedStatement pstmt) throws SQLException,
+                IOException;
+    }
+
+    private static final Logger log = LoggingManager.getLoggerForClass();
+
+    private static final String ENCODING = "UTF-8"; // $NON-NLS-1$
+
+    /** Sends the batches left idle past their time bound */
+    private static final ScheduledExecutorService timer = Executors
+            .newSingleThreadScheduledExecutor(new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "JDBC batch timer"); // $NON-NLS-1$
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+
+    /** Pool variable name of the data source the sets were routed to */
+    private final String dataSource;
+
+    private final List<ParameterSets> pending = new ArrayList<ParameterSets>();
+
+    private int pendingRows;
+
+    private long firstQueued;
+
+    /**
+     * Pool of the data source and statement of the last queued set, as
+     * seen by the owning thread, for the timer
+     */
+    private Object pool;
+    private String sql;
+
+    /** Number of flushes so far, so that a timeout outlived by its batch is ignored */
+    private int generation;
+
+    private ScheduledFuture<?> timeout;
+
+    // Outcome of the last flush, until reported
+    private int flushedRows;
+    private long flushNanos;
+    private int[] updateCounts;
+    private SQLException failure;
+
+    /**
+     * @param dataSource
+     *            pool variable name of the data source the queued sets go to
+     */
+    UpdateBatch(String dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Queues the parameter sets of a sample. Must be called by the thread
+     * owning the batch.
+     *
+     * @param sets
+     *            parameter sets of the sample: its plan, giving one set per
+     *            line of arguments, or a row of its parameter file
+     * @param query
+     *            the prepared update, used if the timer sends the batch
+     * @param batchSize
+     *            number of parameter sets that triggers a flush
+     * @param timeoutMillis
+     *            age of the oldest queued set that triggers a flush, 0 for
+     *            no time bound
+     * @return true if the batch should be flushed now
+     * @throws SQLException
+     *             if the arguments and their types do not match
+     * @throws IOException
+     *             if the arguments cannot be parsed
+     */
+    synchronized boolean queue(ParameterSets sets, String query,
+            int batchSize, long timeoutMillis) throws SQLException,
+            IOException {
+        int rows = sets.getBatchRows();
+        long now = System.currentTimeMillis();
+        sql = query;
+        if (pending.isEmpty()) {
+            firstQueued = now;
+            if (timeoutMillis > 0) {
+                scheduleTimeout(timeoutMillis);
+            }
+        }
+        pending.add(sets);
+        pendingRows += rows;
+        return pendingRows >= batchSize
+                || (timeoutMillis > 0 && now - firstQueued >= timeoutMillis);
+    }
+
+    /**
+     * Arranges for the timer to send the batch if it is still pending
+     * after <code>timeoutMillis</code>.
+     */
+    private void scheduleTimeout(long timeoutMillis) {
+        // The timer thread has no variables to look the pool up in
+        pool = JMeterContextService.getContext().getVariables()
+                .getObject(dataSource);
+        final int expected = generation;
+        timeout = timer.schedule(new Runnable() {
+            public void run() {
+                flushIdle(expected);
+            }
+        }, timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sends the batch from the timer thread, unless it was flushed since
+     * the timeout was scheduled.
+     */
+    private synchronized void flushIdle(int expected) {
+        if (generation != expected || pending.isEmpty() || pool == null) {
+            return;
+        }
+        JMeterContext context = JMeterContextService.getContext();
+        JMeterVariables variables = new JMeterVariables();
+        variables.putObject(dataSource, pool);
+        context.setVariables(variables);
+        Connection conn = null;
+        try {
+            conn = DataSourceElement.getConnection(dataSource);
+            flush(AbstractJDBCQuerySampler.perConnCache.get(conn, sql, false));
+            log.info("Sent idle batch to " + dataSource + ": " + getSummary());
+        } catch (SQLException e) {
+            log.warn("Could not send idle batch to " + dataSource + ": " + e);
+        } catch (IOException e) {
+            log.warn("Could not send idle batch to " + dataSource + ": " + e);
+        } finally {
+            AbstractJDBCTestElement.close(conn);
+            context.setVariables(null);
+            // Nothing left for the next sample to report
+            flushedRows = 0;
+            updateCounts = null;
+            failure = null;
+        }
+    }
+
+    /**
+     * @return true if parameter sets are waiting to be flushed
+     */
+    synchronized boolean isPending() {
+        return !pending.isEmpty();
+    }
+
+    /**
+     * @return pool variable name of the data source of the queued sets
+     */
+    String getDataSource() {
+        return dataSource;
+    }
+
+    /**
+     * Drops the queued parameter sets without sending them.
+     */
+    synchronized void discard() {
+        pending.clear();
+        pendingRows = 0;
+        cancelTimeout();
+    }
+
+    private void cancelTimeout() {
+        generation++;
+        if (timeout != null) {
+            timeout.cancel(false);
+            timeout = null;
+        }
+        pool = null;
+    }
+
+    /**
+     * Adds the queued parameter sets to the statement's batch and executes
+     * it. The queue is emptied even if execution fails.
+     *
+     * @param pstmt
+     *            the statement, prepared on the connection of this sample
+     * @return the update count of each statement, one per line
+     * @throws SQLException
+     *             if execution failed; a BatchUpdateException if some
+     *             statements failed
+     * @throws IOException
+     *             if the arguments cannot be parsed
+     */
+    synchronized byte[] flush(PreparedStatement pstmt) throws SQLException,
+            IOException {
+        cancelTimeout();
+        flushedRows = pendingRows;
+        updateCounts = null;
+        failure = null;
+        if (pending.isEmpty()) {
+            return new byte[0]; // already sent by the timer
+        }
+        long start = System.nanoTime();
+        try {
+            for (ParameterSets sets : pending) {
+                sets.addBatch(pstmt);
+            }
+            updateCounts = pstmt.executeBatch();
+        } catch (SQLException e) {
+            failure = e;
+            if (e instanceof BatchUpdateException) {
+                updateCounts = ((BatchUpdateException) e).getUpdateCounts();
+            }
+            throw e;
+        } finally {
+            flushNanos = System.nanoTime() - start;
+            pending.clear();
+            pendingRows = 0;
+            // Leave nothing behind on a cached statement
+            try {
+                pstmt.clearBatch();
+            } catch (SQLException e) {
+                log.warn("Could not clear batch: " + e);
+            }
+        }
+        return getUpdateCountText().getBytes(ENCODING);
+    }
+
+    /**
+     * Sets the response message of the sample that flushed the batch to the
+     * batch size and throughput, and on failure its response data to the
+     * update counts and chained exceptions.
+     *
+     * @param res
+     *            result of the sample that called {@link #flush(PreparedStatement)}
+     */
+    synchronized void report(SampleResult res) {
+        if (flushedRows == 0) {
+            return;
+        }
+        res.setResponseMessage(getSummary());
+        if (failure != null) {
+            try {
+                res.setResponseData(getFailureText().getBytes(ENCODING));
+            } catch (UnsupportedEncodingException e) {
+                throw new RuntimeException(e); // should not happen
+            }
+        }
+        flushedRows = 0;
+        updateCounts = null;
+        failure = null;
+    }
+
+    /**
+     * @return a one line description of the last flush
+     */
+    synchronized String getSummary() {
+        double seconds = flushNanos / 1e9;
+        long rowsPerSecond = seconds > 0 ? Math.round(flushedRows / seconds)
+                : 0;
+        StringBuilder sb = new StringBuilder();
+        sb.append("Batch of ").append(flushedRows).append(" rows in ") // $NON-NLS-1$ $NON-NLS-2$
+                .append(flushNanos / 1000000L).append(" ms, ") // $NON-NLS-1$
+                .append(rowsPerSecond).append(" rows/s"); // $NON-NLS-1$
+        if (failure != null) {
+            sb.append(", failed: ").append(failure.getMessage()); // $NON-NLS-1$
+        }
+        return sb.toString();
+    }
+
+    private String getUpdateCountText() {
+        StringBuilder sb = new StringBuilder();
+        if (updateCounts != null) {
+            for (int i = 0; i < updateCounts.length; i++) {
+                sb.append(toString(updateCounts[i])).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    private String getFailureText() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(getSummary()).append('\n');
+        int processed = updateCounts == null ? 0 : updateCounts.length;
+        sb.append(processed).append(" of ").append(flushedRows) // $NON-NLS-1$
+                .append(" statements processed by the driver\n"); // $NON-NLS-1$
+        if (updateCounts != null) {
+            for (int i = 0; i < updateCounts.length; i++) {
+                sb.append("Statement ").append(i + 1).append(": ") // $NON-NLS-1$ $NON-NLS-2$
+                        .append(toString(updateCounts[i])).append('\n');
+            }
+        }
+        SQLException e = failure;
+        while (e != null) {
+            sb.append(e.getSQLState()).append(' ').append(e.getErrorCode())
+                    .append(": ").append(e.getMessage()).append('\n'); // $NON-NLS-1$
+            e = e.getNextException();
+        }
+        return sb.toString();
+    }
+
+    private static String toString(int updateCount) {
+        if (updateCount == Statement.SUCCESS_NO_INFO) {
+            return "SUCCESS_NO_INFO"; // $NON-NLS-1$
+        } else if (updateCount == Statement.EXECUTE_FAILED) {
+            return "EXECUTE_FAILED"; // $NON-NLS-1$
+        }
+        return Integer.toString(updateCount);
+    }
+}
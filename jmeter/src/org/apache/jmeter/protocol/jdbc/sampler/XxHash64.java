@@ -0,0 +1,157 @@
+package org.apache.jmeter.protocol.jdbc.sampler;
+
+/**
+ * Streaming implementation of the xxHash64 non-cryptographic hash, with
+ * seed 0.
+ * <p>
+ * Bytes can be passed in any number of {@link #update(byte[], int, int)}
+ * calls; the value is the same as hashing them in one go, and matches the
+ * reference implementation (e.g. <code>xxhsum -H1</code>).
+ */
+final class XxHash64 {
+
+    private static final long PRIME1 = 0x9E3779B185EBCA87L;
+
+    private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+
+    private static final long PRIME3 = 0x165667B19E3779F9L;
+
+    private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+
+    private static final long PRIME5 = 0x27D4EB2F165667C5L;
+
+    private static final int STRIPE = 32;
+
+    private long v1;
+
+    private long v2;
+
+    private long v3;
+
+    private long v4;
+
+    private long totalLength;
+
+    /** Bytes not yet making up a whole stripe */
+    private final byte[] pending = new byte[STRIPE];
+
+    private int pendingLength;
+
+    XxHash64() {
+        reset();
+    }
+
+    /**
+     * Starts a new hash.
+     */
+    void reset() {
+        v1 = PRIME1 + PRIME2;
+        v2 = PRIME2;
+        v3 = 0;
+        v4 = -PRIME1;
+        totalLength = 0;
+        pendingLength = 0;
+    }
+
+    void update(byte[] bytes, int off, int len) {
+        totalLength += len;
+        int end = off + len;
+        if (pendingLength > 0) {
+            int n = Math.min(len, STRIPE - pendingLength);
+            System.arraycopy(bytes, off, pending, pendingLength, n);
+            pendingLength += n;
+            off += n;
+            if (pendingLength < STRIPE) {
+                return;
+            }
+            stripe(pending, 0);
+            pendingLength = 0;
+        }
+        for (; off <= end - STRIPE; off += STRIPE) {
+            stripe(bytes, off);
+        }
+        if (off < end) {
+            pendingLength = end - off;
+            System.arraycopy(bytes, off, pending, 0, pendingLength);
+        }
+    }
+
+    private void stripe(byte[] b, int off) {
+        v1 = round(v1, readLong(b, off));
+        v2 = round(v2, readLong(b, off + 8));
+        v3 = round(v3, readLong(b, off + 16));
+        v4 = round(v4, readLong(b, off + 24));
+    }
+
+    /**
+     * @return the hash of the bytes passed since the last reset; the state
+     *         is not changed, so more bytes can still be added
+     */
+    long getValue() {
+        long h;
+        if (totalLength >= STRIPE) {
+            h = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7)
+                    + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            h = merge(h, v1);
+            h = merge(h, v2);
+            h = merge(h, v3);
+            h = merge(h, v4);
+        } else {
+            h = PRIME5;
+        }
+        h += totalLength;
+
+        int off = 0;
+        for (; off <= pendingLength - 8; off += 8) {
+            h ^= round(0, readLong(pending, off));
+            h = Long.rotateLeft(h, 27) * PRIME1 + PRIME4;
+        }
+        if (off <= pendingLength - 4) {
+            h ^= (readInt(pending, off) & 0xFFFFFFFFL) * PRIME1;
+            h = Long.rotateLeft(h, 23) * PRIME2 + PRIME3;
+            off += 4;
+        }
+        for (; off < pendingLength; off++) {
+            h ^= (pending[off] & 0xFF) * PRIME5;
+            h = Long.rotateLeft(h, 11) * PRIME1;
+        }
+
+        h ^= h >>> 33;
+        h *= PRIME2;
+        h ^= h >>> 29;
+        h *= PRIME3;
+        h ^= h >>> 32;
+        return h;
+    }
+
+    /**
+     * @return the value as 16 lower case hexadecimal digits
+     */
+    static String toHex(long value) {
+        String hex = Long.toHexString(value);
+        return "0000000000000000".substring(hex.length()) + hex; // $NON-NLS-1$
+    }
+
+    private static long round(long acc, long input) {
+        acc += input * PRIME2;
+        acc = Long.rotateLeft(acc, 31);
+        return acc * PRIME1;
+    }
+
+    private static long merge(long acc, long v) {
+        acc ^= round(0, v);
+        return acc * PRIME1 + PRIME4;
+    }
+
+    private static long readLong(byte[] b, int off) {
+        return (b[off] & 0xFFL) | (b[off + 1] & 0xFFL) << 8
+                | (b[off + 2] & 0xFFL) << 16 | (b[off + 3] & 0xFFL) << 24
+                | (b[off + 4] & 0xFFL) << 32 | (b[off + 5] & 0xFFL) << 40
+                | (b[off + 6] & 0xFFL) << 48 | (b[off + 7] & 0xFFL) << 56;
+    }
+
+    private static int readInt(byte[] b, int off) {
+        return (b[off] & 0xFF) | (b[off + 1] & 0xFF) << 8
+                | (b[off + 2] & 0xFF) << 16 | (b[off + 3] & 0xFF) << 24;
+    }
+}